@@ -0,0 +1,183 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArtifact;
+import org.basepom.mojo.duplicatefinder.benchmarks.BenchmarkFixtures;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathListingStore;
+import org.basepom.mojo.duplicatefinder.classpath.DuplicateListener;
+import org.basepom.mojo.duplicatefinder.classpath.IndexBudget;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.project.MavenProject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Evaluates the conflicts between two jars with the same classes and resources, half of them with different content: content hashing, exception matching
+ * and result collection. Each invocation processes all conflicts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConflictEvaluationBenchmark {
+
+    private static final EnumSet<ConflictState> PRINT_STATE = EnumSet.of(ConflictState.CONFLICT_CONTENT_DIFFERENT, ConflictState.CONFLICT_CONTENT_EQUAL);
+    private static final EnumSet<ConflictState> FAIL_STATE = EnumSet.of(ConflictState.CONFLICT_CONTENT_DIFFERENT);
+
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private File directory;
+    private Map<String, Collection<File>> conflicts;
+    private MavenProject project;
+    private SortedSet<ClasspathElement> classpathElements;
+    private List<ConflictingDependency> exceptions;
+    private ExecutorService executorService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InvalidVersionSpecificationException {
+        directory = Files.createTempDirectory("duplicate-finder-benchmark").toFile();
+        final File firstJar = BenchmarkFixtures.createJar(directory, "first.jar", classCount, classCount / 10, 0);
+        final File secondJar = BenchmarkFixtures.createJar(directory, "second.jar", classCount, classCount / 10, 2);
+        final Artifact firstArtifact = BenchmarkFixtures.createArtifact("first", firstJar);
+        final Artifact secondArtifact = BenchmarkFixtures.createArtifact("second", secondJar);
+
+        project = new MavenProject();
+        project.setArtifact(BenchmarkFixtures.createArtifact("project", null));
+
+        final ClasspathDescriptor classpathDescriptor = ClasspathDescriptor.createClasspathDescriptor(ImmutableList.of(firstJar, secondJar),
+                ImmutableList.of(),
+                ImmutableList.of(),
+                true,
+                true,
+                ClasspathListingStore.disabled(),
+                IndexBudget.unlimited(),
+                MoreExecutors.newDirectExecutorService(),
+                DuplicateListener.NONE,
+                new ExecutionMetrics());
+
+        conflicts = ImmutableMap.copyOf(Maps.filterValues(classpathDescriptor.getClasspathElementLocations(ConflictType.CLASS), files -> files.size() > 1));
+        classpathElements = ImmutableSortedSet.of(new ClasspathArtifact(firstArtifact), new ClasspathArtifact(secondArtifact));
+
+        // Exceptions for other artifacts, a matching exception for some packages and a matching wildcard exception for other artifacts.
+        final ImmutableList.Builder<ConflictingDependency> exceptionsBuilder = ImmutableList.builder();
+        for (int i = 0; i < 10; i++) {
+            exceptionsBuilder.add(createException(new String[] {"p" + i, "other" + i}, "org.example.p" + i));
+        }
+        exceptionsBuilder.add(createException(new String[] {"first", "second"}, "org.example.p1", "org.example.p3"));
+        exceptionsBuilder.add(createException(new String[] {"first", "third"}));
+        exceptions = exceptionsBuilder.build();
+
+        executorService = threads == 1 ? MoreExecutors.newDirectExecutorService() : IoExecutors.newIoExecutor(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executorService.shutdown();
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public void hashContent(final Blackhole blackhole) throws IOException {
+        // A new evaluator for every invocation, the evaluator keeps all hashes.
+        final ContentEvaluator contentEvaluator = new ContentEvaluator(executorService, false, ConflictVerdictStore.disabled(),
+                SessionConflictCache.disabled(), new ExecutionMetrics());
+        contentEvaluator.prefetch(ConflictType.CLASS, conflicts);
+
+        for (final Map.Entry<String, Collection<File>> conflict : conflicts.entrySet()) {
+            blackhole.consume(contentEvaluator.determineConflictState(ConflictType.CLASS, conflict.getKey(), conflict.getValue()));
+        }
+    }
+
+    @Benchmark
+    public void matchExceptions(final Blackhole blackhole) throws OverConstrainedVersionException {
+        for (final String name : conflicts.keySet()) {
+            blackhole.consume(DuplicateFinderMojo.isExcepted(project, exceptions, ConflictType.CLASS, name, classpathElements));
+        }
+    }
+
+    @Benchmark
+    public ResultCollector collectResults(final Blackhole blackhole) {
+        final ResultCollector resultCollector = new ResultCollector(PRINT_STATE, FAIL_STATE);
+        ConflictState state = ConflictState.CONFLICT_CONTENT_EQUAL;
+        for (final String name : conflicts.keySet()) {
+            resultCollector.addConflict(ConflictType.CLASS, name, classpathElements, false, state);
+            state = state == ConflictState.CONFLICT_CONTENT_EQUAL ? ConflictState.CONFLICT_CONTENT_DIFFERENT : ConflictState.CONFLICT_CONTENT_EQUAL;
+        }
+
+        for (final ConflictState printState : PRINT_STATE) {
+            for (final ConflictType type : ConflictType.values()) {
+                if (resultCollector.hasConflictsFor(type, printState)) {
+                    blackhole.consume(resultCollector.getResults(type, printState).size());
+                }
+            }
+        }
+        return resultCollector;
+    }
+
+    private static ConflictingDependency createException(final String[] artifactIds, final String... packages) throws InvalidVersionSpecificationException {
+        final Dependency[] dependencies = new Dependency[artifactIds.length];
+        for (int i = 0; i < artifactIds.length; i++) {
+            dependencies[i] = new Dependency();
+            dependencies[i].setGroupId("org.example");
+            dependencies[i].setArtifactId(artifactIds[i]);
+            dependencies[i].setVersion("1.0");
+        }
+
+        final ConflictingDependency conflictingDependency = new ConflictingDependency();
+        conflictingDependency.setConflictingDependencies(dependencies);
+        conflictingDependency.setPackages(packages);
+        return conflictingDependency;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.benchmarks;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+
+/**
+ * Generates the jars and folders that the benchmarks work on, so that the benchmarks do not need any downloaded artifacts. All content is deterministic.
+ */
+public final class BenchmarkFixtures {
+
+    private static final int PACKAGE_COUNT = 50;
+    private static final int CONTENT_SIZE = 1024;
+
+    private BenchmarkFixtures() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    /**
+     * Returns the class file names of a fixture, e.g. <code>org/example/p7/Class107.class</code>. Every tenth class has an inner class.
+     */
+    public static List<String> getClassEntries(final int classCount) {
+        final List<String> entries = new ArrayList<>(classCount + classCount / 10);
+        for (int i = 0; i < classCount; i++) {
+            final String className = format("org/example/p%d/Class%d", i % PACKAGE_COUNT, i);
+            entries.add(className + ".class");
+            if (i % 10 == 0) {
+                entries.add(className + "$Inner.class");
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the resource names of a fixture. Some of them match the default resource ignore list.
+     */
+    public static List<String> getResourceEntries(final int resourceCount) {
+        final List<String> entries = new ArrayList<>(resourceCount + 3);
+        for (int i = 0; i < resourceCount; i++) {
+            entries.add(format("org/example/p%d/resource%d.properties", i % PACKAGE_COUNT, i));
+        }
+        entries.add("META-INF/MANIFEST.MF");
+        entries.add("META-INF/LICENSE.txt");
+        entries.add("about.html");
+        return entries;
+    }
+
+    /**
+     * Writes a jar with classes and resources.
+     *
+     * @param variant Every entry whose index is divisible by this value gets different content than the same entry in jars with another variant. 0 creates
+     *                the same content for all variants.
+     */
+    public static File createJar(final File directory, final String name, final int classCount, final int resourceCount, final int variant)
+            throws IOException {
+        final File jar = new File(directory, name);
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+            int index = 0;
+            for (final String entry : getEntries(classCount, resourceCount)) {
+                zip.putNextEntry(new ZipEntry(entry));
+                zip.write(getContent(entry, variant > 0 && index % variant == 0 ? variant : 0));
+                zip.closeEntry();
+                index++;
+            }
+        }
+        return jar;
+    }
+
+    /**
+     * Writes a folder with classes and resources, like the output folder of a project.
+     */
+    public static File createFolder(final File directory, final String name, final int classCount, final int resourceCount) throws IOException {
+        final File folder = new File(directory, name);
+        for (final String entry : getEntries(classCount, resourceCount)) {
+            final Path path = folder.toPath().resolve(entry);
+            Files.createDirectories(path.getParent());
+            try (OutputStream output = Files.newOutputStream(path)) {
+                output.write(getContent(entry, 0));
+            }
+        }
+        return folder;
+    }
+
+    public static Artifact createArtifact(final String artifactId, final File file) {
+        final DefaultArtifactHandler handler = new DefaultArtifactHandler("jar");
+        handler.setAddedToClasspath(true);
+
+        final Artifact artifact = new DefaultArtifact("org.example", artifactId, "1.0", Artifact.SCOPE_COMPILE, "jar", null, handler);
+        artifact.setFile(file);
+        return artifact;
+    }
+
+    public static void deleteRecursively(final File directory) throws IOException {
+        if (directory == null || !directory.exists()) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            for (final Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static List<String> getEntries(final int classCount, final int resourceCount) {
+        final List<String> entries = getClassEntries(classCount);
+        entries.addAll(getResourceEntries(resourceCount));
+        return entries;
+    }
+
+    private static byte[] getContent(final String entry, final int variant) {
+        final byte[] content = new byte[CONTENT_SIZE];
+        new Random(entry.hashCode() * 31L + variant).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import org.basepom.mojo.duplicatefinder.benchmarks.BenchmarkFixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lists the classes and resources of a single jar and of a single project folder. The scan cache is bypassed, every invocation reads the element again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClasspathScanBenchmark {
+
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    private File directory;
+    private File jar;
+    private File folder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("duplicate-finder-benchmark").toFile();
+        jar = BenchmarkFixtures.createJar(directory, "fixture.jar", classCount, classCount / 10, 0);
+        folder = BenchmarkFixtures.createFolder(directory, "classes", classCount, classCount / 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public ClasspathCacheElement listJar() throws IOException {
+        return ClasspathDescriptor.scan(jar);
+    }
+
+    @Benchmark
+    public ClasspathCacheElement walkFolder() throws IOException {
+        return ClasspathDescriptor.scan(folder);
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.basepom.mojo.duplicatefinder.benchmarks.BenchmarkFixtures;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds the classpath index for two jars with the same classes and a project folder, and detects the duplicates. The jar and folder listings come from the
+ * scan cache after the first invocation, so this measures filtering and indexing, not I/O. The <code>mapped</code> index starts in memory-mapped files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DuplicateDetectionBenchmark {
+
+    @Param({"1000", "10000"})
+    public int classCount;
+
+    @Param({"heap", "mapped"})
+    public String index;
+
+    private File directory;
+    private ImmutableList<File> elements;
+    private ExecutorService executorService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("duplicate-finder-benchmark").toFile();
+        final File firstJar = BenchmarkFixtures.createJar(directory, "first.jar", classCount, classCount / 10, 0);
+        final File secondJar = BenchmarkFixtures.createJar(directory, "second.jar", classCount, classCount / 10, 2);
+        final File folder = BenchmarkFixtures.createFolder(directory, "classes", classCount / 10, 0);
+
+        elements = ImmutableList.of(firstJar, secondJar, folder);
+        executorService = MoreExecutors.newDirectExecutorService();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executorService.shutdown();
+        BenchmarkFixtures.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public ClasspathDescriptor detectDuplicates() throws IOException {
+        return ClasspathDescriptor.createClasspathDescriptor(elements,
+                ImmutableList.of(),
+                ImmutableList.of(),
+                true,
+                true,
+                ClasspathListingStore.disabled(),
+                "heap".equals(index) ? IndexBudget.unlimited() : new IndexBudget(1, new File(directory, "spill")),
+                executorService,
+                DuplicateListener.NONE,
+                new ExecutionMetrics());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import org.basepom.mojo.duplicatefinder.benchmarks.BenchmarkFixtures;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Validates jar entry names and matches class and resource names against the default and user supplied ignore patterns. Each invocation processes all
+ * names of a fixture with 10000 classes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PatternFilterBenchmark {
+
+    private static final int CLASS_COUNT = 10_000;
+
+    private List<String> classEntries;
+    private List<String> classNames;
+    private List<String> resourceNames;
+    private MatchPatternPredicate userClassPredicate;
+    private MatchPatternPredicate userResourcePredicate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        classEntries = BenchmarkFixtures.getClassEntries(CLASS_COUNT);
+        // entry names without the extension, e.g. org.example.p7.Class107
+        classNames = classEntries.stream()
+                .map(entry -> entry.substring(0, entry.length() - ".class".length()).replace('/', '.'))
+                .collect(Collectors.toList());
+        resourceNames = BenchmarkFixtures.getResourceEntries(CLASS_COUNT / 10);
+
+        userClassPredicate = new MatchPatternPredicate(Arrays.asList("org\\.example\\.p1\\..*", ".*Impl", "com\\.acme\\..*"));
+        userResourcePredicate = new MatchPatternPredicate(Arrays.asList(".*\\.xsd", "org/example/p2/.*", ".*/log4j\\.properties"));
+    }
+
+    @Benchmark
+    public void validateClassNames(final Blackhole blackhole) {
+        for (final String entry : classEntries) {
+            blackhole.consume(ClasspathDescriptor.validateClassName(entry));
+        }
+    }
+
+    @Benchmark
+    public void defaultClassPatterns(final Blackhole blackhole) {
+        for (final String className : classNames) {
+            blackhole.consume(ClasspathDescriptor.DEFAULT_IGNORED_CLASS_PREDICATE.apply(className));
+        }
+    }
+
+    @Benchmark
+    public void userClassPatterns(final Blackhole blackhole) {
+        for (final String className : classNames) {
+            blackhole.consume(userClassPredicate.apply(className));
+        }
+    }
+
+    @Benchmark
+    public void userResourcePatterns(final Blackhole blackhole) {
+        for (final String resourceName : resourceNames) {
+            blackhole.consume(userResourcePredicate.apply(resourceName));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+import groovy.xml.XmlSlurper
+
+def resultFile = new File(basedir, "target/duplicate-finder-aggregate-result.xml")
+assert resultFile.exists()
+
+def xml = new XmlSlurper().parse(resultFile)
+assert 2 == xml.modules.module.size()
+
+def p1Folder = projectTargetFolder(new File(basedir, "p1"))
+def p1Jar = jarName("test-aggregate-local-folder-p1")
+
+// in the first module, the conflict is between its own output folder and the jar.
+def p1 = xml.modules.module.find({ it.project.@artifactId.text().equals("test-aggregate-local-folder-p1") })
+def p1Result = p1.results.result.find({ it.@name.text().equals("test") })
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, p1Result)
+checkConflictResult("conflict-different-content", TYPE_RESOURCE, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(p1Result, FIRST_JAR, p1Folder))
+
+// the second module has the same conflicting files, but the output folder is the artifact of the first module.
+def p2 = xml.modules.module.find({ it.project.@artifactId.text().equals("test-aggregate-local-folder-p2") })
+def p2Result = p2.results.result.find({ it.@name.text().equals("test") })
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, p2Result)
+checkConflictResult("conflict-different-content", TYPE_RESOURCE, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(p2Result, FIRST_JAR, p1Jar))
+assert 0 == findAllConflictResults(p2Result, p1Folder).size()
+
+return true
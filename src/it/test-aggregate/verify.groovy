@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+import groovy.xml.XmlSlurper
+
+def resultFile = new File(basedir, "target/duplicate-finder-aggregate-result.xml")
+assert resultFile.exists()
+
+def xml = new XmlSlurper().parse(resultFile)
+assert "1" == xml.@version.text()
+assert "test-aggregate" == xml.project.@artifactId.text()
+
+// the POM project itself is not checked.
+assert 2 == xml.modules.module.size()
+
+def p1 = xml.modules.module.find({ it.project.@artifactId.text().equals("test-aggregate-p1") })
+assert CONFLICT_DIFF == p1.@conflictState.text()
+assert "false" == p1.@failed.text()
+
+def p1Result = p1.results.result.find({ it.@name.text().equals("test") })
+overallState(CONFLICT_DIFF, 2, NOT_FAILED, p1Result)
+checkConflictResult("demo.Demo", TYPE_CLASS, CONFLICT_EQUAL, NOT_EXCEPTED, NOT_PRINTED, NOT_FAILED, findConflictResult(p1Result, SECOND_CLASS_JAR, SECOND_EQUAL_JAR))
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(p1Result, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+def p2 = xml.modules.module.find({ it.project.@artifactId.text().equals("test-aggregate-p2") })
+def p2Result = p2.results.result.find({ it.@name.text().equals("test") })
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, p2Result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(p2Result, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+// the aggregate result matches the result of the check goal in each module.
+overallState(CONFLICT_DIFF, 2, NOT_FAILED, loadTestXml(new File(basedir, "p1")))
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, loadTestXml(new File(basedir, "p2")))
+
+return true
@@ -0,0 +1,43 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+def buildLog = new File(basedir, "build.log").text
+
+// one line per module that requested conflict states, in reactor order.
+def conflictStateHits = buildLog.readLines().findAll { it.contains("Cache hits:") }.collect {
+    def matcher = it =~ /conflict state (\d+) of (\d+)/
+    assert matcher.find()
+    [matcher.group(1) as int, matcher.group(2) as int]
+}.findAll { it[1] > 0 }
+assert 2 == conflictStateHits.size()
+
+// the first module evaluates its conflicts.
+def (p1Hits, p1Requests) = conflictStateHits[0]
+assert 0 == p1Hits
+
+// the second module reuses all of them.
+def (p2Hits, p2Requests) = conflictStateHits[1]
+assert p1Requests == p2Requests
+assert p2Requests == p2Hits
+
+def p1Result = loadTestXml(new File(basedir, "p1"))
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, p1Result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(p1Result, 1, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+def p2Result = loadTestXml(new File(basedir, "p2"))
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, p2Result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(p2Result, 1, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+return true
@@ -0,0 +1,25 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+def buildLog = new File(basedir, "build.log").text
+
+assert buildLog.contains("Stopping after the first failing conflict, other conflicts may exist!")
+assert buildLog.contains("diff.Demo")
+
+// classes are checked first, the resource conflicts are never reported.
+assert !buildLog.contains("conflict-different-content")
+assert !buildLog.contains("conflict-same-content")
+
+assert !new File(basedir, "target/duplicate-finder-result.xml").exists()
+
+return true
@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+def buildLog = new File(basedir, "build.log").text
+
+assert !buildLog.contains("Inputs have not changed since the last run")
+assert 2 == buildLog.count("Checking test classpath")
+
+def incrementalChecks = buildLog.readLines().findAll { it.contains("Incremental check:") }.collect {
+    def matcher = it =~ /(\d+) archives unchanged, (\d+) added or changed, (\d+) removed; (\d+) conflicts unchanged, (\d+) evaluated/
+    assert matcher.find()
+    (1..5).collect { index -> matcher.group(index) as int }
+}
+assert 2 == incrementalChecks.size()
+
+// the first run scans all archives and evaluates all conflicts.
+def (firstUnchanged, firstScanned, firstRemoved, firstReused, firstEvaluated) = incrementalChecks[0]
+assert 0 == firstUnchanged
+assert firstScanned >= 4
+assert 0 == firstReused
+assert 3 == firstEvaluated
+
+// the second run reads all listings and conflict states from the first run.
+def (secondUnchanged, secondScanned, secondRemoved, secondReused, secondEvaluated) = incrementalChecks[1]
+assert firstScanned == secondUnchanged
+assert 0 == secondScanned
+assert 0 == secondRemoved
+assert 3 == secondReused
+assert 0 == secondEvaluated
+
+// the result is the same as without stored state.
+def result = loadTestXml(basedir)
+overallState(CONFLICT_DIFF, 2, NOT_FAILED, result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 1, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+checkConflictResult("conflict-same-content", TYPE_RESOURCE, CONFLICT_EQUAL, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 2, FIRST_JAR, SECOND_JAR))
+checkConflictResult("conflict-different-content", TYPE_RESOURCE, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 2, FIRST_JAR, SECOND_JAR))
+
+return true
@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+def buildLog = new File(basedir, "build.log").text
+
+// only the second run is skipped.
+assert 1 == buildLog.count("Inputs have not changed since the last run, skipping duplicate-finder execution!")
+assert 1 == buildLog.count("Checking test classpath")
+assert new File(basedir, "target/duplicate-finder-fingerprint.properties").isFile()
+
+// the result file of the first run is kept.
+def result = loadTestXml(basedir)
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+return true
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import com.google.common.hash.Hashing
+
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPOutputStream
+
+// Store a listing for first-class-jar with the current size and modification time, but with a class that is not in the archive.
+def jar = new File(localRepositoryPath, "testjar/first-class-jar/1.0.under-test/first-class-jar-1.0.under-test.jar").absoluteFile
+assert jar.isFile()
+
+def listingDirectory = new File(basedir, "target/duplicate-finder-state/elements")
+listingDirectory.mkdirs()
+
+def listingName = Hashing.sha256().hashString(jar.path, StandardCharsets.UTF_8).toString().substring(0, 32) + ".gz"
+new File(listingDirectory, listingName).withOutputStream { out ->
+    def writer = new OutputStreamWriter(new GZIPOutputStream(out), StandardCharsets.UTF_8)
+    writer.write("${jar.path}\t${jar.length()}\t${jar.lastModified()}\n")
+    writer.write("C\tdiff.Demo\n")
+    writer.write("C\ttampered.Missing\n")
+    writer.close()
+}
+
+return true
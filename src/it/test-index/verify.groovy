@@ -0,0 +1,31 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+// one listing for each dependency, project folders are not indexed.
+def indexDirectory = new File(basedir, "target/duplicate-finder-index")
+assert indexDirectory.isDirectory()
+def listings = indexDirectory.listFiles().findAll { it.name.endsWith(".gz") }
+assert listings.size() >= 6
+
+def buildLog = new File(basedir, "build.log").text
+assert buildLog.contains("Indexed ${listings.size()} archives (${listings.size()} scanned, 0 unchanged, 0 failed)")
+
+// the check uses the indexed listings and finds the same conflicts as without an index.
+def result = loadTestXml(basedir)
+
+overallState(CONFLICT_DIFF, 2, NOT_FAILED, result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 1, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+return true
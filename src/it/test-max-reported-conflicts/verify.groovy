@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+def buildLog = new File(basedir, "build.log").text
+
+assert buildLog.contains("Found 2 duplicate and different resources in [")
+assert buildLog.contains("  ... and 1 more (see result file)")
+assert 1 == buildLog.count("  conflict-different-content") + buildLog.count("  other-different-content")
+
+// the result file has all conflicts.
+def result = loadTestXml(basedir)
+overallState(CONFLICT_DIFF, 1, NOT_FAILED, result)
+checkConflictResult("conflict-different-content", TYPE_RESOURCE, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 2, projectTargetFolder(basedir), projectTargetTestFolder(basedir)))
+checkConflictResult("other-different-content", TYPE_RESOURCE, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 2, projectTargetFolder(basedir), projectTargetTestFolder(basedir)))
+
+return true
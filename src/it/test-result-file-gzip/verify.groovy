@@ -0,0 +1,34 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+import groovy.xml.XmlSlurper
+import java.util.zip.GZIPInputStream
+
+assert !new File(basedir, "target/duplicate-finder-result.xml").exists()
+
+def resultFile = new File(basedir, "target/duplicate-finder-result.xml.gz")
+assert resultFile.exists()
+
+def xml = resultFile.withInputStream { new XmlSlurper().parse(new GZIPInputStream(it)) }
+assert "1" == xml.@version.text()
+assert "false" == xml.configuration.@resultFileIndent.text()
+
+def result = xml.results.result.find({ it.@name.text().equals("test") })
+assert null != result
+
+overallState(CONFLICT_DIFF, 2, NOT_FAILED, result)
+checkConflictResult("diff.Demo", TYPE_CLASS, CONFLICT_DIFF, NOT_EXCEPTED, PRINTED, NOT_FAILED, findConflictResult(result, 1, FIRST_CLASS_JAR, FIRST_DIFF_JAR))
+
+return true
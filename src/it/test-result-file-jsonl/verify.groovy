@@ -0,0 +1,50 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import static org.basepom.mojo.duplicatefinder.groovy.ITools.*
+
+import groovy.json.JsonSlurper
+
+assert !new File(basedir, "target/duplicate-finder-result.xml").exists()
+
+def resultFile = new File(basedir, "target/duplicate-finder-result.jsonl")
+assert resultFile.exists()
+
+def slurper = new JsonSlurper()
+def records = resultFile.readLines().collect { slurper.parseText(it) }
+
+assert "header" == records.first().record
+assert 1 == records.first().version
+assert "test-result-file-jsonl" == records.first().project.artifactId
+
+def summary = records.last()
+assert "summary" == summary.record
+assert ["test"] == summary.scopes
+assert CONFLICT_DIFF == summary.conflictState
+assert !summary.failed
+
+def conflicts = records.findAll { it.record == "conflict" && it.scope == "test" }
+def demo = conflicts.find { it.name == "diff.Demo" }
+assert null != demo
+assert TYPE_CLASS == demo.type
+assert CONFLICT_DIFF == demo.conflictState
+assert !demo.excepted
+assert demo.printed
+assert !demo.failed
+assert [FIRST_CLASS_JAR, FIRST_DIFF_JAR] as Set == demo.elements.collect { it.name } as Set
+assert demo.elements.every { it.artifact.groupId == "testjar" }
+
+def testResult = records.find { it.record == "result" && it.scope == "test" }
+assert conflicts.size() == testResult.conflicts
+
+return true
@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import org.basepom.mojo.duplicatefinder.FlightRecorderEvents.ResultWriteEvent;
+import org.basepom.mojo.duplicatefinder.ResultFileSink.ConfigurationWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+
+import com.google.common.base.Strings;
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.stax2.XMLOutputFactory2;
+import org.codehaus.staxmate.SMOutputFactory;
+import org.codehaus.staxmate.out.SMOutputDocument;
+import org.codehaus.staxmate.out.SMOutputElement;
+
+/**
+ * Writes the consolidated result file of the aggregate goal. It contains the results of every checked module, each module is written as soon as its
+ * results are available. If the file name ends with <code>.gz</code>, the file is compressed.
+ */
+final class AggregateResultFileSink {
+
+    private static final int SAVE_FILE_VERSION = 1;
+
+    private final File resultFile;
+    private final MavenProject project;
+    private final ConfigurationWriter configurationWriter;
+    private final boolean indent;
+    private final ExecutionMetrics metrics;
+
+    private OutputStream outputStream = null;
+    private SMOutputDocument resultDocument = null;
+    private SMOutputElement rootElement = null;
+    private SMOutputElement modulesElement = null;
+
+    AggregateResultFileSink(final File resultFile, final MavenProject project, final ConfigurationWriter configurationWriter, final boolean indent,
+            final ExecutionMetrics metrics) {
+        this.resultFile = checkNotNull(resultFile, "resultFile is null");
+        this.project = checkNotNull(project, "project is null");
+        this.configurationWriter = checkNotNull(configurationWriter, "configurationWriter is null");
+        this.indent = indent;
+        this.metrics = checkNotNull(metrics, "metrics is null");
+    }
+
+    void start() throws MojoExecutionException {
+        try {
+            outputStream = ResultFileSink.openResultFile(resultFile);
+
+            SMOutputFactory factory = new SMOutputFactory(XMLOutputFactory2.newFactory());
+            resultDocument = factory.createOutputDocument(outputStream);
+            if (indent) {
+                resultDocument.setIndentation("\n" + Strings.repeat(" ", 64), 1, 4);
+            }
+
+            rootElement = resultDocument.addElement("duplicate-finder-aggregate-result");
+            XMLWriterUtils.addAttribute(rootElement, "version", SAVE_FILE_VERSION);
+
+            XMLWriterUtils.addProjectInformation(rootElement, project);
+
+            configurationWriter.addConfiguration(rootElement);
+
+            modulesElement = rootElement.addElement("modules");
+        } catch (IOException | XMLStreamException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+    }
+
+    /**
+     * Adds the results of a module.
+     *
+     * @param module           The module.
+     * @param resultCollectors The results of all checked classpath scopes of the module, in the order of the scopes.
+     */
+    void addModule(final MavenProject module, final Map<String, ResultCollector> resultCollectors)
+            throws MojoExecutionException, OverConstrainedVersionException {
+        checkState(modulesElement != null, "result file was not started");
+
+        final ResultWriteEvent event = new ResultWriteEvent();
+        event.begin();
+
+        ConflictState conflictState = ConflictState.NO_CONFLICT;
+        boolean failed = false;
+        int conflictCount = 0;
+        for (ResultCollector resultCollector : resultCollectors.values()) {
+            conflictState = ConflictState.max(conflictState, resultCollector.getConflictState());
+            failed |= resultCollector.isFailed();
+            conflictCount += resultCollector.getConflictCount();
+        }
+
+        try {
+            SMOutputElement moduleElement = modulesElement.addElement("module");
+            XMLWriterUtils.addAttribute(moduleElement, "conflictState", conflictState);
+            XMLWriterUtils.addAttribute(moduleElement, "failed", failed);
+            XMLWriterUtils.addProjectInformation(moduleElement, module);
+
+            SMOutputElement resultsElement = moduleElement.addElement("results");
+            for (Map.Entry<String, ResultCollector> entry : resultCollectors.entrySet()) {
+                SMOutputElement resultElement = resultsElement.addElement("result");
+                XMLWriterUtils.addAttribute(resultElement, "name", entry.getKey());
+                XMLWriterUtils.addResultCollector(resultElement, entry.getValue());
+            }
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+
+        ResultFileSink.commitResultWriteEvent(event, resultFile, module.getId(), conflictCount);
+    }
+
+    void finish() throws MojoExecutionException {
+        checkState(resultDocument != null, "result file was not started");
+
+        final ResultWriteEvent event = new ResultWriteEvent();
+        event.begin();
+
+        try {
+            XMLWriterUtils.addMetrics(rootElement, metrics);
+            resultDocument.closeRootAndWriter();
+            // the XML writer does not close the underlying stream, this also writes the gzip trailer.
+            outputStream.close();
+            outputStream = null;
+        } catch (IOException | XMLStreamException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+
+        ResultFileSink.commitResultWriteEvent(event, resultFile, null, 0);
+    }
+
+    /**
+     * Called instead of {@link #finish()} if the result file could not be completed. Removes the partially written result file.
+     */
+    void abort() {
+        ResultFileSink.abortResultFile(outputStream, resultFile);
+        outputStream = null;
+    }
+}
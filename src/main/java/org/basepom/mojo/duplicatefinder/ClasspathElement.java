@@ -17,9 +17,13 @@ package org.basepom.mojo.duplicatefinder;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.base.Strings.nullToEmpty;
+import static java.lang.String.format;
 import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.isJarArtifact;
 import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.isTestArtifact;
 
+import org.basepom.mojo.duplicatefinder.classpath.JdkModules;
+import org.basepom.mojo.duplicatefinder.classpath.NestedArchives;
+
 import java.io.File;
 import java.util.Objects;
 import java.util.function.Function;
@@ -30,8 +34,9 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.maven.artifact.Artifact;
 
 /**
- * Describes any of the possible elements on the classpath. These can be elements from the boot classpath, artifacts and local folder from the current project.
- * For each of the possible types exists a subclass which holds additional information.
+ * Describes any of the possible elements on the classpath. These can be the JDK (the boot classpath), artifacts and local folder from the current project.
+ * For each of the possible types exists a subclass which holds additional information. Only {@link ClasspathArtifact} uses Maven types, elements that
+ * report {@link #hasArtifact()} are always instances of it.
  */
 public abstract class ClasspathElement implements Comparable<ClasspathElement> {
 
@@ -41,10 +46,6 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
         throw new UnsupportedOperationException();
     }
 
-    public Artifact getArtifact() {
-        throw new UnsupportedOperationException();
-    }
-
     public boolean isLocalFolder() {
         return false;
     }
@@ -53,6 +54,10 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
         return false;
     }
 
+    public boolean isBootClasspathElement() {
+        return false;
+    }
+
     @Override
     public int compareTo(ClasspathElement element) {
         return Ordering.natural().compare(this.getName(), element.getName());
@@ -61,21 +66,24 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
     public static final class ClasspathArtifact extends ClasspathElement {
 
         private final Artifact artifact;
+        // Classpath elements are sorted by name, so the name is only built once.
+        private final String name;
 
         public ClasspathArtifact(final Artifact artifact) {
             this.artifact = checkNotNull(artifact, "artifact is null");
-        }
-
-        @Override
-        public String getName() {
-            return Joiner.on(':').skipNulls().join(artifact.getGroupId(),
+            this.name = Joiner.on(':').skipNulls().join(artifact.getGroupId(),
                     artifact.getArtifactId(),
                     artifact.getVersion(),
                     getType(artifact),
                     getClassifier(artifact));
         }
 
-        private String getType(final Artifact artifact) {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        private static String getType(final Artifact artifact) {
             if (isJarArtifact(artifact)) {
                 // when the classifier is null but the type is jar, return null
                 // so that in the Joiner expression both the type and classifier
@@ -86,7 +94,7 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
             return artifact.getType();
         }
 
-        private String getClassifier(final Artifact artifact) {
+        private static String getClassifier(final Artifact artifact) {
             if (nullToEmpty(artifact.getClassifier()).isEmpty()) {
                 return null;
             } else if (isTestArtifact(artifact)) {
@@ -101,7 +109,6 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
             return true;
         }
 
-        @Override
         @SuppressFBWarnings("EI_EXPOSE_REP")
         public Artifact getArtifact() {
             return artifact;
@@ -131,15 +138,17 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
     public static final class ClasspathLocalFolder extends ClasspathElement {
 
         private final File localFolder;
+        private final String name;
 
         public ClasspathLocalFolder(final File localFolder) {
             this.localFolder = checkNotNull(localFolder, "localFolder is null");
             checkState(localFolder.isDirectory(), "localFolder must be a directory");
+            this.name = localFolder.getAbsolutePath();
         }
 
         @Override
         public String getName() {
-            return localFolder.getAbsolutePath();
+            return name;
         }
 
         @Override
@@ -173,6 +182,102 @@ public abstract class ClasspathElement implements Comparable<ClasspathElement> {
         }
     }
 
+    /**
+     * An archive on the classpath that is not a Maven artifact, e.g. a jar from the classpath of the command line runner or a nested archive (see
+     * {@link NestedArchives}).
+     */
+    public static final class ClasspathArchive extends ClasspathElement {
+
+        private final File archive;
+        private final String name;
+
+        public ClasspathArchive(final File archive) {
+            this.archive = checkNotNull(archive, "archive is null");
+            checkState(NestedArchives.getArchiveFile(archive).isFile(), "archive must be a file");
+            this.name = archive.getAbsolutePath();
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public File getFile() {
+            return archive;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(archive);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || o.getClass() != this.getClass()) {
+                return false;
+            }
+
+            if (o == this) {
+                return true;
+            }
+
+            ClasspathArchive that = (ClasspathArchive) o;
+
+            return Objects.equals(this.archive, that.archive);
+        }
+    }
+
+    /**
+     * The classes of the modules of a JDK (see {@link JdkModules}), which replace the boot classpath since Java 9.
+     */
+    public static final class ClasspathBootClasspathElement extends ClasspathElement {
+
+        private final File jdkElement;
+        private final String name;
+
+        public ClasspathBootClasspathElement(final File jdkElement) {
+            this.jdkElement = checkNotNull(jdkElement, "jdkElement is null");
+            checkState(JdkModules.isJdkElement(jdkElement), "jdkElement must be the module image of a JDK");
+            this.name = format("JDK %s (%s)", JdkModules.getJavaVersion(jdkElement), JdkModules.getJavaHome(jdkElement));
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isBootClasspathElement() {
+            return true;
+        }
+
+        @Override
+        public File getFile() {
+            return jdkElement;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(jdkElement);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (o == null || o.getClass() != this.getClass()) {
+                return false;
+            }
+
+            if (o == this) {
+                return true;
+            }
+
+            ClasspathBootClasspathElement that = (ClasspathBootClasspathElement) o;
+
+            return Objects.equals(this.jdkElement, that.jdkElement);
+        }
+    }
+
     public static Function<ClasspathElement, String> getNameFunction() {
         return ClasspathElement::getName;
     }
@@ -0,0 +1,232 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the conflict states (content equal or different) from the last run on disk. A conflict state only depends on the content of the conflicting
+ * classpath elements, so it can be reused as long as none of these elements has changed. Archives are identified by their path, size and modification time.
+ * Conflicts that involve a folder are always evaluated.
+ * <p>
+ * In verify mode, every conflict is evaluated and the result is compared with the stored state.
+ */
+public final class ConflictVerdictStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConflictVerdictStore.class);
+
+    private static final ConflictVerdictStore DISABLED = new ConflictVerdictStore(null, false);
+
+    private final File verdictFile;
+    private final boolean verify;
+
+    private final Map<String, ConflictState> previousVerdicts = new ConcurrentHashMap<>();
+    private final Map<String, ConflictState> currentVerdicts = new ConcurrentHashMap<>();
+    private final ElementKeys elementKeys = new ElementKeys();
+
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger evaluated = new AtomicInteger();
+    private final List<String> mismatches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns a store that never has a verdict and does not store anything.
+     */
+    public static ConflictVerdictStore disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param verdictFile The file that contains the verdicts.
+     * @param verify      If true, evaluate all conflicts and compare them with the stored verdicts.
+     */
+    public ConflictVerdictStore(final File verdictFile, final boolean verify) {
+        this.verdictFile = verdictFile;
+        this.verify = verify;
+    }
+
+    public boolean isEnabled() {
+        return verdictFile != null;
+    }
+
+    public boolean isVerify() {
+        return verify;
+    }
+
+    /**
+     * Number of conflicts whose state was not evaluated in this run, because it was stored by the last run or evaluated by another module of the same build.
+     */
+    public int getReusedCount() {
+        return reused.get();
+    }
+
+    /**
+     * Number of conflicts whose state was evaluated in this run.
+     */
+    public int getEvaluatedCount() {
+        return evaluated.get();
+    }
+
+    public List<String> getMismatches() {
+        return ImmutableList.copyOf(mismatches);
+    }
+
+    /**
+     * Loads the verdicts of the last run.
+     */
+    public void load() {
+        if (verdictFile == null || !verdictFile.isFile()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(verdictFile.toPath())),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final int separator = line.indexOf('\t');
+                if (separator > 0) {
+                    previousVerdicts.put(line.substring(separator + 1), ConflictState.valueOf(line.substring(0, separator)));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.debug(format("Could not read verdicts from %s", verdictFile), e);
+            previousVerdicts.clear();
+        }
+    }
+
+    /**
+     * Returns true if a verdict from the last run can be used for a conflict.
+     */
+    boolean hasVerdict(final ConflictType type, final String name, final Collection<File> elements) {
+        final Optional<String> key = getKey(type, name, elements);
+        return key.isPresent() && !verify && previousVerdicts.containsKey(key.get());
+    }
+
+    /**
+     * Returns the verdict from the last run for a conflict if none of its elements has changed. In verify mode, a stored verdict is never returned.
+     */
+    Optional<ConflictState> getVerdict(final ConflictType type, final String name, final Collection<File> elements) {
+        final Optional<String> key = getKey(type, name, elements);
+        if (!key.isPresent()) {
+            return Optional.empty();
+        }
+
+        final ConflictState previous = previousVerdicts.get(key.get());
+        if (previous == null || verify) {
+            return Optional.empty();
+        }
+
+        reused.incrementAndGet();
+        currentVerdicts.put(key.get(), previous);
+        return Optional.of(previous);
+    }
+
+    /**
+     * Records the verdict of a conflict that was evaluated in this run.
+     */
+    void putVerdict(final ConflictType type, final String name, final Collection<File> elements, final ConflictState state) {
+        checkNotNull(state, "state is null");
+
+        evaluated.incrementAndGet();
+        recordVerdict(type, name, elements, state);
+    }
+
+    /**
+     * Records the verdict of a conflict that another module of the same build has evaluated.
+     */
+    void putReusedVerdict(final ConflictType type, final String name, final Collection<File> elements, final ConflictState state) {
+        checkNotNull(state, "state is null");
+
+        reused.incrementAndGet();
+        recordVerdict(type, name, elements, state);
+    }
+
+    private void recordVerdict(final ConflictType type, final String name, final Collection<File> elements, final ConflictState state) {
+        final Optional<String> key = getKey(type, name, elements);
+        if (!key.isPresent()) {
+            return;
+        }
+
+        currentVerdicts.put(key.get(), state);
+
+        final ConflictState previous = previousVerdicts.get(key.get());
+        if (verify && previous != null && previous != state) {
+            mismatches.add(format("%s %s: stored %s, actual %s", type, name, previous, state));
+        }
+    }
+
+    /**
+     * Writes the verdicts of this run. Verdicts of conflicts that no longer exist are dropped.
+     */
+    public void store() throws IOException {
+        if (verdictFile == null) {
+            return;
+        }
+
+        final Path directory = verdictFile.getAbsoluteFile().getParentFile().toPath();
+        Files.createDirectories(directory);
+
+        final List<Map.Entry<String, ConflictState>> verdicts = new ArrayList<>(currentVerdicts.entrySet());
+        verdicts.sort(Map.Entry.comparingByKey());
+
+        final Path tempFile = Files.createTempFile(directory, verdictFile.getName(), ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+                for (final Map.Entry<String, ConflictState> verdict : verdicts) {
+                    writer.write(verdict.getValue().name());
+                    writer.write('\t');
+                    writer.write(verdict.getKey());
+                    writer.write('\n');
+                }
+            }
+            Files.move(tempFile, verdictFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private Optional<String> getKey(final ConflictType type, final String name, final Collection<File> elements) {
+        if (verdictFile == null) {
+            return Optional.empty();
+        }
+        return elementKeys.getKey(type, name, elements);
+    }
+}
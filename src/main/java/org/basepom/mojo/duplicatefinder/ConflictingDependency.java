@@ -32,16 +32,12 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
 import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
 import org.apache.maven.model.Dependency;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Captures the &lt;exceptions&gt; section from the plugin configuration.
  */
 public class ConflictingDependency {
 
-    private static final Logger LOG = LoggerFactory.getLogger(ConflictingDependency.class);
-
     private final Set<MavenCoordinates> conflictingDependencies = new LinkedHashSet<>();
     private final Set<String> classes = new HashSet<>();
     private final Set<String> packages = new HashSet<>();
@@ -49,6 +45,8 @@ public class ConflictingDependency {
     private Pattern[] matchingResources = new Pattern[0];
     private boolean currentProject = false;
     private boolean currentProjectIncluded = false;
+    private boolean bootClasspath = false;
+    private PatternProfiler patternProfiler = PatternProfiler.disabled();
 
     // Called by maven
     public void setConflictingDependencies(final Dependency... conflictingDependencies) throws InvalidVersionSpecificationException {
@@ -102,10 +100,12 @@ public class ConflictingDependency {
     }
 
     // Called by maven
-
-    @Deprecated
     public void setBootClasspath(final boolean bootClasspath) {
-        LOG.warn("<bootClasspath> attribute is deprecated and has no function!");
+        this.bootClasspath = bootClasspath;
+    }
+
+    boolean hasBootClasspath() {
+        return bootClasspath;
     }
 
     boolean isCurrentProjectIncluded() {
@@ -121,6 +121,30 @@ public class ConflictingDependency {
         }
     }
 
+    /**
+     * Returns a copy of this exception for a specific project. Used when checking multiple projects with the same configuration.
+     */
+    ConflictingDependency forProject(final MavenCoordinates projectMavenCoordinates) {
+        final ConflictingDependency copy = new ConflictingDependency();
+        copy.conflictingDependencies.addAll(conflictingDependencies);
+        copy.classes.addAll(classes);
+        copy.packages.addAll(packages);
+        copy.resources.addAll(resources);
+        copy.matchingResources = matchingResources;
+        copy.currentProject = currentProject;
+        copy.bootClasspath = bootClasspath;
+        copy.patternProfiler = patternProfiler;
+        copy.addProjectMavenCoordinates(projectMavenCoordinates);
+        return copy;
+    }
+
+    /**
+     * Sets the profiler that records the evaluations of the resource patterns.
+     */
+    void setPatternProfiler(final PatternProfiler patternProfiler) {
+        this.patternProfiler = checkNotNull(patternProfiler, "patternProfiler is null");
+    }
+
     List<MavenCoordinates> getDependencies() {
         return ImmutableList.copyOf(conflictingDependencies);
     }
@@ -168,6 +192,16 @@ public class ConflictingDependency {
         return false;
     }
 
+    /**
+     * Returns true if this exception covers conflicts between the given artifacts and the JDK. An exception without dependencies covers the conflicts of
+     * all artifacts with the JDK.
+     */
+    public boolean isForBootClasspathConflict(final Set<Artifact> artifacts) throws OverConstrainedVersionException {
+        checkNotNull(artifacts, "artifacts is null");
+
+        return bootClasspath && (conflictingDependencies.isEmpty() || isForArtifacts(artifacts));
+    }
+
     boolean isWildcard() {
         return classes.isEmpty() && packages.isEmpty() && resources.isEmpty() && matchingResources.length == 0;
     }
@@ -207,11 +241,18 @@ public class ConflictingDependency {
         }
 
         for (Pattern matchingResource : matchingResources) {
-            if (matchingResource.matcher(resourceAsRelative).matches()) {
+            if (matches(matchingResource, resourceAsRelative)) {
                 return true;
             }
         }
 
         return false;
     }
+
+    private boolean matches(final Pattern pattern, final String resource) {
+        if (patternProfiler.isEnabled()) {
+            return patternProfiler.getStatistics(PatternProfiler.EXCEPTION_RESOURCES, pattern).matches(resource);
+        }
+        return pattern.matcher(resource).matches();
+    }
 }
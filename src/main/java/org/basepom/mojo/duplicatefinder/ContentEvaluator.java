@@ -0,0 +1,436 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Cache;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Counter;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase;
+import org.basepom.mojo.duplicatefinder.FlightRecorderEvents.ContentHashEvent;
+import org.basepom.mojo.duplicatefinder.classpath.DuplicateListener;
+import org.basepom.mojo.duplicatefinder.classpath.JdkModules;
+import org.basepom.mojo.duplicatefinder.classpath.NestedArchives;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Content evaluation stage. Hashes classes and resources that exist in multiple classpath elements and determines whether their content differs.
+ * <p>
+ * Hashing starts as soon as the classpath scan reports a duplicate (see {@link DuplicateListener}), so most hashes are already available when the conflicts
+ * are evaluated. Every class or resource in a classpath element is only hashed once, even if it is part of multiple scopes.
+ * <p>
+ * This is the entry point for the conflict states of a {@link org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor}: pass the evaluator as
+ * duplicate listener when the index is created and call {@link #determineConflictState(ConflictType, String, Collection)} for its conflicts.
+ * <p>
+ * This class is thread safe.
+ */
+public final class ContentEvaluator implements DuplicateListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentEvaluator.class);
+
+    private static final HashFunction SHA_256 = Hashing.sha256();
+
+    private final ExecutorService executorService;
+    private final boolean prefetch;
+    private final ConflictVerdictStore verdictStore;
+    private final SessionConflictCache conflictCache;
+    private final ExecutionMetrics metrics;
+    private final ConcurrentMap<ContentKey, Future<HashCode>> hashes = new ConcurrentHashMap<>();
+
+    /**
+     * @param executorService The executor that reads and hashes content.
+     * @param prefetch        If true, start hashing as soon as a duplicate is found. Otherwise, content is only hashed when a conflict state is requested.
+     * @param verdictStore    Conflict states from the last run. Conflicts with a stored state are not hashed again.
+     * @param conflictCache   Conflict states of other modules in the same build. Conflicts that another module has evaluated are not hashed again.
+     * @param metrics         Records the hashing and evaluation times.
+     */
+    public ContentEvaluator(final ExecutorService executorService, final boolean prefetch, final ConflictVerdictStore verdictStore,
+            final SessionConflictCache conflictCache, final ExecutionMetrics metrics) {
+        this.executorService = checkNotNull(executorService, "executorService is null");
+        this.prefetch = prefetch;
+        this.verdictStore = checkNotNull(verdictStore, "verdictStore is null");
+        this.conflictCache = checkNotNull(conflictCache, "conflictCache is null");
+        this.metrics = checkNotNull(metrics, "metrics is null");
+    }
+
+    @Override
+    public void duplicateFound(final ConflictType type, final String name, final Collection<File> elements) {
+        if (!prefetch || hasCachedConflictState(type, name, elements)) {
+            return;
+        }
+
+        final String resourcePath = getResourcePath(type, name);
+        for (final File element : elements) {
+            getHash(element, resourcePath);
+        }
+    }
+
+    /**
+     * Drops the hashes of a classpath element, it may have changed.
+     */
+    @Override
+    public void elementRemoved(final File element) {
+        hashes.keySet().removeIf(key -> key.element.equals(element));
+    }
+
+    /**
+     * Starts hashing all conflicts that have no stored conflict state. Does nothing if hashing already started while the classpath was scanned.
+     */
+    public void prefetch(final ConflictType type, final Map<String, Collection<File>> conflicts) {
+        if (prefetch) {
+            return;
+        }
+
+        for (final Map.Entry<String, Collection<File>> conflict : conflicts.entrySet()) {
+            prefetch(type, conflict.getKey(), conflict.getValue());
+        }
+    }
+
+    /**
+     * Starts hashing a single conflict unless it has a stored conflict state. Does nothing if hashing already started while the classpath was scanned.
+     */
+    void prefetch(final ConflictType type, final String name, final Collection<File> elements) {
+        if (prefetch || verdictStore.hasVerdict(type, name, elements) || hasCachedConflictState(type, name, elements)) {
+            return;
+        }
+
+        final String resourcePath = getResourcePath(type, name);
+        for (final File element : elements) {
+            getHash(element, resourcePath);
+        }
+    }
+
+    /**
+     * Returns the stored conflict state from the last run if none of the elements has changed, or the conflict state from another module in the same build
+     * if it has the same conflict. Otherwise detects class/resource differences via SHA256 hash comparison.
+     */
+    public ConflictState determineConflictState(final ConflictType type, final String name, final Collection<File> elements) throws IOException {
+        final long startNanos = System.nanoTime();
+        metrics.cacheRequest(Cache.CONFLICT_STATE);
+        try {
+            return getConflictState(type, name, elements);
+        } finally {
+            metrics.addTime(Phase.EVALUATE, startNanos);
+        }
+    }
+
+    private ConflictState getConflictState(final ConflictType type, final String name, final Collection<File> elements) throws IOException {
+        final Optional<ConflictState> storedState = verdictStore.getVerdict(type, name, elements);
+        if (storedState.isPresent()) {
+            return storedState.get();
+        }
+
+        // In verify mode, every conflict is evaluated.
+        final Optional<ConflictState> cachedState = verdictStore.isVerify() ? Optional.empty() : conflictCache.getConflictState(type, name, elements);
+        if (cachedState.isPresent()) {
+            verdictStore.putReusedVerdict(type, name, elements, cachedState.get());
+            return cachedState.get();
+        }
+
+        metrics.cacheMiss(Cache.CONFLICT_STATE);
+        final ConflictState conflictState = evaluateConflictState(type, name, elements);
+        verdictStore.putVerdict(type, name, elements, conflictState);
+        conflictCache.putConflictState(type, name, elements, conflictState);
+        return conflictState;
+    }
+
+    private boolean hasCachedConflictState(final ConflictType type, final String name, final Collection<File> elements) {
+        return !verdictStore.isVerify() && conflictCache.hasConflictState(type, name, elements);
+    }
+
+    private ConflictState evaluateConflictState(final ConflictType type, final String name, final Iterable<File> elements) throws IOException {
+        File firstFile = null;
+        HashCode firstSHA256 = null;
+
+        final String resourcePath = getResourcePath(type, name);
+
+        for (final File element : elements) {
+            try {
+                final HashCode newSHA256 = getHash(element, resourcePath).get();
+
+                if (firstSHA256 == null) {
+                    // save sha256 hash from the first element
+                    firstSHA256 = newSHA256;
+                    firstFile = element;
+                } else if (!newSHA256.equals(firstSHA256)) {
+                    LOG.debug(format("Found different SHA256 hashes for elements %s in file %s and %s", resourcePath, firstFile, element));
+                    return ConflictState.CONFLICT_CONTENT_DIFFERENT;
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                final InterruptedIOException interrupted = new InterruptedIOException(format("Interrupted while reading %s from %s", resourcePath, element));
+                interrupted.initCause(e);
+                throw interrupted;
+            } catch (final ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    LOG.warn(format("Could not read content from file %s!", element), e.getCause());
+                } else {
+                    Throwables.throwIfUnchecked(e.getCause());
+                    throw new IOException(format("While reading %s from %s", resourcePath, element), e.getCause());
+                }
+            }
+        }
+
+        return ConflictState.CONFLICT_CONTENT_EQUAL;
+    }
+
+    /**
+     * Returns the names of all conflicts whose content is known to be different without hashing it. Classes and resources whose sizes or CRC checksums
+     * (from the archive directory) differ can not have the same content. Every archive is opened only once.
+     */
+    Set<String> findDifferentContent(final ConflictType type, final Map<String, Collection<File>> conflicts) {
+        checkNotNull(type, "type is null");
+        checkNotNull(conflicts, "conflicts is null");
+
+        final long startNanos = System.nanoTime();
+        try {
+            return findDifferentEntries(type, conflicts);
+        } finally {
+            metrics.addTime(Phase.EVALUATE, startNanos);
+        }
+    }
+
+    private static Set<String> findDifferentEntries(final ConflictType type, final Map<String, Collection<File>> conflicts) {
+        final Multimap<File, String> resourcePathsByElement = MultimapBuilder.hashKeys().arrayListValues().build();
+        for (final Map.Entry<String, Collection<File>> conflict : conflicts.entrySet()) {
+            final String resourcePath = getResourcePath(type, conflict.getKey());
+            for (final File element : conflict.getValue()) {
+                resourcePathsByElement.put(element, resourcePath);
+            }
+        }
+
+        final Map<ContentKey, EntryInfo> entryInfos = new HashMap<>();
+        for (final Map.Entry<File, Collection<String>> entry : resourcePathsByElement.asMap().entrySet()) {
+            readEntryInfos(entry.getKey(), entry.getValue(), entryInfos);
+        }
+
+        final ImmutableSet.Builder<String> builder = ImmutableSet.builder();
+        for (final Map.Entry<String, Collection<File>> conflict : conflicts.entrySet()) {
+            final String resourcePath = getResourcePath(type, conflict.getKey());
+            EntryInfo first = null;
+            for (final File element : conflict.getValue()) {
+                final EntryInfo entryInfo = entryInfos.get(new ContentKey(element, resourcePath));
+                if (entryInfo == null) {
+                    continue;
+                }
+                if (first == null) {
+                    first = entryInfo;
+                } else if (first.isDifferent(entryInfo)) {
+                    builder.add(conflict.getKey());
+                    break;
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    private static void readEntryInfos(final File element, final Collection<String> resourcePaths, final Map<ContentKey, EntryInfo> entryInfos) {
+        if (element.isDirectory()) {
+            for (final String resourcePath : resourcePaths) {
+                final File resourceFile = new File(element, resourcePath);
+                if (resourceFile.isFile()) {
+                    entryInfos.put(new ContentKey(element, resourcePath), new EntryInfo(resourceFile.length(), -1));
+                }
+            }
+        } else if (JdkModules.isJdkElement(element)) {
+            try {
+                // the module image has no checksums.
+                for (final Map.Entry<String, Long> entry : JdkModules.getEntrySizes(element, resourcePaths).entrySet()) {
+                    entryInfos.put(new ContentKey(element, entry.getKey()), new EntryInfo(entry.getValue(), -1));
+                }
+            } catch (final IOException e) {
+                LOG.debug(format("Could not read the modules of %s", element), e);
+            }
+        } else if (NestedArchives.isNested(element)) {
+            try {
+                for (final Map.Entry<String, ZipEntry> entry : NestedArchives.getEntries(element, resourcePaths).entrySet()) {
+                    entryInfos.put(new ContentKey(element, entry.getKey()), new EntryInfo(entry.getValue().getSize(), entry.getValue().getCrc()));
+                }
+            } catch (final IOException e) {
+                LOG.debug(format("Could not read archive directory of %s", element), e);
+            }
+        } else {
+            try (ZipFile zip = new ZipFile(element)) {
+                for (final String resourcePath : resourcePaths) {
+                    final ZipEntry zipEntry = zip.getEntry(resourcePath);
+                    if (zipEntry != null) {
+                        entryInfos.put(new ContentKey(element, resourcePath), new EntryInfo(zipEntry.getSize(), zipEntry.getCrc()));
+                    }
+                }
+            } catch (final IOException e) {
+                LOG.debug(format("Could not read archive directory of %s", element), e);
+            }
+        }
+    }
+
+    private Future<HashCode> getHash(final File element, final String resourcePath) {
+        final ContentKey key = new ContentKey(element, resourcePath);
+
+        Future<HashCode> hash = hashes.get(key);
+        if (hash == null) {
+            final FutureTask<HashCode> task = new FutureTask<>(() -> getSHA256OfElement(element, resourcePath, metrics));
+            hash = hashes.putIfAbsent(key, task);
+            if (hash == null) {
+                hash = task;
+                executorService.execute(task);
+            }
+        }
+        return hash;
+    }
+
+    private static String getResourcePath(final ConflictType type, final String name) {
+        return type == ConflictType.CLASS ? name.replace('.', '/') + ".class" : name;
+    }
+
+    /**
+     * Calculates the SHA256 Hash of a class in a file.
+     *
+     * @param file         the archive contains the class
+     * @param resourcePath the name of the class
+     * @param metrics      records the hashing time and the number of bytes read
+     * @return the SHA256 Hash
+     * @throws IOException if any error occurs on reading class in archive
+     */
+    private static HashCode getSHA256OfElement(final File file, final String resourcePath, final ExecutionMetrics metrics) throws IOException {
+        final ContentHashEvent event = new ContentHashEvent();
+        event.begin();
+        final long startNanos = System.nanoTime();
+
+        try (Closer closer = Closer.create()) {
+            InputStream in;
+
+            if (file.isDirectory()) {
+                final File resourceFile = new File(file, resourcePath);
+                in = closer.register(new BufferedInputStream(Files.newInputStream(resourceFile.toPath())));
+            } else if (JdkModules.isJdkElement(file)) {
+                in = closer.register(JdkModules.openEntry(file, resourcePath));
+            } else if (NestedArchives.isNested(file)) {
+                in = closer.register(NestedArchives.openEntry(file, resourcePath));
+            } else {
+                final ZipFile zip = new ZipFile(file);
+
+                closer.register(zip::close);
+
+                final ZipEntry zipEntry = zip.getEntry(resourcePath);
+
+                if (zipEntry == null) {
+                    throw new IOException(format("Could not find %s in archive %s", resourcePath, file));
+                }
+
+                in = zip.getInputStream(zipEntry);
+            }
+
+            final byte[] content = ByteStreams.toByteArray(in);
+            metrics.increment(Counter.ENTRIES_HASHED, 1);
+            metrics.increment(Counter.BYTES_READ, content.length);
+            final HashCode hashCode = SHA_256.newHasher().putBytes(content).hash();
+
+            if (event.shouldCommit()) {
+                event.file = file.getPath();
+                event.entry = resourcePath;
+                event.bytes = content.length;
+                event.commit();
+            }
+            return hashCode;
+        } finally {
+            metrics.addTime(Phase.HASH, startNanos);
+        }
+    }
+
+    /**
+     * Size and CRC of a class or resource. Either value is -1 if it is not known.
+     */
+    private static final class EntryInfo {
+
+        private final long size;
+        private final long crc;
+
+        private EntryInfo(final long size, final long crc) {
+            this.size = size;
+            this.crc = crc;
+        }
+
+        private boolean isDifferent(final EntryInfo other) {
+            return (size >= 0 && other.size >= 0 && size != other.size)
+                    || (crc >= 0 && other.crc >= 0 && crc != other.crc);
+        }
+    }
+
+    private static final class ContentKey {
+
+        private final File element;
+        private final String resourcePath;
+
+        private ContentKey(final File element, final String resourcePath) {
+            this.element = element;
+            this.resourcePath = resourcePath;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(element, resourcePath);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (o == null || o.getClass() != this.getClass()) {
+                return false;
+            }
+
+            if (o == this) {
+                return true;
+            }
+
+            final ContentKey that = (ContentKey) o;
+
+            return Objects.equals(this.element, that.element)
+                    && Objects.equals(this.resourcePath, that.resourcePath);
+        }
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.getOutputDirectory;
+import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.getTestOutputDirectory;
+
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase;
+import org.basepom.mojo.duplicatefinder.artifact.ArtifactFileResolver;
+import org.basepom.mojo.duplicatefinder.artifact.ArtifactFileResolverService;
+import org.basepom.mojo.duplicatefinder.artifact.MavenCoordinates;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathListingStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.ObjectArrays;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds duplicate classes/resources on the classpaths of all modules of a multi-module build in one pass.
+ * <p>
+ * All classpath elements of all modules and scopes are scanned into a single index. Every classpath element records the classpaths (module and scope)
+ * that contain it, so the conflicts of a classpath are the entries of the index that occur in at least two of its elements. A conflict between the same
+ * elements is evaluated only once, no matter how many modules share it.
+ */
+@Mojo(name = "aggregate", aggregator = true, requiresProject = true, threadSafe = true, requiresDependencyResolution = ResolutionScope.TEST)
+public final class DuplicateFinderAggregateMojo extends DuplicateFinderMojo {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DuplicateFinderAggregateMojo.class);
+
+    /**
+     * All projects of the current build.
+     */
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true)
+    public List<MavenProject> reactorProjects;
+
+    /**
+     * Output file for the consolidated result of all modules.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "${project.build.directory}/duplicate-finder-aggregate-result.xml", property = "duplicate-finder.aggregateResultFile")
+    public File aggregateResultFile;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            LOG.info("Skipping duplicate-finder execution!");
+            return;
+        }
+
+        configure();
+        jdkElement = getJdkElement();
+
+        if (failFast) {
+            LOG.warn("<failFast> is not supported by the aggregate goal and will be ignored!");
+        }
+        if (incremental) {
+            LOG.warn("<incremental> is not supported by the aggregate goal and will be ignored!");
+        }
+
+        final ExecutorService executorService = IoExecutors.newIoExecutor(threads > 0 ? threads : IoExecutors.defaultParallelism());
+
+        try {
+            final List<Module> modules = new ArrayList<>();
+            final List<ModuleClasspath> classpaths = new ArrayList<>();
+            final ArtifactFileResolverService resolverService = ArtifactFileResolverService.forSession(session);
+
+            for (final MavenProject reactorProject : reactorProjects) {
+                if (!includePomProjects && "pom".equals(reactorProject.getArtifact().getType())) {
+                    LOG.debug(format("Ignoring POM project %s", reactorProject.getId()));
+                    continue;
+                }
+
+                final long resolveStart = System.nanoTime();
+                final Module module = new Module(reactorProject, resolverService.createResolver(reactorProject, preferLocal), getExceptions(reactorProject));
+                modules.add(module);
+
+                if (checkCompileClasspath) {
+                    classpaths.add(new ModuleClasspath(module, "compile", COMPILE_SCOPE, getProjectFolders(getOutputDirectory(reactorProject))));
+                }
+                if (checkRuntimeClasspath) {
+                    classpaths.add(new ModuleClasspath(module, "runtime", RUNTIME_SCOPE, getProjectFolders(getOutputDirectory(reactorProject))));
+                }
+                if (checkTestClasspath) {
+                    classpaths.add(new ModuleClasspath(module, "test", TEST_SCOPE,
+                            getProjectFolders(getOutputDirectory(reactorProject), getTestOutputDirectory(reactorProject))));
+                }
+                if (checkPackagedClasspath) {
+                    final List<File> packagedElements = getPackagedClasspath(reactorProject);
+                    if (!packagedElements.isEmpty()) {
+                        classpaths.add(new ModuleClasspath(module, "packaged", null, getProjectFolders(packagedElements.toArray(new File[0]))));
+                    }
+                }
+                metrics.addTime(Phase.RESOLVE, resolveStart);
+            }
+
+            // Content is only hashed for conflicts that exist within a classpath, not for entries that are shared between unrelated modules.
+            final ContentEvaluator contentEvaluator = new ContentEvaluator(executorService, false, ConflictVerdictStore.disabled(), conflictCache, metrics);
+            final ClasspathDescriptor index = createIndex(classpaths, executorService, contentEvaluator);
+
+            // The classpaths that contain each element, as a bit mask of classpath indices.
+            final Map<File, BitSet> memberships = new HashMap<>();
+            for (int i = 0; i < classpaths.size(); i++) {
+                for (final File element : classpaths.get(i).getElements()) {
+                    memberships.computeIfAbsent(element, k -> new BitSet()).set(i);
+                }
+            }
+
+            int distinctConflictCount = 0;
+            for (final ConflictType type : ConflictType.values()) {
+                final long detectStart = System.nanoTime();
+                final List<DistinctConflict> conflicts = new ArrayList<>();
+                for (final Map.Entry<String, Collection<File>> entry : index.getClasspathElementLocations(type).entrySet()) {
+                    if (entry.getValue().size() > 1) {
+                        findConflicts(entry.getKey(), entry.getValue(), memberships, conflicts);
+                    }
+                }
+                metrics.addTime(Phase.DETECT, detectStart);
+
+                for (final DistinctConflict conflict : conflicts) {
+                    contentEvaluator.prefetch(type, conflict.name, conflict.elements);
+                }
+
+                for (final DistinctConflict conflict : conflicts) {
+                    final ConflictState conflictState = contentEvaluator.determineConflictState(type, conflict.name, conflict.elements);
+                    for (int i = conflict.classpaths.nextSetBit(0); i >= 0; i = conflict.classpaths.nextSetBit(i + 1)) {
+                        classpaths.get(i).addConflict(type, conflict.name, conflict.elements, conflictState);
+                    }
+                }
+                distinctConflictCount += conflicts.size();
+            }
+
+            LOG.info(format("Checked %d classpaths of %d modules with %d classpath elements, evaluated %d distinct conflicts",
+                    classpaths.size(), modules.size(), memberships.size(), distinctConflictCount));
+
+            final long reportStart = System.nanoTime();
+            final List<String> failedModules = reportResults(modules, classpaths);
+            metrics.addTime(Phase.REPORT, reportStart);
+
+            logMetrics(metrics, printMetrics);
+
+            if (!failedModules.isEmpty()) {
+                for (final String failedModule : failedModules) {
+                    LOG.warn(format("Found duplicate classes/resources in %s", failedModule));
+                }
+                throw new MojoExecutionException(format("Found duplicate classes/resources in %d modules!", failedModules.size()));
+            }
+        } catch (final DependencyResolutionRequiredException e) {
+            throw new MojoFailureException("Could not resolve dependencies", e);
+        } catch (final OverConstrainedVersionException e) {
+            throw new MojoFailureException("Version too constrained", e);
+        } catch (final IOException e) {
+            throw new MojoExecutionException("While loading artifacts", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the exceptions of the configuration for a module. Exceptions that include the current project refer to the module.
+     */
+    private List<ConflictingDependency> getExceptions(final MavenProject module) throws OverConstrainedVersionException {
+        checkState(conflictingDependencies != null, "conflictingDependencies is null");
+
+        final MavenCoordinates moduleCoordinates = new MavenCoordinates(module.getArtifact());
+        final ImmutableList.Builder<ConflictingDependency> builder = ImmutableList.builder();
+        for (final ConflictingDependency conflictingDependency : conflictingDependencies) {
+            builder.add(conflictingDependency.forProject(moduleCoordinates));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the folders that are added to a module classpath. The JDK is checked like a project folder, it is part of every classpath and only scanned
+     * once.
+     */
+    private File[] getProjectFolders(final File... projectFolders) {
+        return jdkElement == null ? projectFolders : ObjectArrays.concat(jdkElement, projectFolders);
+    }
+
+    /**
+     * Scans the elements of all classpaths into a single index. Every element is scanned once, even if it is on the classpath of many modules.
+     */
+    private ClasspathDescriptor createIndex(final List<ModuleClasspath> classpaths, final ExecutorService executorService,
+            final ContentEvaluator contentEvaluator) throws MojoExecutionException {
+        final Multimap<File, Artifact> fileToArtifactMap = LinkedHashMultimap.create();
+        final Set<File> projectFolders = new LinkedHashSet<>();
+
+        for (final ModuleClasspath classpath : classpaths) {
+            fileToArtifactMap.putAll(classpath.fileToArtifactMap);
+            projectFolders.addAll(classpath.projectFolders);
+        }
+
+        final ClasspathListingStore listingStore = getIndexListingStore();
+
+        return DuplicateFinderMojo.createClasspathDescriptor(fileToArtifactMap,
+                getIgnoredResourcePatterns(),
+                getIgnoredClassPatterns(),
+                Arrays.asList(ignoredDependencies),
+                useDefaultResourceIgnoreList,
+                useDefaultClassIgnoreList,
+                jdkElement == null ? listingStore : listingStore.withJdkDirectory(jdkIndexDirectory),
+                indexBudget,
+                executorService,
+                contentEvaluator,
+                metrics,
+                projectFolders.toArray(new File[0]));
+    }
+
+    /**
+     * Finds the classpaths in which an entry of the index is a conflict. Classpaths that contain the same elements share a single conflict.
+     */
+    private static void findConflicts(final String name, final Collection<File> elements, final Map<File, BitSet> memberships,
+            final List<DistinctConflict> conflicts) {
+        // classpaths that contain at least one (seen) and at least two (conflicting) of the elements.
+        final BitSet seen = new BitSet();
+        final BitSet conflicting = new BitSet();
+
+        for (final File element : elements) {
+            final BitSet membership = memberships.get(element);
+            if (membership != null) {
+                final BitSet both = (BitSet) membership.clone();
+                both.and(seen);
+                conflicting.or(both);
+                seen.or(membership);
+            }
+        }
+
+        if (conflicting.isEmpty()) {
+            return;
+        }
+
+        final Map<List<File>, BitSet> classpathsByElements = new LinkedHashMap<>();
+        for (int i = conflicting.nextSetBit(0); i >= 0; i = conflicting.nextSetBit(i + 1)) {
+            final ImmutableList.Builder<File> builder = ImmutableList.builder();
+            for (final File element : elements) {
+                final BitSet membership = memberships.get(element);
+                if (membership != null && membership.get(i)) {
+                    builder.add(element);
+                }
+            }
+            classpathsByElements.computeIfAbsent(builder.build(), k -> new BitSet()).set(i);
+        }
+
+        for (final Map.Entry<List<File>, BitSet> entry : classpathsByElements.entrySet()) {
+            conflicts.add(new DistinctConflict(name, entry.getKey(), entry.getValue()));
+        }
+    }
+
+    /**
+     * Reports the results of every module to the build log and the consolidated result file.
+     *
+     * @return The modules that failed the check.
+     */
+    private List<String> reportResults(final List<Module> modules, final List<ModuleClasspath> classpaths)
+            throws MojoExecutionException, OverConstrainedVersionException {
+        AggregateResultFileSink resultFileSink = null;
+        if (useResultFile) {
+            checkState(aggregateResultFile != null, "aggregateResultFile must be set if useResultFile is true");
+            resultFileSink = new AggregateResultFileSink(aggregateResultFile, project, this::addConfiguration, resultFileIndent, metrics);
+        }
+
+        try {
+            if (resultFileSink != null) {
+                resultFileSink.start();
+            }
+
+            final LogResultSink logResultSink = new LogResultSink(LOG, printState, maxReportedConflicts, useResultFile);
+            final ImmutableList.Builder<String> failedModules = ImmutableList.builder();
+
+            for (final Module module : modules) {
+                LOG.info(format("Results for %s:", module.project.getId()));
+
+                final Map<String, ResultCollector> resultCollectors = new LinkedHashMap<>();
+                boolean failed = false;
+                for (final ModuleClasspath classpath : classpaths) {
+                    if (classpath.module == module) {
+                        resultCollectors.put(classpath.name, classpath.resultCollector);
+                        logResultSink.addResult(format("%s %s", module.project.getArtifactId(), classpath.name), classpath.resultCollector, null);
+                        failed |= classpath.resultCollector.isFailed();
+                    }
+                }
+
+                if (resultFileSink != null) {
+                    resultFileSink.addModule(module.project, resultCollectors);
+                }
+
+                if (failed) {
+                    failedModules.add(module.project.getId());
+                }
+            }
+
+            if (resultFileSink != null) {
+                resultFileSink.finish();
+            }
+
+            return failedModules.build();
+        } finally {
+            if (resultFileSink != null) {
+                resultFileSink.abort();
+            }
+        }
+    }
+
+    private static final class Module {
+
+        private final MavenProject project;
+        private final ArtifactFileResolver artifactFileResolver;
+        private final List<ConflictingDependency> exceptions;
+
+        private Module(final MavenProject project, final ArtifactFileResolver artifactFileResolver, final List<ConflictingDependency> exceptions) {
+            this.project = checkNotNull(project, "project is null");
+            this.artifactFileResolver = checkNotNull(artifactFileResolver, "artifactFileResolver is null");
+            this.exceptions = checkNotNull(exceptions, "exceptions is null");
+        }
+    }
+
+    /**
+     * A classpath scope of a module.
+     */
+    private final class ModuleClasspath {
+
+        private final Module module;
+        private final String name;
+        private final Multimap<File, Artifact> fileToArtifactMap;
+        private final List<File> projectFolders;
+        private final ResultCollector resultCollector = createResultCollector();
+
+        /**
+         * @param scopes The scopes of the artifacts on the classpath, empty for all scopes or null for a classpath without Maven artifacts.
+         */
+        private ModuleClasspath(final Module module, final String name, final Set<String> scopes, final File... projectFolders) {
+            this.module = module;
+            this.name = name;
+            this.fileToArtifactMap = scopes == null ? ImmutableMultimap.of() : module.artifactFileResolver.resolveArtifactsForScopes(scopes);
+            this.projectFolders = Arrays.asList(projectFolders);
+        }
+
+        private Set<File> getElements() {
+            final Set<File> elements = new LinkedHashSet<>(fileToArtifactMap.keySet());
+            elements.addAll(projectFolders);
+            return elements;
+        }
+
+        private void addConflict(final ConflictType type, final String conflictName, final Collection<File> elements, final ConflictState conflictState)
+                throws OverConstrainedVersionException {
+            final long resolveStart = System.nanoTime();
+            final SortedSet<ClasspathElement> conflictingClasspathElements = conflictCache.getClasspathElements(elements,
+                    module.artifactFileResolver::getClasspathElementsForElements);
+            metrics.addTime(Phase.RESOLVE, resolveStart);
+
+            final long exceptionsStart = System.nanoTime();
+            final boolean excepted = isExcepted(module.project, module.exceptions, type, conflictName, conflictingClasspathElements);
+            metrics.addTime(Phase.EXCEPTIONS, exceptionsStart);
+            resultCollector.addConflict(type, conflictName, conflictingClasspathElements, excepted, conflictState);
+        }
+    }
+
+    /**
+     * A class or resource that exists in the same elements on one or more classpaths.
+     */
+    private static final class DistinctConflict {
+
+        private final String name;
+        private final List<File> elements;
+        private final BitSet classpaths;
+
+        private DistinctConflict(final String name, final List<File> elements, final BitSet classpaths) {
+            this.name = name;
+            this.elements = elements;
+            this.classpaths = classpaths;
+        }
+    }
+}
@@ -0,0 +1,397 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static java.lang.String.format;
+import static org.basepom.mojo.duplicatefinder.ConflictState.CONFLICT_CONTENT_DIFFERENT;
+import static org.basepom.mojo.duplicatefinder.ConflictState.CONFLICT_CONTENT_EQUAL;
+
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArchive;
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathBootClasspathElement;
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathLocalFolder;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathListingStore;
+import org.basepom.mojo.duplicatefinder.classpath.IndexBudget;
+import org.basepom.mojo.duplicatefinder.classpath.JdkModules;
+import org.basepom.mojo.duplicatefinder.classpath.NestedArchives;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSortedSet;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Command line runner for the duplicate check. Checks a plain classpath (e.g. the <code>-cp</code> string of an application, or a folder of jars) without
+ * Maven, using the same scanning, duplicate detection and conflict evaluation as the plugin. With an index folder, archive listings and conflict states
+ * are kept between runs, so that only changed archives are scanned and only changed conflicts are hashed again.
+ * <p>
+ * This class must not use any Maven classes. The command line jar (see the <code>cli</code> folder) does not contain them.
+ */
+public final class DuplicateFinderCli {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DuplicateFinderCli.class);
+
+    /** No conflict that fails the check was found. */
+    static final int EXIT_OK = 0;
+    /** At least one conflict fails the check. */
+    static final int EXIT_CONFLICTS = 1;
+    /** Invalid arguments, or the classpath could not be read. */
+    static final int EXIT_ERROR = 2;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: duplicate-finder [options] [<element>...]",
+            "",
+            "Checks a classpath for duplicate classes and resources. Elements are jars or folders. An element that ends with '*'",
+            "stands for all jars in its folder, like on the java command line.",
+            "",
+            "Options:",
+            "  -cp, --classpath <path>       Classpath elements, separated by '" + File.pathSeparator + "'. May be repeated.",
+            "  --index <folder>              Keep archive listings and conflict states in this folder between runs.",
+            "  --nested                      Check the jars and class folders inside WARs, EARs and Spring Boot jars instead of the archives.",
+            "  --jdk                         Also check for duplicates with the classes of the JDK that runs the check.",
+            "  --jdk-home <folder>           Also check for duplicates with the classes of the JDK (Java 9 or later) in this folder.",
+            "  --ignore-resource <pattern>   Regular expression for resources that are ignored. May be repeated.",
+            "  --ignore-class <pattern>      Regular expression for classes that are ignored. May be repeated.",
+            "  --no-default-ignores          Do not use the default lists of ignored resources and classes.",
+            "  --print-equal                 Also report conflicts whose content is equal.",
+            "  --fail-on-equal               Fail on any conflict, even if the content is equal.",
+            "  --no-fail                     Report conflicts, but never fail.",
+            "  --threads <count>             Number of threads that read archives and hash content.",
+            "  --heap-budget <megabytes>     Move the classpath index to memory-mapped files if it needs more heap (default: 1/4 of the heap).",
+            "  --spill-dir <folder>          Folder for the memory-mapped index files (default: the index folder or the temp folder).",
+            "  --metrics                     Print timings and counters of the check.",
+            "  -h, --help                    Print this message.",
+            "",
+            "Exit status: " + EXIT_OK + " if no conflict fails the check, " + EXIT_CONFLICTS + " if a conflict fails the check, " + EXIT_ERROR
+                    + " on errors.");
+
+    private DuplicateFinderCli() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    @SuppressFBWarnings("DM_EXIT")
+    public static void main(final String... args) {
+        System.exit(run(System.err, args));
+    }
+
+    /**
+     * Runs the check and returns the exit status. Usage and error messages are written to <i>err</i>, the results to the log.
+     */
+    static int run(final PrintStream err, final String... args) {
+        final Options options;
+        try {
+            options = Options.parse(args);
+        } catch (final IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return EXIT_ERROR;
+        }
+
+        if (options.help) {
+            err.println(USAGE);
+            return EXIT_OK;
+        }
+
+        try {
+            return check(options);
+        } catch (final IllegalArgumentException | IOException e) {
+            err.println(format("Duplicate check failed: %s", e.getMessage()));
+            LOG.debug("Duplicate check failed", e);
+            return EXIT_ERROR;
+        }
+    }
+
+    private static int check(final Options options) throws IOException {
+        final List<File> elements = options.nested ? expandNestedArchives(expandElements(options.elements)) : expandElements(options.elements);
+        if (elements.isEmpty()) {
+            throw new IllegalArgumentException("No classpath elements given!");
+        }
+
+        final File jdkElement = options.getJdkElement();
+
+        final ExecutionMetrics metrics = new ExecutionMetrics();
+
+        ClasspathListingStore listingStore;
+        final ConflictVerdictStore verdictStore;
+        if (options.indexFolder != null) {
+            listingStore = new ClasspathListingStore(new File(options.indexFolder, "elements"), false);
+            if (jdkElement != null) {
+                listingStore = listingStore.withJdkDirectory(new File(options.indexFolder, "jdk"));
+            }
+            verdictStore = new ConflictVerdictStore(new File(options.indexFolder, "verdicts.gz"), false);
+            verdictStore.load();
+        } else {
+            listingStore = ClasspathListingStore.disabled();
+            verdictStore = ConflictVerdictStore.disabled();
+        }
+
+        final ExecutorService executorService = IoExecutors.newIoExecutor(options.threads > 0 ? options.threads : IoExecutors.defaultParallelism());
+        try {
+            final ContentEvaluator contentEvaluator = new ContentEvaluator(executorService, true, verdictStore, SessionConflictCache.disabled(), metrics);
+
+            final ClasspathDescriptor classpathDescriptor = ClasspathDescriptor.createClasspathDescriptor(
+                    jdkElement == null ? elements : ImmutableList.<File>builder().add(jdkElement).addAll(elements).build(),
+                    options.ignoredResourcePatterns,
+                    options.ignoredClassPatterns,
+                    options.useDefaultIgnoreLists,
+                    options.useDefaultIgnoreLists,
+                    listingStore,
+                    options.getIndexBudget(),
+                    executorService,
+                    contentEvaluator,
+                    metrics);
+
+            final ResultCollector resultCollector = new ResultCollector(options.getPrintState(), options.getFailState(), false);
+            final Map<Set<File>, SortedSet<ClasspathElement>> classpathElements = new HashMap<>();
+
+            for (final ConflictType type : ConflictType.values()) {
+                for (final Map.Entry<String, Collection<File>> entry : classpathDescriptor.getConflicts(type).entrySet()) {
+                    final Collection<File> files = entry.getValue();
+                    // Conflicts between the same elements share the element set, so that the conflict name is only built once.
+                    final SortedSet<ClasspathElement> conflictingClasspathElements = classpathElements.computeIfAbsent(ImmutableSet.copyOf(files),
+                            DuplicateFinderCli::getClasspathElements);
+                    final ConflictState conflictState = contentEvaluator.determineConflictState(type, entry.getKey(), files);
+                    resultCollector.addConflict(type, entry.getKey(), conflictingClasspathElements, false, conflictState);
+                }
+            }
+
+            new LogResultSink(LOG, options.getPrintState(), 0, false).addResult("command line", resultCollector, classpathDescriptor);
+
+            if (options.indexFolder != null) {
+                verdictStore.store();
+                final int removed = listingStore.prune();
+                LOG.info(format("Index: %d archives unchanged, %d added or changed, %d removed; %d conflicts unchanged, %d evaluated",
+                        listingStore.getReusedCount(), listingStore.getScannedCount(), removed, verdictStore.getReusedCount(),
+                        verdictStore.getEvaluatedCount()));
+            }
+
+            if (options.printMetrics) {
+                metrics.getSummary().forEach(LOG::info);
+            }
+
+            LOG.info(format("Checked %d classpath elements, found %d conflicts.", elements.size(), resultCollector.getConflictCount()));
+            return resultCollector.isFailed() ? EXIT_CONFLICTS : EXIT_OK;
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static SortedSet<ClasspathElement> getClasspathElements(final Set<File> files) {
+        final ImmutableSortedSet.Builder<ClasspathElement> builder = ImmutableSortedSet.naturalOrder();
+        for (final File file : files) {
+            if (file.isDirectory()) {
+                builder.add(new ClasspathLocalFolder(file));
+            } else if (JdkModules.isJdkElement(file)) {
+                builder.add(new ClasspathBootClasspathElement(file));
+            } else {
+                builder.add(new ClasspathArchive(file));
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Replaces WARs, EARs and Spring Boot jars with the jars and class folders inside of them.
+     */
+    static List<File> expandNestedArchives(final List<File> elements) throws IOException {
+        final ImmutableList.Builder<File> builder = ImmutableList.builder();
+        for (final File element : elements) {
+            builder.addAll(NestedArchives.expand(element));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Expands elements that end with '*' to the jars in their folder, in name order. All other elements are returned as they are.
+     */
+    static List<File> expandElements(final List<String> elements) {
+        final ImmutableList.Builder<File> builder = ImmutableList.builder();
+        for (final String element : elements) {
+            if (element.equals("*") || element.endsWith(File.separator + "*") || element.endsWith("/*")) {
+                final File folder = new File(element.substring(0, element.length() - 1));
+                final File[] jars = folder.getAbsoluteFile().listFiles(file -> file.isFile() && file.getName().toLowerCase(Locale.ROOT).endsWith(".jar"));
+                if (jars == null) {
+                    throw new IllegalArgumentException(format("'%s' is not a folder!", folder));
+                }
+                Arrays.sort(jars);
+                builder.add(jars);
+            } else {
+                builder.add(new File(element));
+            }
+        }
+        return builder.build();
+    }
+
+    private static final class Options {
+
+        private final List<String> elements = new ArrayList<>();
+        private final List<String> ignoredResourcePatterns = new ArrayList<>();
+        private final List<String> ignoredClassPatterns = new ArrayList<>();
+        private File indexFolder = null;
+        private boolean useDefaultIgnoreLists = true;
+        private boolean printEqual = false;
+        private boolean failOnEqual = false;
+        private boolean noFail = false;
+        private boolean printMetrics = false;
+        private boolean nested = false;
+        private boolean jdk = false;
+        private File jdkHome = null;
+        private boolean help = false;
+        private int threads = 0;
+        private int heapBudget = 0;
+        private File spillFolder = null;
+
+        private static Options parse(final String... args) {
+            final Options options = new Options();
+            for (int i = 0; i < args.length; i++) {
+                final String arg = args[i];
+                switch (arg) {
+                    case "-cp":
+                    case "--classpath":
+                        Splitter.on(File.pathSeparatorChar).omitEmptyStrings().split(getValue(args, ++i, arg)).forEach(options.elements::add);
+                        break;
+                    case "--index":
+                        options.indexFolder = new File(getValue(args, ++i, arg));
+                        break;
+                    case "--ignore-resource":
+                        options.ignoredResourcePatterns.add(getValue(args, ++i, arg));
+                        break;
+                    case "--ignore-class":
+                        options.ignoredClassPatterns.add(getValue(args, ++i, arg));
+                        break;
+                    case "--no-default-ignores":
+                        options.useDefaultIgnoreLists = false;
+                        break;
+                    case "--print-equal":
+                        options.printEqual = true;
+                        break;
+                    case "--fail-on-equal":
+                        options.failOnEqual = true;
+                        break;
+                    case "--no-fail":
+                        options.noFail = true;
+                        break;
+                    case "--threads":
+                        options.threads = parseThreads(getValue(args, ++i, arg));
+                        break;
+                    case "--heap-budget":
+                        options.heapBudget = parseHeapBudget(getValue(args, ++i, arg));
+                        break;
+                    case "--spill-dir":
+                        options.spillFolder = new File(getValue(args, ++i, arg));
+                        break;
+                    case "--metrics":
+                        options.printMetrics = true;
+                        break;
+                    case "--nested":
+                        options.nested = true;
+                        break;
+                    case "--jdk":
+                        options.jdk = true;
+                        break;
+                    case "--jdk-home":
+                        options.jdk = true;
+                        options.jdkHome = new File(getValue(args, ++i, arg));
+                        break;
+                    case "-h":
+                    case "--help":
+                        options.help = true;
+                        break;
+                    default:
+                        if (arg.startsWith("-")) {
+                            throw new IllegalArgumentException(format("Unknown option '%s'!", arg));
+                        }
+                        options.elements.add(arg);
+                }
+            }
+            return options;
+        }
+
+        private static String getValue(final String[] args, final int index, final String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException(format("Option '%s' needs a value!", option));
+            }
+            return args[index];
+        }
+
+        private static int parseThreads(final String value) {
+            try {
+                final int threads = Integer.parseInt(value);
+                if (threads < 1) {
+                    throw new IllegalArgumentException(format("Thread count must be positive, not %d!", threads));
+                }
+                return threads;
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(format("Thread count '%s' is not a number!", value), e);
+            }
+        }
+
+        private static int parseHeapBudget(final String value) {
+            try {
+                final int heapBudget = Integer.parseInt(value);
+                if (heapBudget < 1) {
+                    throw new IllegalArgumentException(format("Heap budget must be positive, not %d!", heapBudget));
+                }
+                return heapBudget;
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(format("Heap budget '%s' is not a number!", value), e);
+            }
+        }
+
+        private IndexBudget getIndexBudget() {
+            File spillDirectory = spillFolder;
+            if (spillDirectory == null) {
+                spillDirectory = indexFolder == null ? new File(System.getProperty("java.io.tmpdir")) : new File(indexFolder, "spill");
+            }
+            return heapBudget > 0 ? new IndexBudget(heapBudget * 1024L * 1024L, spillDirectory) : IndexBudget.defaultBudget(spillDirectory);
+        }
+
+        private File getJdkElement() {
+            if (!jdk) {
+                return null;
+            }
+            return jdkHome == null ? JdkModules.getRunningJdkElement() : JdkModules.getJdkElement(jdkHome);
+        }
+
+        private EnumSet<ConflictState> getPrintState() {
+            return printEqual || failOnEqual ? EnumSet.of(CONFLICT_CONTENT_EQUAL, CONFLICT_CONTENT_DIFFERENT) : EnumSet.of(CONFLICT_CONTENT_DIFFERENT);
+        }
+
+        private EnumSet<ConflictState> getFailState() {
+            if (noFail) {
+                return EnumSet.noneOf(ConflictState.class);
+            }
+            return failOnEqual ? EnumSet.of(CONFLICT_CONTENT_EQUAL, CONFLICT_CONTENT_DIFFERENT) : EnumSet.of(CONFLICT_CONTENT_DIFFERENT);
+        }
+    }
+}
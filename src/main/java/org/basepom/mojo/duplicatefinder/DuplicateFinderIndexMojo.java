@@ -0,0 +1,227 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathListingStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import com.google.common.base.Strings;
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scans archives ahead of a check and stores their listings in an index directory. The check and aggregate goals read the listings from the same
+ * directory (see <code>indexDirectory</code>) and only scan archives that are not in the index or have changed since they were indexed.
+ * <p>
+ * The archives are either all jars of a local repository or the resolved dependencies of all projects of the current build.
+ */
+@Mojo(name = "index", aggregator = true, requiresProject = false, threadSafe = true, requiresDependencyResolution = ResolutionScope.TEST)
+public final class DuplicateFinderIndexMojo extends AbstractMojo {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DuplicateFinderIndexMojo.class);
+
+    static final String SOURCE_REPOSITORY = "repository";
+    static final String SOURCE_REACTOR = "reactor";
+
+    /**
+     * All projects of the current build.
+     */
+    @Parameter(defaultValue = "${reactorProjects}", readonly = true)
+    public List<MavenProject> reactorProjects;
+
+    /**
+     * The folder that keeps the listings. Must be the same folder as the <code>indexDirectory</code> of the check.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(property = "duplicate-finder.indexDirectory", required = true)
+    public File indexDirectory;
+
+    /**
+     * The archives that are indexed. <code>repository</code> indexes all jars in <code>localRepositoryDirectory</code>, <code>reactor</code> indexes the
+     * resolved dependencies of all projects of the current build.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = SOURCE_REPOSITORY, property = "duplicate-finder.indexSource")
+    public String indexSource = SOURCE_REPOSITORY;
+
+    /**
+     * The local repository that is indexed if <code>indexSource</code> is <code>repository</code>.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "${settings.localRepository}", property = "duplicate-finder.localRepositoryDirectory")
+    public File localRepositoryDirectory;
+
+    /**
+     * Only scan archives that have no listing in the index or that have changed since they were indexed. Otherwise, all archives are scanned again.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.indexMissingOnly")
+    public boolean indexMissingOnly = false;
+
+    /**
+     * Number of threads that scan archives. A value of 0 selects a default based on the number of CPU cores.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "0", property = "duplicate-finder.threads")
+    public int threads = 0;
+
+    /**
+     * Print the timings and counters of the execution.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.printMetrics")
+    public boolean printMetrics = false;
+
+    /**
+     * Skips the plugin execution.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.skip")
+    public boolean skip = false;
+
+    @Override
+    public void execute() throws MojoExecutionException {
+        if (skip) {
+            LOG.info("Skipping duplicate-finder execution!");
+            return;
+        }
+
+        final boolean repository = isRepositorySource();
+        final ExecutionMetrics metrics = new ExecutionMetrics();
+        final ClasspathListingStore listingStore = new ClasspathListingStore(indexDirectory, false);
+        final ExecutorService executorService = IoExecutors.newIoExecutor(threads > 0 ? threads : IoExecutors.defaultParallelism());
+
+        try {
+            final Set<File> archives = repository ? findRepositoryArchives() : findReactorArchives();
+            LOG.info(format("Indexing %d archives into %s", archives.size(), indexDirectory));
+
+            final List<Future<Boolean>> futures = new ArrayList<>(archives.size());
+            for (final File archive : archives) {
+                futures.add(executorService.submit(() -> listingStore.index(archive, !indexMissingOnly, metrics)));
+            }
+
+            int failed = 0;
+            int index = 0;
+            for (final File archive : archives) {
+                try {
+                    futures.get(index++).get();
+                } catch (final ExecutionException e) {
+                    // A broken archive in the local repository must not stop the indexing of all other archives.
+                    LOG.warn(format("Could not index '%s': %s", archive, e.getCause().getMessage()));
+                    LOG.debug(format("While indexing '%s'", archive), e.getCause());
+                    failed++;
+                }
+            }
+
+            // Listings of archives that are no longer in the local repository are removed. The index directory is shared with the check, which adds
+            // listings of other archives (e.g. project jars or jars inside a WAR), so only listings of archives in the local repository are pruned.
+            final int removed = repository ? listingStore.prune(localRepositoryDirectory.getCanonicalFile()) : 0;
+
+            LOG.info(format("Indexed %d archives (%d scanned, %d unchanged, %d failed), removed %d listings",
+                    archives.size(), listingStore.getScannedCount(), listingStore.getReusedCount(), failed, removed));
+            DuplicateFinderMojo.logMetrics(metrics, printMetrics);
+        } catch (final IOException e) {
+            throw new MojoExecutionException(format("While indexing into %s", indexDirectory), e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while indexing", e);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private boolean isRepositorySource() throws MojoExecutionException {
+        switch (Strings.nullToEmpty(indexSource).toLowerCase(Locale.ROOT)) {
+            case SOURCE_REPOSITORY:
+                return true;
+            case SOURCE_REACTOR:
+                return false;
+            default:
+                throw new MojoExecutionException(format("Unknown index source '%s', must be '%s' or '%s'!", indexSource, SOURCE_REPOSITORY, SOURCE_REACTOR));
+        }
+    }
+
+    /**
+     * Returns all jars of the local repository. Source and javadoc jars are never on a classpath and are skipped.
+     * <p>
+     * The check looks up the listings of artifacts by their canonical path, so the archives are indexed by their canonical path as well, e.g. if the local
+     * repository is a symbolic link.
+     */
+    private Set<File> findRepositoryArchives() throws MojoExecutionException, IOException {
+        if (localRepositoryDirectory == null || !localRepositoryDirectory.isDirectory()) {
+            throw new MojoExecutionException(format("Local repository '%s' does not exist!", localRepositoryDirectory));
+        }
+
+        final Set<File> archives = new TreeSet<>();
+        // a symbolic link is not followed when the walk starts at it.
+        try (Stream<Path> paths = Files.walk(localRepositoryDirectory.getCanonicalFile().toPath())) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                if (isClasspathJar(path.getFileName().toString()) && Files.isRegularFile(path)) {
+                    archives.add(path.toFile().getCanonicalFile());
+                }
+            }
+        }
+        return archives;
+    }
+
+    /**
+     * Returns the resolved dependencies of all projects of the current build. Project folders are not indexed, they are always scanned.
+     */
+    private Set<File> findReactorArchives() throws IOException {
+        final Set<File> archives = new TreeSet<>();
+        for (final MavenProject reactorProject : reactorProjects) {
+            for (final Artifact artifact : reactorProject.getArtifacts()) {
+                final File file = artifact.getFile();
+                if (file != null && file.isFile()) {
+                    archives.add(file.getCanonicalFile());
+                }
+            }
+        }
+        return archives;
+    }
+
+    private static boolean isClasspathJar(final String fileName) {
+        return fileName.endsWith(".jar") && !fileName.endsWith("-sources.jar") && !fileName.endsWith("-javadoc.jar");
+    }
+}
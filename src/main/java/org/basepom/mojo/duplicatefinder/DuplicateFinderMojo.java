@@ -26,48 +26,69 @@ import static org.basepom.mojo.duplicatefinder.ConflictState.CONFLICT_CONTENT_DI
 import static org.basepom.mojo.duplicatefinder.ConflictState.CONFLICT_CONTENT_EQUAL;
 import static org.basepom.mojo.duplicatefinder.ConflictType.CLASS;
 import static org.basepom.mojo.duplicatefinder.ConflictType.RESOURCE;
+import static org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase.DETECT;
+import static org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase.EXCEPTIONS;
+import static org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase.REPORT;
+import static org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase.RESOLVE;
 import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.getOutputDirectory;
 import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.getTestOutputDirectory;
 
-import org.basepom.mojo.duplicatefinder.ResultCollector.ConflictResult;
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArtifact;
+import org.basepom.mojo.duplicatefinder.FlightRecorderEvents.ScopeCheckEvent;
 import org.basepom.mojo.duplicatefinder.artifact.ArtifactFileResolver;
+import org.basepom.mojo.duplicatefinder.artifact.ArtifactFileResolverService;
+import org.basepom.mojo.duplicatefinder.artifact.MatchArtifactPredicate;
 import org.basepom.mojo.duplicatefinder.artifact.MavenCoordinates;
 import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathListingStore;
+import org.basepom.mojo.duplicatefinder.classpath.DuplicateListener;
+import org.basepom.mojo.duplicatefinder.classpath.IndexBudget;
+import org.basepom.mojo.duplicatefinder.classpath.JdkModules;
+import org.basepom.mojo.duplicatefinder.classpath.NestedArchives;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.util.AbstractMap.SimpleImmutableEntry;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipFile;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.xml.stream.XMLStreamException;
 
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hashing;
-import com.google.common.io.ByteStreams;
-import com.google.common.io.Closer;
+import com.google.common.collect.ObjectArrays;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DependencyResolutionRequiredException;
 import org.apache.maven.artifact.versioning.InvalidVersionSpecificationException;
 import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugin.descriptor.PluginDescriptor;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -84,17 +105,13 @@ import org.slf4j.LoggerFactory;
  * Finds duplicate classes/resources on the classpath.
  */
 @Mojo(name = "check", requiresProject = true, threadSafe = true, defaultPhase = LifecyclePhase.VERIFY, requiresDependencyResolution = ResolutionScope.TEST)
-public final class DuplicateFinderMojo extends AbstractMojo {
+public class DuplicateFinderMojo extends AbstractMojo {
 
     private static final Logger LOG = LoggerFactory.getLogger(DuplicateFinderMojo.class);
 
-    private static final int SAVE_FILE_VERSION = 1;
-
-    private static final HashFunction SHA_256 = Hashing.sha256();
-
-    private static final Set<String> COMPILE_SCOPE = ImmutableSet.of(SCOPE_COMPILE, SCOPE_PROVIDED, SCOPE_SYSTEM);
-    private static final Set<String> RUNTIME_SCOPE = ImmutableSet.of(SCOPE_COMPILE, SCOPE_RUNTIME);
-    private static final Set<String> TEST_SCOPE = ImmutableSet.of(); // Empty == all scopes
+    static final Set<String> COMPILE_SCOPE = ImmutableSet.of(SCOPE_COMPILE, SCOPE_PROVIDED, SCOPE_SYSTEM);
+    static final Set<String> RUNTIME_SCOPE = ImmutableSet.of(SCOPE_COMPILE, SCOPE_RUNTIME);
+    static final Set<String> TEST_SCOPE = ImmutableSet.of(); // Empty == all scopes
 
     /**
      * The maven project (effective pom).
@@ -102,6 +119,18 @@ public final class DuplicateFinderMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project}", readonly = true)
     public MavenProject project;
 
+    /**
+     * The current build session. Conflict states are shared between all modules of a session.
+     */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    public MavenSession session;
+
+    /**
+     * The descriptor of this plugin. Its version is part of the fingerprint of an incremental check.
+     */
+    @Parameter(defaultValue = "${plugin}", readonly = true)
+    public PluginDescriptor plugin;
+
     /**
      * Report files that have the same sha256 has value.
      *
@@ -190,6 +219,16 @@ public final class DuplicateFinderMojo extends AbstractMojo {
     @Parameter(defaultValue = "true", property = "duplicate-finder.checkTestClasspath")
     public boolean checkTestClasspath = true;
 
+    /**
+     * Check the classpath inside the packaged project artifact: the jars and class folder in <code>WEB-INF</code> of a WAR, in <code>BOOT-INF</code> of a
+     * Spring Boot jar or in the root folder and <code>lib</code> of an EAR. The nested jars are read without extracting them. The project must have been
+     * packaged before the check runs. Nested jars with the same file name as a dependency are reported as that dependency.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.checkPackagedClasspath")
+    public boolean checkPackagedClasspath = false;
+
     /**
      * Skips the plugin execution.
      */
@@ -215,7 +254,7 @@ public final class DuplicateFinderMojo extends AbstractMojo {
     public boolean preferLocal = true;
 
     /**
-     * Output file for the result of the plugin.
+     * Output file for the result of the plugin. Must be set if <code>useResultFile</code> is true.
      *
      * @since 1.1.0
      */
@@ -239,20 +278,87 @@ public final class DuplicateFinderMojo extends AbstractMojo {
     public int resultFileMinClasspathCount = 2;
 
     /**
-     * Include the boot class path in duplicate detection. This will find duplicates with the JDK internal classes (e.g. the classes in rt.jar).
+     * Indent the elements in the result file. Turning this off makes large result files considerably smaller.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "true", property = "duplicate-finder.resultFileIndent")
+    public boolean resultFileIndent = true;
+
+    /**
+     * Format of the result file. Either <code>xml</code> or <code>jsonl</code> (JSON Lines, one record per line). If the format is <code>jsonl</code> and
+     * the name of the result file ends with <code>.xml</code> (or <code>.xml.gz</code>), the extension is replaced with <code>.jsonl</code>.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "xml", property = "duplicate-finder.resultFormat")
+    public String resultFormat = "xml";
+
+    /**
+     * Skip the check if its inputs have not changed since the last run. The inputs are the plugin version and configuration, the files on the checked
+     * classpaths (name, size and modification time) and the content of the project output folders. If they match, the verdict of the last run is applied
+     * again.
+     * <p>
+     * If the inputs have changed, only archives that were added or changed since the last run are scanned and only conflicts that involve these archives
+     * or a project folder are evaluated. The listings and conflict states of the last run are kept in <code>duplicate-finder-state</code> in the build
+     * directory.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.incremental")
+    public boolean incremental = false;
+
+    /**
+     * Verify the incremental state. All archives are scanned and all conflicts are evaluated again, and the results are compared with the stored listings and
+     * conflict states. The build fails if they differ. Only used if <code>incremental</code> is true.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.incrementalVerify")
+    public boolean incrementalVerify = false;
+
+    /**
+     * Folder with the listings of archives that were scanned ahead of the check (see the <code>index</code> goal). Archives that have not changed since they
+     * were indexed are not scanned again, all other archives are scanned and added to the index. The folder can be shared between projects and builds.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(property = "duplicate-finder.indexDirectory")
+    public File indexDirectory;
+
+    /**
+     * Include the JDK in duplicate detection. This will find duplicates with the classes of the JDK modules (e.g. <code>javax.xml</code> classes that are
+     * bundled by a library). Up to plugin version 1.x, this option checked the classes in rt.jar.
+     * <p>
+     * The classes of the JDK are read from its module image once per JDK build and kept in <code>jdkIndexDirectory</code>.
      *
      * @since 1.1.1
-     * @deprecated Inspecting the boot classpath is no longer supported in Java 9+
      */
     @Parameter(defaultValue = "false", property = "duplicate-finder.includeBootClasspath")
-    @Deprecated
     public boolean includeBootClasspath = false;
 
+    /**
+     * The java home folder of the JDK (Java 9 or later) that is checked if <code>includeBootClasspath</code> is true. If not set, the JDK that runs Maven
+     * is checked.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(property = "duplicate-finder.jdkHome")
+    public File jdkHome;
+
+    /**
+     * Folder with the class listings of JDK builds. A listing is created the first time a JDK build is checked and shared by all projects and builds.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "${user.home}/.m2/duplicate-finder/jdk", property = "duplicate-finder.jdkIndexDirectory")
+    public File jdkIndexDirectory;
+
     /**
      * System property that contains the boot class path.
      *
      * @since 1.1.1
-     * @deprecated Inspecting the boot classpath is no longer supported in Java 9+
+     * @deprecated Java 9+ has no boot class path, use <code>jdkHome</code> to check another JDK.
      */
     @Parameter(property = "duplicate-finder.bootClasspathProperty")
     @Deprecated
@@ -266,8 +372,87 @@ public final class DuplicateFinderMojo extends AbstractMojo {
     @Parameter(defaultValue = "false", property = "duplicate-finder.includePomProjects")
     public boolean includePomProjects = false;
 
-    private final EnumSet<ConflictState> printState = EnumSet.of(CONFLICT_CONTENT_DIFFERENT);
-    private final EnumSet<ConflictState> failState = EnumSet.noneOf(ConflictState.class);
+    /**
+     * Number of threads that read and hash the content of conflicting classes and resources. A value of 0 selects a default based on the number of CPU
+     * cores, a value of 1 evaluates all conflicts in the build thread.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "0", property = "duplicate-finder.threads")
+    public int threads = 0;
+
+    /**
+     * Stop at the first conflict that fails the build. Conflicts whose size or checksum differ are evaluated first, excepted conflicts are not evaluated at
+     * all and no further classpath scopes are checked once a failing conflict has been found. Only the first offenders are reported. This option requires
+     * that the build fails on conflicts and that no result file is written, otherwise it is ignored.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.failFast")
+    public boolean failFast = false;
+
+    /**
+     * Do not keep conflicts that match an exception in memory if no result file is written. Excepted conflicts are only reported in the result file.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "true", property = "duplicate-finder.dropExceptedConflicts")
+    public boolean dropExceptedConflicts = true;
+
+    /**
+     * Maximum number of classes or resources that are printed for each group of conflicting artifacts. Each group also reports the number of its conflicts.
+     * A value of 0 prints all conflicts.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "0", property = "duplicate-finder.maxReportedConflicts")
+    public int maxReportedConflicts = 0;
+
+    /**
+     * Print the timings and counters of the execution (time per phase, scanned entries, bytes read, cache hits and the slowest classpath elements). They are
+     * always written to the result file and to the debug log.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.printMetrics")
+    public boolean printMetrics = false;
+
+    /**
+     * Count the evaluations, matches and match time of every ignore pattern (default and configured patterns for classes and resources) and of the
+     * resource patterns of the exceptions. The results are part of the metrics in the result file and are printed if <code>printMetrics</code> is set.
+     * Profiling adds a little overhead to every pattern evaluation.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "false", property = "duplicate-finder.profilePatterns")
+    public boolean profilePatterns = false;
+
+    /**
+     * Heap budget of the classpath indexes in megabytes. The indexes of all classpaths that are checked at the same time share the budget. If the estimated
+     * size of an index exceeds the budget, the index is moved to memory-mapped files in <code>indexSpillDirectory</code>. A value of 0 uses a quarter of the
+     * maximum heap size.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "0", property = "duplicate-finder.indexHeapBudget")
+    public int indexHeapBudget = 0;
+
+    /**
+     * Folder for the memory-mapped files of classpath indexes that exceed <code>indexHeapBudget</code>. The files are deleted as soon as they have been
+     * mapped into memory.
+     *
+     * @since 2.0.2
+     */
+    @Parameter(defaultValue = "${project.build.directory}/duplicate-finder-spill", property = "duplicate-finder.indexSpillDirectory")
+    public File indexSpillDirectory;
+
+    final EnumSet<ConflictState> printState = EnumSet.of(CONFLICT_CONTENT_DIFFERENT);
+    final EnumSet<ConflictState> failState = EnumSet.noneOf(ConflictState.class);
+    SessionConflictCache conflictCache = SessionConflictCache.disabled();
+    ExecutionMetrics metrics = new ExecutionMetrics();
+    IndexBudget indexBudget = IndexBudget.unlimited();
+    // The module image of the checked JDK, null if the JDK is not checked.
+    File jdkElement = null;
 
     // called by maven
     public void setIgnoredDependencies(final Dependency... dependencies) throws InvalidVersionSpecificationException {
@@ -286,31 +471,22 @@ public final class DuplicateFinderMojo extends AbstractMojo {
         } else if (!includePomProjects && "pom".equals(project.getArtifact().getType())) {
             LOG.info("Ignoring POM project!");
         } else {
-            if (printEqualFiles) {
-                printState.add(CONFLICT_CONTENT_EQUAL);
-            }
-
-            if (failBuildInCaseOfConflict || failBuildInCaseOfEqualContentConflict) {
-                printState.add(CONFLICT_CONTENT_EQUAL);
-
-                failState.add(CONFLICT_CONTENT_EQUAL);
-                failState.add(CONFLICT_CONTENT_DIFFERENT);
+            configure();
+            jdkElement = getJdkElement();
+
+            if (failFast && failState.isEmpty()) {
+                LOG.warn("<failFast> requires that the build fails on conflicts and will be ignored!");
+                failFast = false;
+            } else if (failFast && useResultFile) {
+                LOG.warn("<failFast> can not be used together with <useResultFile> and will be ignored!");
+                failFast = false;
             }
 
-            if (failBuildInCaseOfDifferentContentConflict) {
-                failState.add(CONFLICT_CONTENT_DIFFERENT);
-            }
-
-            if (includeBootClasspath) {
-                LOG.warn("<includeBootClasspath> is no longer supported and will be ignored!");
-            }
-            if (bootClasspathProperty != null) {
-                LOG.warn("<bootClasspathProperty> is no longer supported and will be ignored!");
-            }
-
-            if (quiet) {
-                LOG.warn("<quiet> is no longer supported and will be ignored!");
-            }
+            final ExecutorService executorService = IoExecutors.newIoExecutor(threads > 0 ? threads : IoExecutors.defaultParallelism());
+            // Runs the checks for the three classpath scopes.
+            final ExecutorService scopeExecutorService = IoExecutors.newPlatformExecutor(threads == 1 ? 1 : 3, "duplicate-finder-scope-%d");
+            // All result sinks are aborted when the check ends. This removes a result file that has not been finished.
+            List<ResultSink> resultSinks = ImmutableList.of();
 
             try {
                 // Prep conflicting dependencies
@@ -320,73 +496,163 @@ public final class DuplicateFinderMojo extends AbstractMojo {
                     conflictingDependency.addProjectMavenCoordinates(projectCoordinates);
                 }
 
-                final ArtifactFileResolver artifactFileResolver = new ArtifactFileResolver(project, preferLocal);
-                final ImmutableMap.Builder<String, Entry<ResultCollector, ClasspathDescriptor>> classpathResultBuilder = ImmutableMap.builder();
+                checkState(!useResultFile || resultFile != null, "resultFile must be set if useResultFile is true");
+
+                final long resolveStart = System.nanoTime();
+                final ArtifactFileResolver artifactFileResolver = ArtifactFileResolverService.forSession(session).createResolver(project, preferLocal);
+                metrics.addTime(RESOLVE, resolveStart);
+
+                UpToDateCheck upToDateCheck = null;
+                ClasspathListingStore listingStore = getIndexListingStore();
+                ConflictVerdictStore verdictStore = ConflictVerdictStore.disabled();
+
+                if (incremental) {
+                    upToDateCheck = createUpToDateCheck(artifactFileResolver);
+                    final Optional<Boolean> previousVerdict = upToDateCheck.getPreviousVerdict();
+                    if (!incrementalVerify && previousVerdict.isPresent() && (!useResultFile || getResultFile().exists())) {
+                        LOG.info("Inputs have not changed since the last run, skipping duplicate-finder execution!");
+                        if (previousVerdict.get()) {
+                            throw new MojoExecutionException("Found duplicate classes/resources! (result of the last run, inputs have not changed)");
+                        }
+                        return;
+                    }
+                    upToDateCheck.invalidate();
+
+                    final File stateDirectory = new File(project.getBuild().getDirectory(), "duplicate-finder-state");
+                    listingStore = new ClasspathListingStore(indexDirectory == null ? new File(stateDirectory, "elements") : indexDirectory, incrementalVerify);
+                    verdictStore = new ConflictVerdictStore(new File(stateDirectory, "verdicts.gz"), incrementalVerify);
+                    verdictStore.load();
+                }
+
+                if (jdkElement != null) {
+                    listingStore = listingStore.withJdkDirectory(jdkIndexDirectory);
+                }
+
+                // Without a stored conflict state, hash content while the classpath is scanned. Otherwise, only conflicts without a stored state
+                // are hashed once the scan is complete.
+                final boolean prefetch = !failFast && (!verdictStore.isEnabled() || verdictStore.isVerify());
+                final ContentEvaluator contentEvaluator = new ContentEvaluator(executorService, prefetch, verdictStore, conflictCache, metrics);
+                final ClasspathListingStore classpathListingStore = listingStore;
+
+                final ImmutableList.Builder<ResultSink> resultSinkBuilder = ImmutableList.builder();
+                if (useResultFile) {
+                    resultSinkBuilder.add(createResultFileSink());
+                }
+                resultSinkBuilder.add(new LogResultSink(LOG, printState, maxReportedConflicts, useResultFile));
+                resultSinks = resultSinkBuilder.build();
+
+                final long startReportStart = System.nanoTime();
+                for (final ResultSink resultSink : resultSinks) {
+                    resultSink.start();
+                }
+                metrics.addTime(REPORT, startReportStart);
+
+                // The classpath scopes are checked concurrently. They share the artifact resolver, the content evaluator and the
+                // scan cache, which are all thread safe. Results are reported in the order of the scopes.
+                // In fail fast mode, a failing check cancels all other checks, so the map is also accessed by the checks.
+                final Map<String, Future<Entry<ResultCollector, ClasspathDescriptor>>> classpathChecks = Collections.synchronizedMap(new LinkedHashMap<>());
+                // Set in fail fast mode when a classpath check has failed. All other checks stop as soon as possible.
+                final AtomicBoolean stopChecks = new AtomicBoolean();
 
                 if (checkCompileClasspath) {
                     LOG.info("Checking compile classpath");
-                    final ResultCollector resultCollector = new ResultCollector(printState, failState);
-                    final ClasspathDescriptor classpathDescriptor = checkClasspath(resultCollector, artifactFileResolver, COMPILE_SCOPE,
-                            getOutputDirectory(project));
-                    classpathResultBuilder.put("compile", new SimpleImmutableEntry<>(resultCollector, classpathDescriptor));
+                    classpathChecks.put("compile", scopeExecutorService.submit(() -> checkClasspath("compile",
+                            artifactFileResolver,
+                            executorService,
+                            classpathListingStore,
+                            contentEvaluator,
+                            stopChecks,
+                            classpathChecks,
+                            COMPILE_SCOPE,
+                            getOutputDirectory(project))));
                 }
 
                 if (checkRuntimeClasspath) {
                     LOG.info("Checking runtime classpath");
-                    final ResultCollector resultCollector = new ResultCollector(printState, failState);
-                    final ClasspathDescriptor classpathDescriptor = checkClasspath(resultCollector, artifactFileResolver, RUNTIME_SCOPE,
-                            getOutputDirectory(project));
-                    classpathResultBuilder.put("runtime", new SimpleImmutableEntry<>(resultCollector, classpathDescriptor));
+                    classpathChecks.put("runtime", scopeExecutorService.submit(() -> checkClasspath("runtime",
+                            artifactFileResolver,
+                            executorService,
+                            classpathListingStore,
+                            contentEvaluator,
+                            stopChecks,
+                            classpathChecks,
+                            RUNTIME_SCOPE,
+                            getOutputDirectory(project))));
                 }
 
                 if (checkTestClasspath) {
                     LOG.info("Checking test classpath");
-                    final ResultCollector resultCollector = new ResultCollector(printState, failState);
-                    final ClasspathDescriptor classpathDescriptor = checkClasspath(resultCollector,
+                    classpathChecks.put("test", scopeExecutorService.submit(() -> checkClasspath("test",
                             artifactFileResolver,
+                            executorService,
+                            classpathListingStore,
+                            contentEvaluator,
+                            stopChecks,
+                            classpathChecks,
                             TEST_SCOPE,
                             getOutputDirectory(project),
-                            getTestOutputDirectory(project));
-                    classpathResultBuilder.put("test", new SimpleImmutableEntry<>(resultCollector, classpathDescriptor));
+                            getTestOutputDirectory(project))));
                 }
 
-                final ImmutableMap<String, Entry<ResultCollector, ClasspathDescriptor>> classpathResults = classpathResultBuilder.build();
-
-                if (useResultFile) {
-                    checkState(resultFile != null, "resultFile must be set if useResultFile is true");
-                    writeResultFile(resultFile, classpathResults);
+                if (checkPackagedClasspath) {
+                    final List<File> packagedElements = getPackagedClasspath(project);
+                    if (!packagedElements.isEmpty()) {
+                        LOG.info("Checking packaged classpath");
+                        classpathChecks.put("packaged", scopeExecutorService.submit(() -> checkClasspath("packaged",
+                                artifactFileResolver,
+                                executorService,
+                                classpathListingStore,
+                                contentEvaluator,
+                                stopChecks,
+                                classpathChecks,
+                                null,
+                                packagedElements.toArray(new File[0]))));
+                    }
                 }
 
                 boolean failed = false;
 
-                for (Map.Entry<String, Entry<ResultCollector, ClasspathDescriptor>> classpathEntry : classpathResults.entrySet()) {
-                    String classpathName = classpathEntry.getKey();
-                    ResultCollector resultCollector = classpathEntry.getValue().getKey();
-
-                    for (final ConflictState state : printState) {
-                        for (final ConflictType type : ConflictType.values()) {
-                            if (resultCollector.hasConflictsFor(type, state)) {
-                                final Map<String, Collection<ConflictResult>> results = resultCollector.getResults(type, state);
-                                for (final Map.Entry<String, Collection<ConflictResult>> entry : results.entrySet()) {
-                                    final String artifactNames = entry.getKey();
-                                    final Collection<ConflictResult> conflictResults = entry.getValue();
-
-                                    LOG.warn(format("Found duplicate %s %s in [%s]:", state.getHint(), type.getType(), artifactNames));
-                                    for (final ConflictResult conflictResult : conflictResults) {
-                                        LOG.warn(format("  %s", conflictResult.getName()));
-                                    }
-                                }
-                            }
-                        }
+                for (final String classpathName : ImmutableList.copyOf(classpathChecks.keySet())) {
+                    final Entry<ResultCollector, ClasspathDescriptor> classpathResult = getClasspathResult(classpathName, classpathChecks.get(classpathName));
+                    // Drop the check, so that the index of large classpaths does not stay in memory once its result has been reported.
+                    classpathChecks.remove(classpathName);
+
+                    if (classpathResult == null) {
+                        LOG.debug(format("Check of %s classpath was stopped", classpathName));
+                        continue;
+                    }
+
+                    final long reportStart = System.nanoTime();
+                    for (final ResultSink resultSink : resultSinks) {
+                        resultSink.addResult(classpathName, classpathResult.getKey(), classpathResult.getValue());
                     }
+                    metrics.addTime(REPORT, reportStart);
 
-                    failed |= resultCollector.isFailed();
+                    failed |= classpathResult.getKey().isFailed();
 
-                    if (resultCollector.isFailed()) {
-                        LOG.warn(format("Found duplicate classes/resources in %s classpath.", classpathName));
+                    if (failed && failFast) {
+                        LOG.warn("Stopping after the first failing conflict, other conflicts may exist!");
+                        break;
                     }
                 }
 
+                final long finishReportStart = System.nanoTime();
+                for (final ResultSink resultSink : resultSinks) {
+                    resultSink.finish();
+                }
+                metrics.addTime(REPORT, finishReportStart);
+
+                if (conflictCache.getReusedCount() > 0) {
+                    LOG.debug(format("Reused %d conflict states from other modules", conflictCache.getReusedCount()));
+                }
+
+                logMetrics(metrics, printMetrics);
+
+                if (incremental) {
+                    storeIncrementalState(listingStore, verdictStore, indexDirectory == null);
+                    upToDateCheck.storeVerdict(failed);
+                }
+
                 if (failed) {
                     throw new MojoExecutionException("Found duplicate classes/resources!");
                 }
@@ -398,65 +664,366 @@ public final class DuplicateFinderMojo extends AbstractMojo {
                 throw new MojoFailureException("Version too constrained", e);
             } catch (final IOException e) {
                 throw new MojoExecutionException("While loading artifacts", e);
+            } finally {
+                for (final ResultSink resultSink : resultSinks) {
+                    resultSink.abort();
+                }
+                scopeExecutorService.shutdownNow();
+                executorService.shutdownNow();
             }
         }
     }
 
-    private ImmutableSet<String> getIgnoredResourcePatterns() {
+    /**
+     * Returns the nested jars and class folders of the packaged project artifact, or an empty list if the artifact has not been packaged or does not contain
+     * any.
+     */
+    static List<File> getPackagedClasspath(final MavenProject mavenProject) throws IOException {
+        final File artifactFile = mavenProject.getArtifact().getFile();
+        if (artifactFile == null || !artifactFile.isFile()) {
+            LOG.warn(format("%s has not been packaged, skipping the packaged classpath!", mavenProject.getId()));
+            return ImmutableList.of();
+        }
+
+        final List<File> elements = NestedArchives.expand(artifactFile);
+        if (elements.size() == 1 && elements.get(0).equals(artifactFile)) {
+            LOG.info(format("%s does not contain nested jars, skipping the packaged classpath.", artifactFile.getName()));
+            return ImmutableList.of();
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the module image of the JDK that is checked, or null if the JDK is not checked.
+     */
+    File getJdkElement() throws MojoExecutionException {
+        if (!includeBootClasspath) {
+            return null;
+        }
+
+        try {
+            return jdkHome == null ? JdkModules.getRunningJdkElement() : JdkModules.getJdkElement(jdkHome);
+        } catch (final IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the store for the listings in the index directory, or a disabled store if no index directory is configured.
+     */
+    ClasspathListingStore getIndexListingStore() {
+        return indexDirectory == null ? ClasspathListingStore.disabled() : new ClasspathListingStore(indexDirectory, false);
+    }
+
+    /**
+     * Returns the heap budget of the classpath indexes of this execution.
+     */
+    private IndexBudget getIndexBudget() {
+        if (indexSpillDirectory == null) {
+            return IndexBudget.unlimited();
+        }
+        return indexHeapBudget > 0 ? new IndexBudget(indexHeapBudget * 1024L * 1024L, indexSpillDirectory) : IndexBudget.defaultBudget(indexSpillDirectory);
+    }
+
+    ResultCollector createResultCollector() {
+        return new ResultCollector(printState, failState, useResultFile || !dropExceptedConflicts);
+    }
+
+    /**
+     * Sets up the conflict states that are printed and that fail the build, and warns about options that are no longer supported.
+     */
+    void configure() {
+        conflictCache = SessionConflictCache.forBuild(session == null ? null : session.getRequest());
+        metrics = new ExecutionMetrics(profilePatterns ? new PatternProfiler() : PatternProfiler.disabled());
+        indexBudget = getIndexBudget();
+
+        for (ConflictingDependency conflictingDependency : conflictingDependencies) {
+            conflictingDependency.setPatternProfiler(metrics.getPatternProfiler());
+        }
+
+        if (printEqualFiles) {
+            printState.add(CONFLICT_CONTENT_EQUAL);
+        }
+
+        if (failBuildInCaseOfConflict || failBuildInCaseOfEqualContentConflict) {
+            printState.add(CONFLICT_CONTENT_EQUAL);
+
+            failState.add(CONFLICT_CONTENT_EQUAL);
+            failState.add(CONFLICT_CONTENT_DIFFERENT);
+        }
+
+        if (failBuildInCaseOfDifferentContentConflict) {
+            failState.add(CONFLICT_CONTENT_DIFFERENT);
+        }
+
+        if (bootClasspathProperty != null) {
+            LOG.warn("<bootClasspathProperty> is no longer supported and will be ignored, use <jdkHome> instead!");
+        }
+
+        if (quiet) {
+            LOG.warn("<quiet> is no longer supported and will be ignored!");
+        }
+    }
+
+    private ResultSink createResultFileSink() throws MojoExecutionException {
+        if (isJsonLines()) {
+            return new JsonLinesResultSink(getResultFile(), project, metrics);
+        } else {
+            return new ResultFileSink(getResultFile(), project, this::addConfiguration, resultFileMinClasspathCount, resultFileIndent, metrics);
+        }
+    }
+
+    private boolean isJsonLines() throws MojoExecutionException {
+        switch (Strings.nullToEmpty(resultFormat).toLowerCase(Locale.ROOT)) {
+            case "xml":
+                return false;
+            case "jsonl":
+                return true;
+            default:
+                throw new MojoExecutionException(format("Unknown result format '%s', must be 'xml' or 'jsonl'!", resultFormat));
+        }
+    }
+
+    /**
+     * Returns the file that the result is written to. Only used if <code>useResultFile</code> is true, <code>resultFile</code> is set then.
+     */
+    private File getResultFile() throws MojoExecutionException {
+        if (isJsonLines()) {
+            final String fileName = resultFile.getName().replaceFirst("\\.xml(\\.gz)?$", ".jsonl$1");
+            return new File(resultFile.getParentFile(), fileName);
+        }
+        return resultFile;
+    }
+
+    private UpToDateCheck createUpToDateCheck(final ArtifactFileResolver artifactFileResolver)
+            throws MojoExecutionException, DependencyResolutionRequiredException, IOException {
+        // without a result file, the fingerprint is kept in the build directory.
+        final File stateDirectory = resultFile != null ? resultFile.getAbsoluteFile().getParentFile() : new File(project.getBuild().getDirectory());
+        final UpToDateCheck upToDateCheck = new UpToDateCheck(new File(stateDirectory, "duplicate-finder-fingerprint.properties"));
+
+        upToDateCheck.addString("project", project.getArtifact().getId());
+        // a new plugin version may find different conflicts with the same inputs.
+        upToDateCheck.addString("pluginVersion", checkNotNull(plugin, "plugin is null").getVersion());
+        upToDateCheck.addString("resultFormat", Strings.nullToEmpty(resultFormat));
+        upToDateCheck.addString("configuration", getConfiguration());
+
+        if (checkCompileClasspath) {
+            upToDateCheck.addClasspath("compile", artifactFileResolver.resolveArtifactsForScopes(COMPILE_SCOPE));
+        }
+        if (checkRuntimeClasspath) {
+            upToDateCheck.addClasspath("runtime", artifactFileResolver.resolveArtifactsForScopes(RUNTIME_SCOPE));
+        }
+        if (checkTestClasspath) {
+            upToDateCheck.addClasspath("test", artifactFileResolver.resolveArtifactsForScopes(TEST_SCOPE));
+        }
+
+        if (checkPackagedClasspath && project.getArtifact().getFile() != null) {
+            upToDateCheck.addFile(project.getArtifact().getFile());
+        }
+
+        if (jdkElement != null) {
+            upToDateCheck.addString("jdk", JdkModules.getJdkKey(jdkElement));
+        }
+
+        upToDateCheck.addFile(getOutputDirectory(project));
+        if (checkTestClasspath) {
+            upToDateCheck.addFile(getTestOutputDirectory(project));
+        }
+
+        return upToDateCheck;
+    }
+
+    private static void storeIncrementalState(final ClasspathListingStore listingStore, final ConflictVerdictStore verdictStore, final boolean prune)
+            throws MojoExecutionException, IOException {
+        verdictStore.store();
+        // the index directory is shared with other projects and is never pruned.
+        final int removed = prune ? listingStore.prune() : 0;
+
+        LOG.info(format("Incremental check: %d archives unchanged, %d added or changed, %d removed; %d conflicts unchanged, %d evaluated",
+                listingStore.getReusedCount(), listingStore.getScannedCount(), removed, verdictStore.getReusedCount(), verdictStore.getEvaluatedCount()));
+
+        if (verdictStore.isVerify()) {
+            final List<String> mismatches = ImmutableList.<String>builder()
+                    .addAll(listingStore.getMismatches())
+                    .addAll(verdictStore.getMismatches())
+                    .build();
+
+            if (!mismatches.isEmpty()) {
+                for (final String mismatch : mismatches) {
+                    LOG.warn(format("Incremental state mismatch: %s", mismatch));
+                }
+                throw new MojoExecutionException("Incremental state does not match a full check!");
+            }
+            LOG.info("Incremental state verified, no differences to a full check found.");
+        }
+    }
+
+    /**
+     * Returns the plugin configuration as it is written to the result file.
+     */
+    private String getConfiguration() throws MojoExecutionException {
+        final StringWriter writer = new StringWriter();
+        try {
+            final SMOutputDocument document = new SMOutputFactory(XMLOutputFactory2.newFactory()).createOutputDocument(writer);
+            addConfiguration(document.addElement("duplicate-finder"));
+            document.closeRootAndWriter();
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException("While computing configuration", e);
+        }
+        return writer.toString();
+    }
+
+    ImmutableSet<String> getIgnoredResourcePatterns() {
         ImmutableSet.Builder<String> builder = ImmutableSet.builder();
         builder.add(ignoredResourcePatterns);
 
         return builder.build();
     }
 
-    private ImmutableSet<String> getIgnoredClassPatterns() {
+    ImmutableSet<String> getIgnoredClassPatterns() {
         ImmutableSet.Builder<String> builder = ImmutableSet.builder();
         builder.add(ignoredClassPatterns);
 
         return builder.build();
     }
 
+    private static Entry<ResultCollector, ClasspathDescriptor> getClasspathResult(final String classpathName,
+            final Future<Entry<ResultCollector, ClasspathDescriptor>> classpathCheck)
+            throws MojoExecutionException, InvalidVersionSpecificationException, OverConstrainedVersionException, DependencyResolutionRequiredException,
+            IOException {
+        try {
+            return classpathCheck.get();
+        } catch (final CancellationException e) {
+            // cancelled in fail fast mode because another classpath check has failed.
+            return null;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException(format("Interrupted while checking %s classpath", classpathName), e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            Throwables.throwIfInstanceOf(cause, MojoExecutionException.class);
+            Throwables.throwIfInstanceOf(cause, InvalidVersionSpecificationException.class);
+            Throwables.throwIfInstanceOf(cause, OverConstrainedVersionException.class);
+            Throwables.throwIfInstanceOf(cause, DependencyResolutionRequiredException.class);
+            Throwables.throwIfInstanceOf(cause, IOException.class);
+            Throwables.throwIfUnchecked(cause);
+            throw new MojoExecutionException(format("While checking %s classpath", classpathName), cause);
+        }
+    }
+
     /**
      * Checks the maven classpath for a given set of scopes whether it contains duplicates. In addition to the artifacts on the classpath, one or more
      * additional project folders are added.
+     * <p>
+     * The check runs as a pipeline: classpath elements are scanned on the executor, the content of duplicates is hashed as soon as the scan finds them,
+     * and exceptions are matched once the scan is complete. This method is called concurrently for the different classpath scopes.
+     * <p>
+     * In fail fast mode, returns null if the check was stopped because another classpath check has failed. If this check fails, all other checks are
+     * cancelled, which also interrupts their classpath scans.
+     *
+     * @param classpathChecks All classpath checks of this execution by name.
+     * @param scopes          The scopes of the artifacts on the classpath, empty for all scopes or null for a classpath without Maven artifacts.
      */
-    private ClasspathDescriptor checkClasspath(final ResultCollector resultCollector,
+    private Entry<ResultCollector, ClasspathDescriptor> checkClasspath(final String classpathName,
             final ArtifactFileResolver artifactFileResolver,
+            final ExecutorService executorService,
+            final ClasspathListingStore listingStore,
+            final ContentEvaluator contentEvaluator,
+            final AtomicBoolean stopChecks,
+            final Map<String, ? extends Future<?>> classpathChecks,
             final Set<String> scopes,
             final File... projectFolders)
-            throws MojoExecutionException, InvalidVersionSpecificationException, OverConstrainedVersionException, DependencyResolutionRequiredException {
+            throws MojoExecutionException, InvalidVersionSpecificationException, OverConstrainedVersionException, DependencyResolutionRequiredException,
+            IOException {
+
+        if (stopChecks.get()) {
+            return null;
+        }
+
+        final ScopeCheckEvent event = new ScopeCheckEvent();
+        event.begin();
 
         // Map of files to artifacts. Depending on the type of build, referenced projects in a multi-module build
         // may be local folders in the project instead of repo jar references.
-        final Multimap<File, Artifact> fileToArtifactMap = artifactFileResolver.resolveArtifactsForScopes(scopes);
+        final long resolveStart = System.nanoTime();
+        final Multimap<File, Artifact> fileToArtifactMap = scopes == null ? ImmutableMultimap.of() : artifactFileResolver.resolveArtifactsForScopes(scopes);
+        metrics.addTime(RESOLVE, resolveStart);
+
+        // The JDK is checked like a project folder, it is part of every classpath.
+        final File[] folders = jdkElement == null ? projectFolders : ObjectArrays.concat(jdkElement, projectFolders);
 
-        final ClasspathDescriptor classpathDescriptor = ClasspathDescriptor.createClasspathDescriptor(project,
-                fileToArtifactMap,
+        final ClasspathDescriptor classpathDescriptor = createClasspathDescriptor(fileToArtifactMap,
                 getIgnoredResourcePatterns(),
                 getIgnoredClassPatterns(),
                 Arrays.asList(ignoredDependencies),
                 useDefaultResourceIgnoreList,
                 useDefaultClassIgnoreList,
-                projectFolders);
+                listingStore,
+                indexBudget,
+                executorService,
+                contentEvaluator,
+                metrics,
+                folders);
 
         // Now a scope specific classpath descriptor (scope relevant artifacts and project folders) and the global artifact resolver
         // are primed. Run conflict resolution for classes and resources.
-        checkForDuplicates(CLASS, resultCollector, classpathDescriptor, artifactFileResolver);
-        checkForDuplicates(RESOURCE, resultCollector, classpathDescriptor, artifactFileResolver);
-        return classpathDescriptor;
+        final ResultCollector resultCollector = createResultCollector();
+        checkForDuplicates(CLASS, resultCollector, classpathDescriptor, artifactFileResolver, contentEvaluator, stopChecks);
+
+        if (failFast) {
+            if (!resultCollector.isFailed()) {
+                checkForDuplicates(RESOURCE, resultCollector, classpathDescriptor, artifactFileResolver, contentEvaluator, stopChecks);
+            }
+
+            if (resultCollector.isFailed()) {
+                stopChecks.set(true);
+                cancelOtherChecks(classpathName, classpathChecks);
+            } else if (stopChecks.get()) {
+                return null;
+            }
+        } else {
+            checkForDuplicates(RESOURCE, resultCollector, classpathDescriptor, artifactFileResolver, contentEvaluator, stopChecks);
+        }
+
+        if (event.shouldCommit()) {
+            event.project = project.getId();
+            event.scope = classpathName;
+            event.elements = fileToArtifactMap.keySet().size() + folders.length;
+            event.conflicts = resultCollector.getConflictCount();
+            event.bytes = fileToArtifactMap.keySet().stream().filter(File::isFile).mapToLong(File::length).sum();
+            event.commit();
+        }
+
+        return new SimpleImmutableEntry<>(resultCollector, classpathDescriptor);
+    }
+
+    /**
+     * Cancels all classpath checks except the given one. Checks that have not started yet do not run at all, running checks are interrupted.
+     */
+    private static void cancelOtherChecks(final String classpathName, final Map<String, ? extends Future<?>> classpathChecks) {
+        synchronized (classpathChecks) {
+            for (final Map.Entry<String, ? extends Future<?>> classpathCheck : classpathChecks.entrySet()) {
+                if (!classpathName.equals(classpathCheck.getKey())) {
+                    classpathCheck.getValue().cancel(true);
+                }
+            }
+        }
     }
 
     private void checkForDuplicates(final ConflictType type, final ResultCollector resultCollector, final ClasspathDescriptor classpathDescriptor,
-            final ArtifactFileResolver artifactFileResolver)
-            throws OverConstrainedVersionException {
+            final ArtifactFileResolver artifactFileResolver, final ContentEvaluator contentEvaluator, final AtomicBoolean stopChecks)
+            throws MojoExecutionException, OverConstrainedVersionException, IOException {
         // only look at entries with a size > 1.
-        final Map<String, Collection<File>> filteredMap = ImmutableMap.copyOf(Maps.filterEntries(classpathDescriptor.getClasspathElementLocations(type),
-                entry -> {
-                    checkNotNull(entry, "entry is null");
-                    checkState(entry.getValue() != null, "Entry '%s' is invalid", entry);
+        final long detectStart = System.nanoTime();
+        final Map<String, Collection<File>> filteredMap = ImmutableMap.copyOf(classpathDescriptor.getConflicts(type));
+        metrics.addTime(DETECT, detectStart);
+
+        if (failFast) {
+            checkForFirstFailure(type, filteredMap, resultCollector, artifactFileResolver, contentEvaluator, stopChecks);
+            return;
+        }
 
-                    return entry.getValue().size() > 1;
-                }));
+        contentEvaluator.prefetch(type, filteredMap);
 
         for (final Map.Entry<String, Collection<File>> entry : filteredMap.entrySet()) {
             final String name = entry.getKey();
@@ -464,96 +1031,172 @@ public final class DuplicateFinderMojo extends AbstractMojo {
 
             // Map which contains a printable name for the conflicting entry (which is either the printable name for an artifact or
             // a folder name for a project folder) as keys and a classpath element as value.
-            final SortedSet<ClasspathElement> conflictingClasspathElements = artifactFileResolver.getClasspathElementsForElements(elements);
+            final SortedSet<ClasspathElement> conflictingClasspathElements = getClasspathElements(elements, artifactFileResolver);
 
-            ImmutableSet.Builder<Artifact> artifactBuilder = ImmutableSet.builder();
-
-            for (ClasspathElement conflictingClasspathElement : conflictingClasspathElements) {
-                if (conflictingClasspathElement.hasArtifact()) {
-                    artifactBuilder.add(conflictingClasspathElement.getArtifact());
-                } else if (conflictingClasspathElement.isLocalFolder()) {
-                    artifactBuilder.add(project.getArtifact());
-                }
-            }
-
-            final boolean excepted = isExcepted(type, name, artifactBuilder.build());
-            final ConflictState conflictState = DuplicateFinderMojo.determineConflictState(type, name, elements);
+            final boolean excepted = isExcepted(type, name, conflictingClasspathElements);
+            // The content of most conflicts has already been hashed while the classpath was scanned.
+            final ConflictState conflictState = contentEvaluator.determineConflictState(type, name, elements);
 
             resultCollector.addConflict(type, name, conflictingClasspathElements, excepted, conflictState);
         }
     }
 
     /**
-     * Detects class/resource differences via SHA256 hash comparison.
+     * Fail fast variant of the duplicate check. Excepted conflicts can not fail the build, so they are not evaluated at all. Conflicts whose size or CRC
+     * differ have different content, which fails the build in any case. Those are reported without hashing. Otherwise, the remaining conflicts are hashed one
+     * by one until the first one fails.
      */
-    private static ConflictState determineConflictState(final ConflictType type, final String name, final Iterable<File> elements) {
-        File firstFile = null;
-        String firstSHA256 = null;
+    private void checkForFirstFailure(final ConflictType type, final Map<String, Collection<File>> conflicts, final ResultCollector resultCollector,
+            final ArtifactFileResolver artifactFileResolver, final ContentEvaluator contentEvaluator, final AtomicBoolean stopChecks)
+            throws MojoExecutionException, OverConstrainedVersionException, IOException {
 
-        final String resourcePath = type == ConflictType.CLASS ? name.replace('.', '/') + ".class" : name;
+        final Map<String, Collection<File>> candidates = new LinkedHashMap<>();
+        final Map<String, SortedSet<ClasspathElement>> candidateClasspathElements = new HashMap<>();
 
-        for (final File element : elements) {
-            try {
-                final String newSHA256 = getSHA256HexOfElement(element, resourcePath);
-
-                if (firstSHA256 == null) {
-                    // save sha256 hash from the first element
-                    firstSHA256 = newSHA256;
-                    firstFile = element;
-                } else if (!newSHA256.equals(firstSHA256)) {
-                    LOG.debug(format("Found different SHA256 hashes for elements %s in file %s and %s", resourcePath, firstFile, element));
-                    return ConflictState.CONFLICT_CONTENT_DIFFERENT;
-                }
-            } catch (final IOException ex) {
-                LOG.warn(format("Could not read content from file %s!", element), ex);
+        for (final Map.Entry<String, Collection<File>> entry : conflicts.entrySet()) {
+            final String name = entry.getKey();
+            final SortedSet<ClasspathElement> conflictingClasspathElements = getClasspathElements(entry.getValue(), artifactFileResolver);
+
+            if (!isExcepted(type, name, conflictingClasspathElements)) {
+                candidates.put(name, entry.getValue());
+                candidateClasspathElements.put(name, conflictingClasspathElements);
             }
         }
 
-        return ConflictState.CONFLICT_CONTENT_EQUAL;
-    }
+        final Set<String> differentContent = contentEvaluator.findDifferentContent(type, candidates);
+        if (!differentContent.isEmpty()) {
+            for (final String name : differentContent) {
+                resultCollector.addConflict(type, name, candidateClasspathElements.get(name), false, CONFLICT_CONTENT_DIFFERENT);
+            }
+            return;
+        }
 
-    /**
-     * Calculates the SHA256 Hash of a class in a file.
-     *
-     * @param file         the archive contains the class
-     * @param resourcePath the name of the class
-     * @return the MD% Hash as Hex-Value
-     * @throws IOException if any error occurs on reading class in archive
-     */
-    private static String getSHA256HexOfElement(final File file, final String resourcePath) throws IOException {
+        for (final Map.Entry<String, Collection<File>> entry : candidates.entrySet()) {
+            if (stopChecks.get()) {
+                return;
+            }
 
-        try (Closer closer = Closer.create()) {
-            InputStream in;
+            final String name = entry.getKey();
+            final ConflictState conflictState = contentEvaluator.determineConflictState(type, name, entry.getValue());
 
-            if (file.isDirectory()) {
-                final File resourceFile = new File(file, resourcePath);
-                in = closer.register(new BufferedInputStream(Files.newInputStream(resourceFile.toPath())));
-            } else {
-                final ZipFile zip = new ZipFile(file);
+            if (failState.contains(conflictState)) {
+                resultCollector.addConflict(type, name, candidateClasspathElements.get(name), false, conflictState);
+                return;
+            }
+        }
+    }
 
-                closer.register(zip::close);
+    private SortedSet<ClasspathElement> getClasspathElements(final Collection<File> elements, final ArtifactFileResolver artifactFileResolver) {
+        final long start = System.nanoTime();
+        try {
+            return conflictCache.getClasspathElements(elements, artifactFileResolver::getClasspathElementsForElements);
+        } finally {
+            metrics.addTime(RESOLVE, start);
+        }
+    }
 
-                final ZipEntry zipEntry = zip.getEntry(resourcePath);
+    private boolean isExcepted(final ConflictType type, final String name, final Set<ClasspathElement> conflictingClasspathElements)
+            throws OverConstrainedVersionException {
+        checkState(conflictingDependencies != null, "conflictingDependencies is null");
 
-                if (zipEntry == null) {
-                    throw new IOException(format("Could not find %s in archive %s", resourcePath, file));
-                }
+        final long start = System.nanoTime();
+        try {
+            return isExcepted(project, Arrays.asList(conflictingDependencies), type, name, conflictingClasspathElements);
+        } finally {
+            metrics.addTime(EXCEPTIONS, start);
+        }
+    }
 
-                in = zip.getInputStream(zipEntry);
+    /**
+     * Scans the artifacts and project folders of a Maven classpath. Artifacts that match one of the ignored dependencies are not scanned, project folders
+     * are always scanned.
+     */
+    static ClasspathDescriptor createClasspathDescriptor(final Multimap<File, Artifact> fileToArtifactMap,
+            final Collection<String> ignoredResourcePatterns,
+            final Collection<String> ignoredClassPatterns,
+            final Collection<MavenCoordinates> ignoredDependencies,
+            final boolean useDefaultResourceIgnoreList,
+            final boolean useDefaultClassIgnoreList,
+            final ClasspathListingStore listingStore,
+            final IndexBudget indexBudget,
+            final ExecutorService executorService,
+            final DuplicateListener duplicateListener,
+            final ExecutionMetrics metrics,
+            final File... projectFolders) throws MojoExecutionException {
+        checkNotNull(fileToArtifactMap, "fileToArtifactMap is null");
+        checkNotNull(ignoredDependencies, "ignoredDependencies is null");
+        checkNotNull(projectFolders, "projectFolders is null");
+
+        final MatchArtifactPredicate matchArtifactPredicate = new MatchArtifactPredicate(ignoredDependencies);
+
+        // any entry is either a jar in the repo or a folder in the target folder of a referenced
+        // project. Add the elements that are not ignored by the ignoredDependencies predicate.
+        final Set<File> elements = new LinkedHashSet<>();
+        for (final Entry<File, Artifact> entry : fileToArtifactMap.entries()) {
+            if (!matchArtifactPredicate.apply(entry.getValue())) {
+                elements.add(entry.getKey());
             }
+        }
+
+        // Add project folders unconditionally.
+        elements.addAll(Arrays.asList(projectFolders));
+
+        try {
+            return ClasspathDescriptor.createClasspathDescriptor(elements,
+                    ignoredResourcePatterns,
+                    ignoredClassPatterns,
+                    useDefaultResourceIgnoreList,
+                    useDefaultClassIgnoreList,
+                    listingStore,
+                    indexBudget,
+                    executorService,
+                    duplicateListener,
+                    metrics);
+        } catch (final IllegalArgumentException e) {
+            throw new MojoExecutionException(e.getMessage(), e);
+        } catch (final IOException e) {
+            throw new MojoExecutionException(e.getMessage(), e.getCause());
+        }
+    }
 
-            return SHA_256.newHasher().putBytes(ByteStreams.toByteArray(in)).hash().toString();
+    /**
+     * Logs the metrics of an execution at INFO level if requested, otherwise at DEBUG level.
+     */
+    static void logMetrics(final ExecutionMetrics metrics, final boolean printMetrics) {
+        if (printMetrics) {
+            metrics.getSummary().forEach(LOG::info);
+        } else if (LOG.isDebugEnabled()) {
+            metrics.getSummary().forEach(LOG::debug);
         }
     }
 
-    private boolean isExcepted(final ConflictType type, final String name, final Set<Artifact> artifacts)
+    /**
+     * Returns true if a conflict is covered by one of the exceptions. Local folders are matched as the artifact of the given project. A conflict with the
+     * JDK is only covered by exceptions with the <code>bootClasspath</code> flag.
+     */
+    static boolean isExcepted(final MavenProject checkedProject, final Collection<ConflictingDependency> exceptions, final ConflictType type,
+            final String name, final Set<ClasspathElement> conflictingClasspathElements)
             throws OverConstrainedVersionException {
+        final ImmutableSet.Builder<Artifact> artifactBuilder = ImmutableSet.builder();
+        boolean bootClasspathConflict = false;
+
+        for (ClasspathElement conflictingClasspathElement : conflictingClasspathElements) {
+            if (conflictingClasspathElement.hasArtifact()) {
+                artifactBuilder.add(((ClasspathArtifact) conflictingClasspathElement).getArtifact());
+            } else if (conflictingClasspathElement.isLocalFolder()) {
+                artifactBuilder.add(checkedProject.getArtifact());
+            } else if (conflictingClasspathElement.isBootClasspathElement()) {
+                bootClasspathConflict = true;
+            }
+        }
+
+        final Set<Artifact> artifacts = artifactBuilder.build();
+
         final ImmutableSet.Builder<ConflictingDependency> conflictBuilder = ImmutableSet.builder();
-        checkState(conflictingDependencies != null, "conflictingDependencies is null");
 
         // Find all exception definitions from the configuration that match these artifacts.
-        for (final ConflictingDependency conflictingDependency : conflictingDependencies) {
-            if (conflictingDependency.isForArtifacts(artifacts)) {
+        for (final ConflictingDependency conflictingDependency : exceptions) {
+            if (bootClasspathConflict ? conflictingDependency.isForBootClasspathConflict(artifacts) : conflictingDependency.isForArtifacts(artifacts)) {
                 conflictBuilder.add(conflictingDependency);
             }
         }
@@ -569,45 +1212,7 @@ public final class DuplicateFinderMojo extends AbstractMojo {
         return false;
     }
 
-    private void writeResultFile(File resultFile, ImmutableMap<String, Entry<ResultCollector, ClasspathDescriptor>> results)
-            throws MojoExecutionException, InvalidVersionSpecificationException, OverConstrainedVersionException {
-        File parent = resultFile.getParentFile();
-        if (!parent.exists()) {
-            if (!parent.mkdirs()) {
-                throw new MojoExecutionException("Could not create parent folders for " + parent.getAbsolutePath());
-            }
-        }
-        if (!parent.isDirectory() || !parent.canWrite()) {
-            throw new MojoExecutionException("Can not create result file in " + parent.getAbsolutePath());
-        }
-
-        try {
-            SMOutputFactory factory = new SMOutputFactory(XMLOutputFactory2.newFactory());
-            SMOutputDocument resultDocument = factory.createOutputDocument(resultFile);
-            resultDocument.setIndentation("\n" + Strings.repeat(" ", 64), 1, 4);
-
-            SMOutputElement rootElement = resultDocument.addElement("duplicate-finder-result");
-            XMLWriterUtils.addAttribute(rootElement, "version", SAVE_FILE_VERSION);
-
-            XMLWriterUtils.addProjectInformation(rootElement, project);
-
-            addConfiguration(rootElement);
-
-            SMOutputElement resultsElement = rootElement.addElement("results");
-            for (Map.Entry<String, Entry<ResultCollector, ClasspathDescriptor>> entry : results.entrySet()) {
-                SMOutputElement resultElement = resultsElement.addElement("result");
-                XMLWriterUtils.addAttribute(resultElement, "name", entry.getKey());
-                XMLWriterUtils.addResultCollector(resultElement, entry.getValue().getKey());
-                XMLWriterUtils.addClasspathDescriptor(resultElement, resultFileMinClasspathCount, entry.getValue().getValue());
-            }
-
-            resultDocument.closeRootAndWriter();
-        } catch (XMLStreamException e) {
-            throw new MojoExecutionException("While writing result file", e);
-        }
-    }
-
-    private void addConfiguration(SMOutputElement rootElement)
+    void addConfiguration(SMOutputElement rootElement)
             throws XMLStreamException {
         SMOutputElement prefs = XMLWriterUtils.addElement(rootElement, "configuration", null);
         // Simple configuration options
@@ -615,19 +1220,23 @@ public final class DuplicateFinderMojo extends AbstractMojo {
         XMLWriterUtils.addAttribute(prefs, "checkCompileClasspath", checkCompileClasspath);
         XMLWriterUtils.addAttribute(prefs, "checkRuntimeClasspath", checkRuntimeClasspath);
         XMLWriterUtils.addAttribute(prefs, "checkTestClasspath", checkTestClasspath);
+        XMLWriterUtils.addAttribute(prefs, "checkPackagedClasspath", checkPackagedClasspath);
         XMLWriterUtils.addAttribute(prefs, "failBuildInCaseOfDifferentContentConflict", failBuildInCaseOfDifferentContentConflict);
         XMLWriterUtils.addAttribute(prefs, "failBuildInCaseOfEqualContentConflict", failBuildInCaseOfEqualContentConflict);
         XMLWriterUtils.addAttribute(prefs, "failBuildInCaseOfConflict", failBuildInCaseOfConflict);
         XMLWriterUtils.addAttribute(prefs, "printEqualFiles", printEqualFiles);
         XMLWriterUtils.addAttribute(prefs, "preferLocal", preferLocal);
         XMLWriterUtils.addAttribute(prefs, "includePomProjects", includePomProjects);
+        XMLWriterUtils.addAttribute(prefs, "includeBootClasspath", includeBootClasspath);
+        XMLWriterUtils.addAttribute(prefs, "jdkHome", jdkHome == null ? null : jdkHome.getAbsolutePath());
         // Ignoring Dependencies and resources
         XMLWriterUtils.addAttribute(prefs, "useDefaultResourceIgnoreList", useDefaultResourceIgnoreList);
         XMLWriterUtils.addAttribute(prefs, "useDefaultClassIgnoreList", useDefaultClassIgnoreList);
         // Result file options
         XMLWriterUtils.addAttribute(prefs, "useResultFile", useResultFile);
         XMLWriterUtils.addAttribute(prefs, "resultFileMinClasspathCount", resultFileMinClasspathCount);
-        XMLWriterUtils.addAttribute(prefs, "resultFile", resultFile.getAbsolutePath());
+        XMLWriterUtils.addAttribute(prefs, "resultFileIndent", resultFileIndent);
+        XMLWriterUtils.addAttribute(prefs, "resultFile", resultFile == null ? null : resultFile.getAbsolutePath());
 
         SMOutputElement ignoredResourcesElement = prefs.addElement("ignoredResourcePatterns");
         for (String ignoredResource : getIgnoredResourcePatterns()) {
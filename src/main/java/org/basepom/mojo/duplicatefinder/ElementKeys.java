@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.classpath.NestedArchives;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Creates keys for conflicts that stay valid as long as the conflicting classpath elements do not change. Archives are identified by their path, size and
+ * modification time, nested archives by the size and modification time of the archive that contains them. The content of a folder can change without
+ * changing the folder itself, so there is no key for a conflict that involves a folder.
+ * <p>
+ * The attributes of every element are read once, so an instance should not live longer than a single plugin execution.
+ */
+final class ElementKeys {
+
+    private final ConcurrentMap<File, Optional<String>> elementKeys = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the key for a set of classpath elements, or nothing if one of the elements is a folder.
+     */
+    Optional<String> getKey(final Collection<File> elements) {
+        final List<String> keys = new ArrayList<>(elements.size());
+        for (final File element : elements) {
+            final Optional<String> elementKey = elementKeys.computeIfAbsent(element, ElementKeys::getElementKey);
+            if (!elementKey.isPresent()) {
+                return Optional.empty();
+            }
+            keys.add(elementKey.get());
+        }
+        keys.sort(null);
+
+        return Optional.of(String.join("\t", keys));
+    }
+
+    /**
+     * Returns the key for a conflict, or nothing if one of the elements is a folder.
+     */
+    Optional<String> getKey(final ConflictType type, final String name, final Collection<File> elements) {
+        return getKey(elements).map(key -> type.name() + '\t' + name + '\t' + key);
+    }
+
+    private static Optional<String> getElementKey(final File element) {
+        // a nested archive changes with the archive that contains it.
+        final File archive = NestedArchives.getArchiveFile(element);
+        if (!archive.isFile()) {
+            return Optional.empty();
+        }
+        return Optional.of(format("%s|%d|%d", element.getAbsolutePath(), archive.length(), archive.lastModified()));
+    }
+}
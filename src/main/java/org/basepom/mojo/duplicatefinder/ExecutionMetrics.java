@@ -0,0 +1,301 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.PatternProfiler.PatternStatistics;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Timings and counters of a single plugin execution. They are reported in the build log and in the result file.
+ * <p>
+ * This class is thread safe. Scanning and hashing run on many threads at the same time; the time of a phase is the sum over all threads and can exceed the
+ * elapsed time of the execution.
+ */
+public final class ExecutionMetrics {
+
+    /**
+     * Number of classpath elements in the list of slowest elements.
+     */
+    static final int SLOWEST_ELEMENT_COUNT = 10;
+
+    public enum Phase {
+        RESOLVE("resolve", "artifact resolution"),
+        SCAN("scan", "archive scanning"),
+        FILTER("filter", "pattern filtering"),
+        DETECT("detect", "duplicate detection"),
+        HASH("hash", "hashing"),
+        EVALUATE("evaluate", "conflict evaluation"),
+        EXCEPTIONS("exceptions", "exception matching"),
+        REPORT("report", "reporting");
+
+        private final String key;
+        private final String description;
+
+        Phase(final String key, final String description) {
+            this.key = key;
+            this.description = description;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    public enum Counter {
+        ARCHIVES_SCANNED("archivesScanned"),
+        FOLDERS_SCANNED("foldersScanned"),
+        ENTRIES_SCANNED("entriesScanned"),
+        ENTRIES_HASHED("entriesHashed"),
+        BYTES_READ("bytesRead");
+
+        private final String key;
+
+        Counter(final String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    public enum Cache {
+        /** Listings of classpath elements, from another scope or module in the same build or from the incremental state. */
+        SCAN("scan"),
+        /** Conflict states, from another module in the same build or from the incremental state. */
+        CONFLICT_STATE("conflictState");
+
+        private final String key;
+
+        Cache(final String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final PatternProfiler patternProfiler;
+    private final long startNanos = System.nanoTime();
+    private final Map<Phase, LongAdder> times = new EnumMap<>(Phase.class);
+    private final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+    private final Map<Cache, LongAdder> cacheRequests = new EnumMap<>(Cache.class);
+    private final Map<Cache, LongAdder> cacheMisses = new EnumMap<>(Cache.class);
+
+    // Min-heap, the fastest of the slowest elements is removed first.
+    private final PriorityQueue<ElementMetrics> slowestElements = new PriorityQueue<>(Comparator.comparingLong(ElementMetrics::getNanos));
+
+    public ExecutionMetrics() {
+        this(PatternProfiler.disabled());
+    }
+
+    /**
+     * @param patternProfiler Records the cost of the ignore and exception patterns. Its results are part of the metrics if it is enabled.
+     */
+    public ExecutionMetrics(final PatternProfiler patternProfiler) {
+        this.patternProfiler = checkNotNull(patternProfiler, "patternProfiler is null");
+
+        // All maps are filled here and never modified afterwards, so they can be read from any thread.
+        for (final Phase phase : Phase.values()) {
+            times.put(phase, new LongAdder());
+        }
+        for (final Counter counter : Counter.values()) {
+            counters.put(counter, new LongAdder());
+        }
+        for (final Cache cache : Cache.values()) {
+            cacheRequests.put(cache, new LongAdder());
+            cacheMisses.put(cache, new LongAdder());
+        }
+    }
+
+    public PatternProfiler getPatternProfiler() {
+        return patternProfiler;
+    }
+
+    /**
+     * Adds the time since a start time (from {@link System#nanoTime()}) to a phase.
+     */
+    public void addTime(final Phase phase, final long startNanos) {
+        times.get(phase).add(System.nanoTime() - startNanos);
+    }
+
+    public void increment(final Counter counter, final long value) {
+        counters.get(counter).add(value);
+    }
+
+    public void cacheRequest(final Cache cache) {
+        cacheRequests.get(cache).increment();
+    }
+
+    /**
+     * Records a cache request that was not served from the cache. Must follow a {@link #cacheRequest(Cache)} call for the same request.
+     */
+    public void cacheMiss(final Cache cache) {
+        cacheMisses.get(cache).increment();
+    }
+
+    /**
+     * Records the scan of a single classpath element. The time is part of the {@link Phase#SCAN} time, which is recorded separately.
+     *
+     * @param element    The archive or folder.
+     * @param startNanos The start of the scan.
+     * @param entries    The number of classes and resources in the element.
+     */
+    public void elementScanned(final File element, final long startNanos, final int entries) {
+        checkNotNull(element, "element is null");
+
+        final long nanos = System.nanoTime() - startNanos;
+        final boolean directory = element.isDirectory();
+
+        increment(directory ? Counter.FOLDERS_SCANNED : Counter.ARCHIVES_SCANNED, 1);
+        increment(Counter.ENTRIES_SCANNED, entries);
+        if (!directory) {
+            increment(Counter.BYTES_READ, element.length());
+        }
+
+        synchronized (slowestElements) {
+            if (slowestElements.size() < SLOWEST_ELEMENT_COUNT) {
+                slowestElements.add(new ElementMetrics(element, nanos, entries));
+            } else if (slowestElements.peek().getNanos() < nanos) {
+                slowestElements.poll();
+                slowestElements.add(new ElementMetrics(element, nanos, entries));
+            }
+        }
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    public long getMillis(final Phase phase) {
+        return TimeUnit.NANOSECONDS.toMillis(times.get(phase).sum());
+    }
+
+    public long getCount(final Counter counter) {
+        return counters.get(counter).sum();
+    }
+
+    public long getCacheRequests(final Cache cache) {
+        return cacheRequests.get(cache).sum();
+    }
+
+    public long getCacheHits(final Cache cache) {
+        return Math.max(0, cacheRequests.get(cache).sum() - cacheMisses.get(cache).sum());
+    }
+
+    /**
+     * Returns the slowest classpath elements, slowest first.
+     */
+    public List<ElementMetrics> getSlowestElements() {
+        final List<ElementMetrics> result;
+        synchronized (slowestElements) {
+            result = new ArrayList<>(slowestElements);
+        }
+        result.sort(Comparator.comparingLong(ElementMetrics::getNanos).reversed());
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Returns a human readable summary, one line per list element.
+     */
+    public List<String> getSummary() {
+        final ImmutableList.Builder<String> builder = ImmutableList.builder();
+        builder.add(format("Execution metrics, %d ms elapsed (phase times are summed over all threads):", getElapsedMillis()));
+        for (final Phase phase : Phase.values()) {
+            builder.add(format("  %-20s %8d ms", phase.description + ":", getMillis(phase)));
+        }
+
+        builder.add(format("  Scanned %d archives and %d folders with %d entries, hashed %d entries, read %s",
+                getCount(Counter.ARCHIVES_SCANNED), getCount(Counter.FOLDERS_SCANNED), getCount(Counter.ENTRIES_SCANNED), getCount(Counter.ENTRIES_HASHED),
+                formatBytes(getCount(Counter.BYTES_READ))));
+
+        builder.add(format("  Cache hits: scan %s, conflict state %s", formatHits(Cache.SCAN), formatHits(Cache.CONFLICT_STATE)));
+
+        final List<ElementMetrics> elements = getSlowestElements();
+        if (!elements.isEmpty()) {
+            builder.add("  Slowest classpath elements:");
+            for (final ElementMetrics element : elements) {
+                builder.add(format("    %s: %d ms, %d entries", element.getElement(), element.getMillis(), element.getEntries()));
+            }
+        }
+
+        if (patternProfiler.isEnabled()) {
+            builder.add("  Ignore and exception patterns (most expensive first):");
+            for (final PatternStatistics statistics : patternProfiler.getStatistics()) {
+                builder.add(format(Locale.ROOT, "    %s '%s': %d evaluations, %d matches, %.3f ms", statistics.getList(), statistics.getPattern(),
+                        statistics.getEvaluations(), statistics.getMatches(), statistics.getNanos() / 1_000_000.0));
+            }
+        }
+        return builder.build();
+    }
+
+    private String formatHits(final Cache cache) {
+        final long requests = getCacheRequests(cache);
+        final long hits = getCacheHits(cache);
+        return requests == 0 ? "0 of 0" : format(Locale.ROOT, "%d of %d (%.1f%%)", hits, requests, hits * 100.0 / requests);
+    }
+
+    private static String formatBytes(final long bytes) {
+        return format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Scan time and size of a single classpath element.
+     */
+    public static final class ElementMetrics {
+
+        private final File element;
+        private final long nanos;
+        private final int entries;
+
+        private ElementMetrics(final File element, final long nanos, final int entries) {
+            this.element = element;
+            this.nanos = nanos;
+            this.entries = entries;
+        }
+
+        public File getElement() {
+            return element;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public long getMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(nanos);
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the expensive operations of the plugin. They are recorded when the Maven JVM runs with
+ * <code>-XX:StartFlightRecording</code> and cost next to nothing otherwise.
+ * <p>
+ * Every event is used in the same way: create it, call {@link Event#begin()} before the operation and set the fields and call {@link Event#commit()}
+ * after it. Fields are only computed if {@link Event#shouldCommit()} returns true.
+ */
+public final class FlightRecorderEvents {
+
+    private static final String CATEGORY = "Duplicate Finder";
+
+    private FlightRecorderEvents() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    @Name("org.basepom.duplicatefinder.ArchiveScan")
+    @Label("Archive Scan")
+    @Description("Lists the classes and resources of a classpath element")
+    @Category({"Maven", CATEGORY})
+    public static final class ArchiveScanEvent extends Event {
+
+        @Label("File")
+        public String file;
+
+        @Label("Directory")
+        public boolean directory;
+
+        @Label("Entries")
+        @Description("Number of classes and resources")
+        public int entries;
+
+        @Label("Bytes")
+        @Description("Size of the archive, 0 for a directory")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("org.basepom.duplicatefinder.ContentHash")
+    @Label("Content Hash")
+    @Description("Reads and hashes a conflicting class or resource")
+    @Category({"Maven", CATEGORY})
+    public static final class ContentHashEvent extends Event {
+
+        @Label("File")
+        @Description("The archive or directory that contains the entry")
+        public String file;
+
+        @Label("Entry")
+        public String entry;
+
+        @Label("Bytes")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("org.basepom.duplicatefinder.ScopeCheck")
+    @Label("Scope Check")
+    @Description("Scans a classpath scope of a project and evaluates its conflicts")
+    @Category({"Maven", CATEGORY})
+    public static final class ScopeCheckEvent extends Event {
+
+        @Label("Project")
+        public String project;
+
+        @Label("Scope")
+        public String scope;
+
+        @Label("Elements")
+        @Description("Number of classpath elements")
+        public int elements;
+
+        @Label("Conflicts")
+        @Description("Number of conflicts including excepted conflicts")
+        public int conflicts;
+
+        @Label("Bytes")
+        @Description("Total size of the archives on the classpath")
+        @DataAmount
+        public long bytes;
+    }
+
+    @Name("org.basepom.duplicatefinder.ResultWrite")
+    @Label("Result Write")
+    @Description("Writes a part of a result file")
+    @Category({"Maven", CATEGORY})
+    public static final class ResultWriteEvent extends Event {
+
+        @Label("File")
+        public String file;
+
+        @Label("Section")
+        @Description("The classpath scope or module that was written, or 'finish' for the end of the file")
+        public String section;
+
+        @Label("Conflicts")
+        @Description("Number of conflicts written")
+        public int conflicts;
+
+        @Label("Bytes")
+        @Description("Size of the result file, only known when the file is finished")
+        @DataAmount
+        public long bytes;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates the executors that run I/O heavy work (opening archives, hashing content) for the plugin.
+ * <p>
+ * On JDK 21+, a virtual thread per task executor is used, otherwise a fixed pool of platform threads. In both cases, the number of tasks that run at the
+ * same time is bounded by the requested parallelism, so that large classpaths do not open thousands of archives at once.
+ */
+public final class IoExecutors {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IoExecutors.class);
+
+    private IoExecutors() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    /**
+     * Returns the default parallelism for I/O bound work. This is larger than the number of cores because most of the time is spent waiting for the disk.
+     */
+    public static int defaultParallelism() {
+        return Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Creates a new executor that runs at most <i>parallelism</i> tasks concurrently. A parallelism of one returns an executor that runs all tasks in the
+     * calling thread.
+     */
+    public static ExecutorService newIoExecutor(final int parallelism) {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+
+        if (parallelism == 1) {
+            return MoreExecutors.newDirectExecutorService();
+        }
+
+        final ExecutorService virtualThreadExecutor = newVirtualThreadPerTaskExecutor();
+        if (virtualThreadExecutor != null) {
+            LOG.debug(format("Using virtual threads, parallelism %d", parallelism));
+            return new BoundedExecutorService(virtualThreadExecutor, parallelism);
+        }
+
+        LOG.debug(format("Using platform threads, parallelism %d", parallelism));
+        return newPlatformExecutor(parallelism, "duplicate-finder-%d");
+    }
+
+    /**
+     * Creates a new executor with a fixed number of platform threads. Used for coarse grained tasks that mostly wait for work on an I/O executor.
+     * A parallelism of one returns an executor that runs all tasks in the calling thread.
+     */
+    public static ExecutorService newPlatformExecutor(final int parallelism, final String nameFormat) {
+        checkArgument(parallelism > 0, "parallelism must be positive");
+        checkNotNull(nameFormat, "nameFormat is null");
+
+        if (parallelism == 1) {
+            return MoreExecutors.newDirectExecutorService();
+        }
+
+        return Executors.newFixedThreadPool(parallelism, new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .build());
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (Runtime.version().feature() < 21) {
+            return null;
+        }
+
+        try {
+            // The plugin is compiled for Java 11, so the JDK 21 API can only be reached reflectively.
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            LOG.debug("Could not create virtual thread executor, falling back to platform threads", e);
+            return null;
+        }
+    }
+
+    /**
+     * Limits the number of tasks that are running at the same time. Submitting a task blocks the caller until a permit becomes available.
+     */
+    private static final class BoundedExecutorService extends AbstractExecutorService {
+
+        private final ExecutorService delegate;
+        private final Semaphore taskPermits;
+
+        private BoundedExecutorService(final ExecutorService delegate, final int parallelism) {
+            this.delegate = checkNotNull(delegate, "delegate is null");
+            this.taskPermits = new Semaphore(parallelism);
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            checkNotNull(command, "command is null");
+
+            try {
+                taskPermits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a permit", e);
+            }
+
+            try {
+                delegate.execute(() -> {
+                    try {
+                        command.run();
+                    } finally {
+                        taskPermits.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                taskPermits.release();
+                throw e;
+            }
+        }
+
+        @Override
+        public void shutdown() {
+            delegate.shutdown();
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return delegate.shutdownNow();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return delegate.isShutdown();
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return delegate.isTerminated();
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return delegate.awaitTermination(timeout, unit);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArtifact;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Cache;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Counter;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.ElementMetrics;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase;
+import org.basepom.mojo.duplicatefinder.FlightRecorderEvents.ResultWriteEvent;
+import org.basepom.mojo.duplicatefinder.PatternProfiler.PatternStatistics;
+import org.basepom.mojo.duplicatefinder.ResultCollector.ConflictResult;
+import org.basepom.mojo.duplicatefinder.artifact.MavenCoordinates;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Writes the result file in <a href="https://jsonlines.org/">JSON Lines</a> format. Every line is a self-contained JSON object with a <code>record</code>
+ * field:
+ * <ul>
+ *     <li><code>header</code> - the first line, contains the format version and the project</li>
+ *     <li><code>conflict</code> - one line per conflict and classpath scope</li>
+ *     <li><code>result</code> - the overall result of a classpath scope, written after its conflicts</li>
+ *     <li><code>metrics</code> - timings and counters of the check, written before the summary</li>
+ *     <li><code>summary</code> - the last line, contains the overall result of all classpath scopes</li>
+ * </ul>
+ * Every classpath scope is written as soon as its check has finished.
+ */
+final class JsonLinesResultSink implements ResultSink {
+
+    private static final int SAVE_FILE_VERSION = 1;
+
+    private final File resultFile;
+    private final MavenProject project;
+    private final ExecutionMetrics metrics;
+
+    private Writer writer = null;
+    private final List<String> classpathNames = new ArrayList<>();
+    private int conflictCount = 0;
+    private ConflictState conflictState = ConflictState.NO_CONFLICT;
+    private boolean failed = false;
+
+    JsonLinesResultSink(final File resultFile, final MavenProject project, final ExecutionMetrics metrics) {
+        this.resultFile = checkNotNull(resultFile, "resultFile is null");
+        this.project = checkNotNull(project, "project is null");
+        this.metrics = checkNotNull(metrics, "metrics is null");
+    }
+
+    @Override
+    public void start() throws MojoExecutionException {
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(ResultFileSink.openResultFile(resultFile), StandardCharsets.UTF_8));
+
+            final Artifact projectArtifact = project.getArtifact();
+            writeRecord(new JsonObject()
+                    .add("record", "header")
+                    .add("version", SAVE_FILE_VERSION)
+                    .add("project", new JsonObject()
+                            .add("groupId", projectArtifact.getGroupId())
+                            .add("artifactId", projectArtifact.getArtifactId())
+                            .add("version", projectArtifact.getVersion())
+                            .add("classifier", projectArtifact.getClassifier())
+                            .add("type", projectArtifact.getType())));
+        } catch (IOException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+    }
+
+    @Override
+    public void addResult(final String classpathName, final ResultCollector resultCollector, final ClasspathDescriptor classpathDescriptor)
+            throws MojoExecutionException, OverConstrainedVersionException {
+        checkState(writer != null, "result file was not started");
+
+        final ResultWriteEvent event = new ResultWriteEvent();
+        event.begin();
+
+        try {
+            int classpathConflictCount = 0;
+            for (Map.Entry<String, Collection<ConflictResult>> entry : resultCollector.getAllResults().entrySet()) {
+                for (ConflictResult conflictResult : entry.getValue()) {
+                    writeRecord(new JsonObject()
+                            .add("record", "conflict")
+                            .add("scope", classpathName)
+                            .add("type", conflictResult.getType())
+                            .add("name", conflictResult.getName())
+                            .add("conflictState", conflictResult.getConflictState())
+                            .add("excepted", conflictResult.isExcepted())
+                            .add("printed", conflictResult.isPrinted())
+                            .add("failed", conflictResult.isFailed())
+                            .add("conflictName", entry.getKey())
+                            .add("elements", getClasspathElements(conflictResult)));
+                    classpathConflictCount++;
+                }
+            }
+
+            writeRecord(new JsonObject()
+                    .add("record", "result")
+                    .add("scope", classpathName)
+                    .add("conflictState", resultCollector.getConflictState())
+                    .add("failed", resultCollector.isFailed())
+                    .add("conflicts", classpathConflictCount));
+
+            // every scope is complete on disk, even if a later scope fails.
+            writer.flush();
+
+            classpathNames.add(classpathName);
+            conflictCount += classpathConflictCount;
+            conflictState = ConflictState.max(conflictState, resultCollector.getConflictState());
+            failed |= resultCollector.isFailed();
+
+            ResultFileSink.commitResultWriteEvent(event, resultFile, classpathName, classpathConflictCount);
+        } catch (IOException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+    }
+
+    @Override
+    public void finish() throws MojoExecutionException {
+        checkState(writer != null, "result file was not started");
+
+        final ResultWriteEvent event = new ResultWriteEvent();
+        event.begin();
+
+        try {
+            writeRecord(getMetrics());
+
+            writeRecord(new JsonObject()
+                    .add("record", "summary")
+                    .add("scopes", classpathNames)
+                    .add("conflictState", conflictState)
+                    .add("failed", failed)
+                    .add("conflicts", conflictCount));
+
+            writer.close();
+            writer = null;
+
+            ResultFileSink.commitResultWriteEvent(event, resultFile, null, 0);
+        } catch (IOException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+    }
+
+    @Override
+    public void abort() {
+        ResultFileSink.abortResultFile(writer, resultFile);
+        writer = null;
+    }
+
+    private JsonObject getMetrics() {
+        final JsonObject phases = new JsonObject();
+        for (Phase phase : Phase.values()) {
+            phases.add(phase.getKey(), metrics.getMillis(phase));
+        }
+
+        final JsonObject counters = new JsonObject();
+        for (Counter counter : Counter.values()) {
+            counters.add(counter.getKey(), metrics.getCount(counter));
+        }
+
+        final JsonObject caches = new JsonObject();
+        for (Cache cache : Cache.values()) {
+            caches.add(cache.getKey(), new JsonObject()
+                    .add("requests", metrics.getCacheRequests(cache))
+                    .add("hits", metrics.getCacheHits(cache)));
+        }
+
+        final List<JsonObject> slowestElements = new ArrayList<>();
+        for (ElementMetrics elementMetrics : metrics.getSlowestElements()) {
+            final File element = elementMetrics.getElement();
+            slowestElements.add(new JsonObject()
+                    .add(element.isDirectory() ? "directory" : "file", element.getPath())
+                    .add("time", elementMetrics.getMillis())
+                    .add("entries", elementMetrics.getEntries()));
+        }
+
+        List<JsonObject> patterns = null;
+        if (metrics.getPatternProfiler().isEnabled()) {
+            patterns = new ArrayList<>();
+            for (PatternStatistics statistics : metrics.getPatternProfiler().getStatistics()) {
+                patterns.add(new JsonObject()
+                        .add("list", statistics.getList())
+                        .add("pattern", statistics.getPattern())
+                        .add("evaluations", statistics.getEvaluations())
+                        .add("matches", statistics.getMatches())
+                        .add("timeMicros", statistics.getMicros()));
+            }
+        }
+
+        return new JsonObject()
+                .add("record", "metrics")
+                .add("elapsedTime", metrics.getElapsedMillis())
+                .add("phases", phases)
+                .add("counters", counters)
+                .add("caches", caches)
+                .add("slowestElements", slowestElements)
+                .add("patterns", patterns);
+    }
+
+    private static List<JsonObject> getClasspathElements(final ConflictResult conflictResult) throws OverConstrainedVersionException {
+        final List<JsonObject> elements = new ArrayList<>(conflictResult.getClasspathElements().size());
+        for (ClasspathElement classpathElement : conflictResult.getClasspathElements()) {
+            final JsonObject element = new JsonObject()
+                    .add("name", classpathElement.getName())
+                    .add("localFolder", classpathElement.isLocalFolder())
+                    .add("bootClasspathElement", classpathElement.isBootClasspathElement());
+
+            if (classpathElement.hasArtifact()) {
+                final MavenCoordinates coordinates = new MavenCoordinates(((ClasspathArtifact) classpathElement).getArtifact());
+                element.add("artifact", new JsonObject()
+                        .add("groupId", coordinates.getGroupId())
+                        .add("artifactId", coordinates.getArtifactId())
+                        .add("version", coordinates.getVersion().orElse(null))
+                        .add("classifier", coordinates.getClassifier().orElse(null))
+                        .add("type", coordinates.getType()));
+            } else {
+                final File file = classpathElement.getFile();
+                element.add(file.isDirectory() ? "directory" : "file", file.getPath());
+            }
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    private void writeRecord(final JsonObject record) throws IOException {
+        writer.write(record.toString());
+        writer.write('\n');
+    }
+
+    /**
+     * Minimal JSON object builder. Values are written as JSON literals (booleans, numbers), nested objects, arrays (iterables) or strings (everything else).
+     * Null values are omitted.
+     */
+    private static final class JsonObject {
+
+        private final StringBuilder json = new StringBuilder("{");
+
+        private JsonObject add(final String key, final Object value) {
+            if (value != null) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                appendString(json, key);
+                json.append(':');
+                appendValue(json, value);
+            }
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return json + "}";
+        }
+
+        private static void appendValue(final StringBuilder json, final Object value) {
+            if (value instanceof Boolean || value instanceof Number || value instanceof JsonObject) {
+                json.append(value);
+            } else if (value instanceof Iterable) {
+                json.append('[');
+                boolean first = true;
+                for (Object item : (Iterable<?>) value) {
+                    if (!first) {
+                        json.append(',');
+                    }
+                    appendValue(json, item);
+                    first = false;
+                }
+                json.append(']');
+            } else {
+                appendString(json, value.toString());
+            }
+        }
+
+        private static void appendString(final StringBuilder json, final String value) {
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                final char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        json.append("\\\"");
+                        break;
+                    case '\\':
+                        json.append("\\\\");
+                        break;
+                    case '\n':
+                        json.append("\\n");
+                        break;
+                    case '\r':
+                        json.append("\\r");
+                        break;
+                    case '\t':
+                        json.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            json.append('"');
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.ResultCollector.ConflictResult;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Map;
+
+import com.google.common.collect.Iterables;
+import org.slf4j.Logger;
+
+/**
+ * Reports the conflicts that should be printed to the build log. Conflicts are grouped by the conflicting classpath elements. If the number of names that are
+ * printed per group is limited, each group reports its size and only the first names.
+ */
+final class LogResultSink implements ResultSink {
+
+    private final Logger log;
+    private final EnumSet<ConflictState> printState;
+    private final int maxReportedConflicts;
+    private final boolean resultFileWritten;
+
+    /**
+     * @param log                  The log that the conflicts are reported to.
+     * @param printState           Conflict states that are printed.
+     * @param maxReportedConflicts Maximum number of class or resource names that are printed for each group of conflicting classpath elements. 0 prints all
+     *                             names.
+     * @param resultFileWritten    True if all conflicts are also written to a result file.
+     */
+    LogResultSink(final Logger log, final EnumSet<ConflictState> printState, final int maxReportedConflicts, final boolean resultFileWritten) {
+        this.log = checkNotNull(log, "log is null");
+        this.printState = checkNotNull(printState, "printState is null");
+        this.maxReportedConflicts = maxReportedConflicts;
+        this.resultFileWritten = resultFileWritten;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void addResult(final String classpathName, final ResultCollector resultCollector, final ClasspathDescriptor classpathDescriptor) {
+        if (!log.isWarnEnabled()) {
+            return;
+        }
+
+        for (final ConflictState state : printState) {
+            for (final ConflictType type : ConflictType.values()) {
+                if (resultCollector.hasConflictsFor(type, state)) {
+                    final Map<String, Collection<ConflictResult>> results = resultCollector.getResults(type, state);
+                    for (final Map.Entry<String, Collection<ConflictResult>> entry : results.entrySet()) {
+                        final String artifactNames = entry.getKey();
+                        final Collection<ConflictResult> conflictResults = entry.getValue();
+
+                        if (maxReportedConflicts > 0) {
+                            reportSummary(state, type, artifactNames, conflictResults);
+                        } else {
+                            log.warn(format("Found duplicate %s %s in [%s]:", state.getHint(), type.getType(), artifactNames));
+                            for (final ConflictResult conflictResult : conflictResults) {
+                                log.warn(format("  %s", conflictResult.getName()));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (resultCollector.isFailed()) {
+            log.warn(format("Found duplicate classes/resources in %s classpath.", classpathName));
+        }
+    }
+
+    private void reportSummary(final ConflictState state, final ConflictType type, final String artifactNames,
+            final Collection<ConflictResult> conflictResults) {
+        log.warn(format("Found %d duplicate %s %s in [%s]:", conflictResults.size(), state.getHint(), type.getType(), artifactNames));
+
+        // Only the names that are printed are formatted.
+        for (final ConflictResult conflictResult : Iterables.limit(conflictResults, maxReportedConflicts)) {
+            log.warn(format("  %s", conflictResult.getName()));
+        }
+
+        final int remaining = conflictResults.size() - maxReportedConflicts;
+        if (remaining > 0) {
+            log.warn(format("  ... and %d more%s", remaining, resultFileWritten ? " (see result file)" : ""));
+        }
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void abort() {
+    }
+}
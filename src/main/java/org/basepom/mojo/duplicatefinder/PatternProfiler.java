@@ -0,0 +1,148 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.google.common.collect.ImmutableList;
+
+/**
+ * Counts the evaluations, matches and match time of the ignore and exception patterns. Patterns are grouped by the list they were configured in, the same
+ * pattern in different lists is counted separately.
+ * <p>
+ * This class is thread safe. A disabled profiler records nothing, callers should use the plain patterns instead of asking for statistics.
+ */
+public final class PatternProfiler {
+
+    /** Default patterns for resources that are ignored. */
+    public static final String DEFAULT_RESOURCES = "defaultIgnoredResources";
+    /** User patterns for resources that are ignored (<code>ignoredResourcePatterns</code>). */
+    public static final String RESOURCES = "ignoredResources";
+    /** Default patterns for classes that are ignored. */
+    public static final String DEFAULT_CLASSES = "defaultIgnoredClasses";
+    /** User patterns for classes that are ignored (<code>ignoredClassPatterns</code>). */
+    public static final String CLASSES = "ignoredClasses";
+    /** Resource patterns of the exceptions (<code>resourcePatterns</code>). */
+    public static final String EXCEPTION_RESOURCES = "exceptionResources";
+
+    private static final PatternProfiler DISABLED = new PatternProfiler(false);
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, PatternStatistics> statistics = new ConcurrentHashMap<>();
+
+    public static PatternProfiler disabled() {
+        return DISABLED;
+    }
+
+    public PatternProfiler() {
+        this(true);
+    }
+
+    private PatternProfiler(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the statistics for a pattern in a pattern list. All callers with the same list and pattern share the same statistics.
+     */
+    public PatternStatistics getStatistics(final String list, final Pattern pattern) {
+        checkState(enabled, "pattern profiler is disabled");
+        checkNotNull(list, "list is null");
+        checkNotNull(pattern, "pattern is null");
+
+        return statistics.computeIfAbsent(list + '\u0000' + pattern.pattern(), k -> new PatternStatistics(list, pattern));
+    }
+
+    /**
+     * Returns the statistics of all patterns that were used, the most expensive patterns first.
+     */
+    public List<PatternStatistics> getStatistics() {
+        final List<PatternStatistics> result = new ArrayList<>(statistics.values());
+        result.sort(Comparator.comparingLong(PatternStatistics::getNanos).reversed()
+                .thenComparing(PatternStatistics::getList)
+                .thenComparing(PatternStatistics::getPattern));
+        return ImmutableList.copyOf(result);
+    }
+
+    /**
+     * Evaluations, matches and cumulative match time of a single pattern.
+     */
+    public static final class PatternStatistics {
+
+        private final String list;
+        private final Pattern pattern;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder matches = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private PatternStatistics(final String list, final Pattern pattern) {
+            this.list = list;
+            this.pattern = pattern;
+        }
+
+        /**
+         * Matches the pattern against the input and records the evaluation.
+         */
+        public boolean matches(final CharSequence input) {
+            final long startNanos = System.nanoTime();
+            final boolean match = pattern.matcher(input).matches();
+            nanos.add(System.nanoTime() - startNanos);
+
+            evaluations.increment();
+            if (match) {
+                matches.increment();
+            }
+            return match;
+        }
+
+        public String getList() {
+            return list;
+        }
+
+        public String getPattern() {
+            return pattern.pattern();
+        }
+
+        public long getEvaluations() {
+            return evaluations.sum();
+        }
+
+        public long getMatches() {
+            return matches.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+
+        public long getMicros() {
+            return TimeUnit.NANOSECONDS.toMicros(getNanos());
+        }
+    }
+}
@@ -14,11 +14,16 @@
 
 package org.basepom.mojo.duplicatefinder;
 
-import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
 import java.util.stream.Collectors;
@@ -26,31 +31,51 @@ import java.util.stream.Collectors;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimap;
 import com.google.common.collect.MultimapBuilder.SetMultimapBuilder;
-import com.google.common.collect.Multimaps;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+/**
+ * Collects the conflicts of a classpath check. Conflicts that are not excepted are sorted into buckets by type and conflict state when they are added, so the
+ * results for a type and state are available without filtering all conflicts.
+ */
 @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
 public class ResultCollector {
 
     private final EnumSet<ConflictState> printState;
     private final EnumSet<ConflictState> failState;
+    private final boolean retainAllResults;
 
-    private final EnumMap<ConflictType, EnumSet<ConflictState>> seenResults = new EnumMap<>(ConflictType.class);
+    // Conflicts that are not excepted, by type and conflict state. Each bucket is keyed by the conflict name.
+    private final EnumMap<ConflictType, EnumMap<ConflictState, ListMultimap<String, ConflictResult>>> buckets = new EnumMap<>(ConflictType.class);
 
-    private final ListMultimap<String, ConflictResult> results = SetMultimapBuilder.linkedHashKeys()
+    // Excepted conflicts, keyed by the conflict name. Only kept if all results are retained.
+    private final ListMultimap<String, ConflictResult> exceptedResults = SetMultimapBuilder.linkedHashKeys()
             .arrayListValues()
             .build();
 
+    // Conflicts between the same classpath elements share the element set (see ArtifactFileResolver), and the conflict name that is built from it.
+    private final Map<SortedSet<ClasspathElement>, String> conflictNames = new IdentityHashMap<>();
+
     private ConflictState conflictState = ConflictState.NO_CONFLICT;
+    private int conflictCount = 0;
 
     ResultCollector(final EnumSet<ConflictState> printState, final EnumSet<ConflictState> failState) {
+        this(printState, failState, true);
+    }
+
+    /**
+     * @param printState       Conflict states that are reported.
+     * @param failState        Conflict states that fail the build.
+     * @param retainAllResults If false, excepted conflicts are dropped and only the results for a type and state are available. This saves memory if no
+     *                         result file is written.
+     */
+    ResultCollector(final EnumSet<ConflictState> printState, final EnumSet<ConflictState> failState, final boolean retainAllResults) {
         this.printState = printState;
         this.failState = failState;
+        this.retainAllResults = retainAllResults;
 
         for (ConflictType conflictType : ConflictType.values()) {
-            seenResults.put(conflictType, EnumSet.noneOf(ConflictState.class));
+            buckets.put(conflictType, new EnumMap<>(ConflictState.class));
         }
     }
 
@@ -62,37 +87,68 @@ public class ResultCollector {
         return failState.contains(conflictState);
     }
 
+    /**
+     * Returns the number of conflicts that were added, including excepted conflicts that were dropped.
+     */
+    int getConflictCount() {
+        return conflictCount;
+    }
+
     public boolean hasConflictsFor(ConflictType type, ConflictState state) {
-        return seenResults.get(type).contains(state);
+        return buckets.get(type).containsKey(state);
     }
 
     public void addConflict(ConflictType type, String name, SortedSet<ClasspathElement> conflictingClasspathElements, boolean excepted,
             final ConflictState state) {
-        if (!excepted) {
-            this.conflictState = ConflictState.max(this.conflictState, state);
+        conflictCount++;
 
-            // Record the type of conflicts seen.
-            seenResults.get(type).add(state);
+        if (excepted && !retainAllResults) {
+            return;
         }
 
-        ConflictResult conflictResult = new ConflictResult(type, name, conflictingClasspathElements, excepted, state);
+        final String conflictName = conflictNames.computeIfAbsent(conflictingClasspathElements, ResultCollector::buildConflictName);
+        ConflictResult conflictResult = new ConflictResult(conflictCount, type, name, conflictingClasspathElements, conflictName, excepted, state);
+
+        if (excepted) {
+            exceptedResults.put(conflictName, conflictResult);
+        } else {
+            this.conflictState = ConflictState.max(this.conflictState, state);
 
-        results.put(conflictResult.getConflictName(), conflictResult);
+            buckets.get(type).computeIfAbsent(state, k -> SetMultimapBuilder.linkedHashKeys().arrayListValues().build()).put(conflictName, conflictResult);
+        }
     }
 
     public Map<String, Collection<ConflictResult>> getResults(final ConflictType type, final ConflictState state) {
-        Multimap<String, ConflictResult> result = Multimaps.filterValues(results, conflictResult -> {
-            checkNotNull(conflictResult, "conflictResult is null");
-            return conflictResult.getConflictState() == state
-                    && conflictResult.getType() == type
-                    && !conflictResult.isExcepted();
-        });
-
-        return ImmutableMap.copyOf(result.asMap());
+        final ListMultimap<String, ConflictResult> bucket = buckets.get(type).get(state);
+        if (bucket == null) {
+            return ImmutableMap.of();
+        }
+        return Collections.unmodifiableMap(bucket.asMap());
     }
 
+    /**
+     * Returns all conflicts including excepted ones, keyed by the conflict name, in the order in which they were added.
+     */
     Map<String, Collection<ConflictResult>> getAllResults() {
-        return ImmutableMap.copyOf(results.asMap());
+        checkState(retainAllResults, "excepted results were dropped");
+
+        final List<ConflictResult> allResults = new ArrayList<>(exceptedResults.values());
+        for (final EnumMap<ConflictState, ListMultimap<String, ConflictResult>> typeBuckets : buckets.values()) {
+            for (final ListMultimap<String, ConflictResult> bucket : typeBuckets.values()) {
+                allResults.addAll(bucket.values());
+            }
+        }
+        // the buckets do not keep the order across types and states, restore the order in which the conflicts were found.
+        allResults.sort(Comparator.comparingInt(ConflictResult::getIndex));
+
+        final ListMultimap<String, ConflictResult> results = SetMultimapBuilder.linkedHashKeys()
+                .arrayListValues()
+                .build();
+        for (final ConflictResult conflictResult : allResults) {
+            results.put(conflictResult.getConflictName(), conflictResult);
+        }
+
+        return Collections.unmodifiableMap(results.asMap());
     }
 
     private static String buildConflictName(final SortedSet<ClasspathElement> conflictArtifactNames) {
@@ -103,6 +159,7 @@ public class ResultCollector {
 
     public class ConflictResult {
 
+        private final int index;
         private final ConflictType type;
         private final String name;
         private final SortedSet<ClasspathElement> classpathElements;
@@ -110,23 +167,30 @@ public class ResultCollector {
         private final ConflictState conflictState;
         private final String conflictName;
 
-        ConflictResult(final ConflictType type,
+        ConflictResult(final int index,
+                final ConflictType type,
                 final String name,
                 final SortedSet<ClasspathElement> classpathElements,
+                final String conflictName,
                 final boolean excepted,
                 final ConflictState conflictState) {
+            this.index = index;
             this.type = type;
             this.name = name;
             this.classpathElements = classpathElements;
+            this.conflictName = conflictName;
             this.excepted = excepted;
             this.conflictState = conflictState;
-            this.conflictName = ResultCollector.buildConflictName(classpathElements);
         }
 
         public String getName() {
             return name;
         }
 
+        private int getIndex() {
+            return index;
+        }
+
         public ConflictType getType() {
             return type;
         }
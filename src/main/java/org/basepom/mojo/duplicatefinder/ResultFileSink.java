@@ -0,0 +1,211 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.FlightRecorderEvents.ResultWriteEvent;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+import javax.xml.stream.XMLStreamException;
+
+import com.google.common.base.Strings;
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.stax2.XMLOutputFactory2;
+import org.codehaus.staxmate.SMOutputFactory;
+import org.codehaus.staxmate.out.SMOutputDocument;
+import org.codehaus.staxmate.out.SMOutputElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the XML result file. The header is written when the check starts, and the result for each classpath is written as soon as it is available, so
+ * the results of a classpath do not need to be kept after they have been written. If the file name ends with <code>.gz</code>, the file is compressed.
+ */
+final class ResultFileSink implements ResultSink {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResultFileSink.class);
+
+    private static final int SAVE_FILE_VERSION = 1;
+
+    private final File resultFile;
+    private final MavenProject project;
+    private final ConfigurationWriter configurationWriter;
+    private final int resultFileMinClasspathCount;
+    private final boolean indent;
+    private final ExecutionMetrics metrics;
+
+    private OutputStream outputStream = null;
+    private SMOutputDocument resultDocument = null;
+    private SMOutputElement rootElement = null;
+    private SMOutputElement resultsElement = null;
+
+    ResultFileSink(final File resultFile, final MavenProject project, final ConfigurationWriter configurationWriter, final int resultFileMinClasspathCount,
+            final boolean indent, final ExecutionMetrics metrics) {
+        this.resultFile = checkNotNull(resultFile, "resultFile is null");
+        this.project = checkNotNull(project, "project is null");
+        this.configurationWriter = checkNotNull(configurationWriter, "configurationWriter is null");
+        this.resultFileMinClasspathCount = resultFileMinClasspathCount;
+        this.indent = indent;
+        this.metrics = checkNotNull(metrics, "metrics is null");
+    }
+
+    /**
+     * Opens a result file for writing. Creates all missing parent folders. If the file name ends with <code>.gz</code>, the returned stream compresses
+     * the output.
+     */
+    static OutputStream openResultFile(final File resultFile) throws MojoExecutionException, IOException {
+        File parent = resultFile.getParentFile();
+        if (!parent.exists()) {
+            if (!parent.mkdirs()) {
+                throw new MojoExecutionException("Could not create parent folders for " + parent.getAbsolutePath());
+            }
+        }
+        if (!parent.isDirectory() || !parent.canWrite()) {
+            throw new MojoExecutionException("Can not create result file in " + parent.getAbsolutePath());
+        }
+
+        OutputStream outputStream = new BufferedOutputStream(Files.newOutputStream(resultFile.toPath()));
+        if (resultFile.getName().endsWith(".gz")) {
+            outputStream = new GZIPOutputStream(outputStream);
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void start() throws MojoExecutionException {
+        try {
+            outputStream = openResultFile(resultFile);
+
+            SMOutputFactory factory = new SMOutputFactory(XMLOutputFactory2.newFactory());
+            resultDocument = factory.createOutputDocument(outputStream);
+            if (indent) {
+                resultDocument.setIndentation("\n" + Strings.repeat(" ", 64), 1, 4);
+            }
+
+            rootElement = resultDocument.addElement("duplicate-finder-result");
+            XMLWriterUtils.addAttribute(rootElement, "version", SAVE_FILE_VERSION);
+
+            XMLWriterUtils.addProjectInformation(rootElement, project);
+
+            configurationWriter.addConfiguration(rootElement);
+
+            resultsElement = rootElement.addElement("results");
+        } catch (IOException | XMLStreamException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+    }
+
+    @Override
+    public void addResult(final String classpathName, final ResultCollector resultCollector, final ClasspathDescriptor classpathDescriptor)
+            throws MojoExecutionException, OverConstrainedVersionException {
+        checkState(resultsElement != null, "result file was not started");
+
+        final ResultWriteEvent event = new ResultWriteEvent();
+        event.begin();
+
+        try {
+            SMOutputElement resultElement = resultsElement.addElement("result");
+            XMLWriterUtils.addAttribute(resultElement, "name", classpathName);
+            XMLWriterUtils.addResultCollector(resultElement, resultCollector);
+            XMLWriterUtils.addClasspathDescriptor(resultElement, resultFileMinClasspathCount, classpathDescriptor);
+        } catch (XMLStreamException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+
+        commitResultWriteEvent(event, resultFile, classpathName, resultCollector.getConflictCount());
+    }
+
+    @Override
+    public void finish() throws MojoExecutionException {
+        checkState(resultDocument != null, "result file was not started");
+
+        final ResultWriteEvent event = new ResultWriteEvent();
+        event.begin();
+
+        try {
+            XMLWriterUtils.addMetrics(rootElement, metrics);
+            resultDocument.closeRootAndWriter();
+            // the XML writer does not close the underlying stream, this also writes the gzip trailer.
+            outputStream.close();
+            outputStream = null;
+        } catch (IOException | XMLStreamException e) {
+            throw new MojoExecutionException("While writing result file", e);
+        }
+
+        commitResultWriteEvent(event, resultFile, null, 0);
+    }
+
+    @Override
+    public void abort() {
+        abortResultFile(outputStream, resultFile);
+        outputStream = null;
+    }
+
+    /**
+     * Closes a result file that could not be finished and removes it, so that a failed check does not leave a truncated result file behind. Does nothing
+     * if the result file has not been opened.
+     */
+    static void abortResultFile(final Closeable output, final File resultFile) {
+        if (output == null) {
+            return;
+        }
+
+        try {
+            output.close();
+        } catch (IOException e) {
+            LOG.debug(format("While closing %s", resultFile), e);
+        }
+
+        try {
+            Files.deleteIfExists(resultFile.toPath());
+        } catch (IOException e) {
+            LOG.warn(format("Could not remove incomplete result file %s", resultFile), e);
+        }
+    }
+
+    /**
+     * Commits a result write event. A <code>null</code> section marks the end of the result file, the event then contains the size of the file.
+     */
+    static void commitResultWriteEvent(final ResultWriteEvent event, final File resultFile, final String section, final int conflicts) {
+        if (event.shouldCommit()) {
+            event.file = resultFile.getPath();
+            event.section = section == null ? "finish" : section;
+            event.conflicts = conflicts;
+            event.bytes = section == null ? resultFile.length() : 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the plugin configuration into the result file.
+     */
+    @FunctionalInterface
+    interface ConfigurationWriter {
+
+        void addConfiguration(SMOutputElement rootElement) throws XMLStreamException;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+
+import org.apache.maven.artifact.versioning.OverConstrainedVersionException;
+import org.apache.maven.plugin.MojoExecutionException;
+
+/**
+ * Receives the result of each classpath check as soon as the check has finished. Results are delivered in the order of the checked classpaths
+ * (compile, runtime, test).
+ */
+interface ResultSink {
+
+    /**
+     * Called once before any result is delivered.
+     */
+    void start() throws MojoExecutionException;
+
+    /**
+     * Called once for every classpath that has been checked.
+     */
+    void addResult(String classpathName, ResultCollector resultCollector, ClasspathDescriptor classpathDescriptor)
+            throws MojoExecutionException, OverConstrainedVersionException;
+
+    /**
+     * Called once after all results have been delivered.
+     */
+    void finish() throws MojoExecutionException;
+
+    /**
+     * Called instead of {@link #finish()} if the check did not complete, e.g. because a classpath could not be checked. Releases all resources and
+     * removes a partially written result file. Does nothing if the sink has not been started or has already been finished.
+     */
+    void abort();
+}
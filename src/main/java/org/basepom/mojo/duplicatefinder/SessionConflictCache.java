@@ -0,0 +1,138 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import org.basepom.mojo.duplicatefinder.artifact.ArtifactFileResolver;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.MapMaker;
+
+/**
+ * Shares conflict states and the resolved classpath elements of conflicts between all modules of a build. Sibling modules often have the same conflicts
+ * between the same archives; later modules reuse the results of the first one instead of hashing the content again.
+ * <p>
+ * Only conflicts between archives are shared, they are identified by path, size and modification time (see {@link ElementKeys}). Conflicts that involve a
+ * folder (e.g. the <code>target/classes</code> folder of a module) can change while the build runs and are always evaluated.
+ */
+public final class SessionConflictCache {
+
+    // Modules that are built in parallel get a copy of the session, but all of them share the execution request.
+    private static final ConcurrentMap<Object, Store> STORES = new MapMaker().weakKeys().makeMap();
+
+    private static final SessionConflictCache DISABLED = new SessionConflictCache(null);
+
+    private final Store store;
+    private final ElementKeys elementKeys = new ElementKeys();
+    private final AtomicInteger reused = new AtomicInteger();
+
+    /**
+     * Returns a cache that never has a result and does not store anything.
+     */
+    public static SessionConflictCache disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Returns a cache for a single plugin execution that shares its results with all other executions of the same build.
+     *
+     * @param build Identifies the build, e.g. the execution request of the Maven session. The results are dropped when it is garbage collected. If null, the
+     *              cache is disabled.
+     */
+    public static SessionConflictCache forBuild(final Object build) {
+        if (build == null) {
+            return DISABLED;
+        }
+        return new SessionConflictCache(STORES.computeIfAbsent(build, k -> new Store()));
+    }
+
+    private SessionConflictCache(final Store store) {
+        this.store = store;
+    }
+
+    public int getReusedCount() {
+        return reused.get();
+    }
+
+    /**
+     * Returns true if another module has already evaluated a conflict.
+     */
+    boolean hasConflictState(final ConflictType type, final String name, final Collection<File> elements) {
+        if (store == null || store.conflictStates.isEmpty()) {
+            return false;
+        }
+        final Optional<String> key = elementKeys.getKey(type, name, elements);
+        return key.isPresent() && store.conflictStates.containsKey(key.get());
+    }
+
+    /**
+     * Returns the conflict state if another module has already evaluated a conflict.
+     */
+    Optional<ConflictState> getConflictState(final ConflictType type, final String name, final Collection<File> elements) {
+        if (store == null || store.conflictStates.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final Optional<ConflictState> conflictState = elementKeys.getKey(type, name, elements).map(store.conflictStates::get);
+        if (conflictState.isPresent()) {
+            reused.incrementAndGet();
+        }
+        return conflictState;
+    }
+
+    void putConflictState(final ConflictType type, final String name, final Collection<File> elements, final ConflictState conflictState) {
+        checkNotNull(conflictState, "conflictState is null");
+
+        if (store == null) {
+            return;
+        }
+        elementKeys.getKey(type, name, elements).ifPresent(key -> store.conflictStates.put(key, conflictState));
+    }
+
+    /**
+     * Returns the classpath elements for a set of conflicting files. An archive always resolves to the same artifacts, so the classpath elements for a set of
+     * archives are only resolved once per build. A folder resolves differently in each module (e.g. the output folder of a module is a local folder in the
+     * module itself, but an artifact in the modules that depend on it), so sets that contain a folder are always passed to the resolver of the module.
+     *
+     * @param resolver Resolves the classpath elements for a set of files, e.g. {@link ArtifactFileResolver#getClasspathElementsForElements(Collection)}.
+     */
+    ImmutableSortedSet<ClasspathElement> getClasspathElements(final Collection<File> elements,
+            final Function<Collection<File>, ImmutableSortedSet<ClasspathElement>> resolver) {
+        if (store == null) {
+            return resolver.apply(elements);
+        }
+
+        final Optional<String> key = elementKeys.getKey(elements);
+        if (!key.isPresent()) {
+            return resolver.apply(elements);
+        }
+        return store.classpathElements.computeIfAbsent(key.get(), k -> resolver.apply(elements));
+    }
+
+    private static final class Store {
+
+        private final ConcurrentMap<String, ConflictState> conflictStates = new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, ImmutableSortedSet<ClasspathElement>> classpathElements = new ConcurrentHashMap<>();
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.google.common.collect.Multimap;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.maven.artifact.Artifact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides whether the inputs of a check have changed since the last run. A fingerprint is computed from the configuration, the classpath files (name, size
+ * and modification time) and the content of all classpath folders. If the fingerprint matches the one stored by the last run, its verdict can be reused.
+ */
+final class UpToDateCheck {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpToDateCheck.class);
+
+    private static final String FINGERPRINT_VERSION = "1";
+
+    private static final String FINGERPRINT_KEY = "fingerprint";
+    private static final String FAILED_KEY = "failed";
+
+    private final File fingerprintFile;
+    private final Hasher hasher = Hashing.sha256().newHasher();
+
+    private String fingerprint = null;
+
+    UpToDateCheck(final File fingerprintFile) {
+        this.fingerprintFile = checkNotNull(fingerprintFile, "fingerprintFile is null");
+
+        addString("version", FINGERPRINT_VERSION);
+    }
+
+    UpToDateCheck addString(final String key, final String value) {
+        checkState(fingerprint == null, "fingerprint was already computed");
+
+        hasher.putString(key, StandardCharsets.UTF_8).putByte((byte) 0);
+        hasher.putString(value, StandardCharsets.UTF_8).putByte((byte) 0);
+        return this;
+    }
+
+    /**
+     * Adds all files and folders of a classpath scope. Jar files are identified by name, size and modification time, folders by their content.
+     */
+    UpToDateCheck addClasspath(final String classpathName, final Multimap<File, Artifact> fileToArtifactMap) throws IOException {
+        checkNotNull(fileToArtifactMap, "fileToArtifactMap is null");
+
+        addString("classpath", classpathName);
+
+        final List<File> files = fileToArtifactMap.keySet().stream()
+                .sorted()
+                .collect(Collectors.toList());
+
+        for (final File file : files) {
+            final String artifactIds = fileToArtifactMap.get(file).stream()
+                    .map(Artifact::getId)
+                    .sorted()
+                    .collect(Collectors.joining(","));
+            addString("artifacts", artifactIds);
+            addFile(file);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a file or a folder tree.
+     */
+    UpToDateCheck addFile(final File file) throws IOException {
+        checkNotNull(file, "file is null");
+        checkState(fingerprint == null, "fingerprint was already computed");
+
+        addString("file", file.getAbsolutePath());
+
+        if (file.isDirectory()) {
+            final Path root = file.toPath();
+            try (Stream<Path> paths = Files.walk(root)) {
+                final List<Path> sortedPaths = paths.sorted(Comparator.comparing(Path::toString)).collect(Collectors.toList());
+                for (final Path path : sortedPaths) {
+                    addAttributes(root.relativize(path).toString(), Files.readAttributes(path, BasicFileAttributes.class));
+                }
+            }
+        } else if (file.exists()) {
+            addAttributes("", Files.readAttributes(file.toPath(), BasicFileAttributes.class));
+        }
+        return this;
+    }
+
+    private void addAttributes(final String name, final BasicFileAttributes attributes) {
+        hasher.putString(name, StandardCharsets.UTF_8).putByte((byte) 0);
+        hasher.putLong(attributes.size());
+        hasher.putLong(attributes.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * Returns the verdict (true if the check failed) of the last run if its fingerprint matches the current inputs.
+     */
+    Optional<Boolean> getPreviousVerdict() {
+        if (!fingerprintFile.isFile()) {
+            return Optional.empty();
+        }
+
+        final Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(fingerprintFile.toPath())) {
+            properties.load(in);
+        } catch (IOException e) {
+            LOG.debug(format("Could not read fingerprint file %s", fingerprintFile), e);
+            return Optional.empty();
+        }
+
+        if (!getFingerprint().equals(properties.getProperty(FINGERPRINT_KEY)) || properties.getProperty(FAILED_KEY) == null) {
+            return Optional.empty();
+        }
+
+        return Optional.of(Boolean.parseBoolean(properties.getProperty(FAILED_KEY)));
+    }
+
+    /**
+     * Removes the stored fingerprint. Called before a full run, so that an aborted run does not leave a stale verdict behind.
+     */
+    void invalidate() throws IOException {
+        Files.deleteIfExists(fingerprintFile.toPath());
+    }
+
+    /**
+     * Stores the fingerprint of the current inputs and the verdict of the current run.
+     */
+    void storeVerdict(final boolean failed) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT_KEY, getFingerprint());
+        properties.setProperty(FAILED_KEY, Boolean.toString(failed));
+
+        Files.createDirectories(fingerprintFile.getAbsoluteFile().getParentFile().toPath());
+        try (OutputStream out = Files.newOutputStream(fingerprintFile.toPath())) {
+            properties.store(out, "duplicate-finder input fingerprint");
+        }
+    }
+
+    private String getFingerprint() {
+        if (fingerprint == null) {
+            fingerprint = hasher.hash().toString();
+        }
+        return fingerprint;
+    }
+}
@@ -14,6 +14,12 @@
 
 package org.basepom.mojo.duplicatefinder;
 
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArtifact;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Cache;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Counter;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.ElementMetrics;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase;
+import org.basepom.mojo.duplicatefinder.PatternProfiler.PatternStatistics;
 import org.basepom.mojo.duplicatefinder.ResultCollector.ConflictResult;
 import org.basepom.mojo.duplicatefinder.artifact.MavenCoordinates;
 import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
@@ -67,6 +73,7 @@ public final class XMLWriterUtils {
 
         addAttribute(conflictingDependencyElement, "currentProject", conflictingDependency.hasCurrentProject());
         addAttribute(conflictingDependencyElement, "currentProjectIncluded", conflictingDependency.isCurrentProjectIncluded());
+        addAttribute(conflictingDependencyElement, "bootClasspath", conflictingDependency.hasBootClasspath());
         addAttribute(conflictingDependencyElement, "wildcard", conflictingDependency.isWildcard());
 
         SMOutputElement dependenciesElement = conflictingDependencyElement.addElement("dependencies");
@@ -154,8 +161,9 @@ public final class XMLWriterUtils {
             addAttribute(conflictName, "name", entry.getName());
             addAttribute(conflictName, "artifact", entry.hasArtifact());
             addAttribute(conflictName, "localFolder", entry.isLocalFolder());
+            addAttribute(conflictName, "bootClasspathElement", entry.isBootClasspathElement());
             if (entry.hasArtifact()) {
-                addArtifact(conflictName, "artifact", entry.getArtifact());
+                addArtifact(conflictName, "artifact", ((ClasspathArtifact) entry).getArtifact());
             } else {
                 final File file = entry.getFile();
                 if (file.isDirectory()) {
@@ -198,4 +206,53 @@ public final class XMLWriterUtils {
             }
         }
     }
+
+    public static void addMetrics(SMOutputElement rootElement, ExecutionMetrics metrics)
+            throws XMLStreamException {
+        SMOutputElement metricsElement = rootElement.addElement("metrics");
+        addAttribute(metricsElement, "elapsedTime", metrics.getElapsedMillis());
+
+        SMOutputElement phasesElement = metricsElement.addElement("phases");
+        for (Phase phase : Phase.values()) {
+            SMOutputElement phaseElement = phasesElement.addElement("phase");
+            addAttribute(phaseElement, "name", phase.getKey());
+            addAttribute(phaseElement, "time", metrics.getMillis(phase));
+        }
+
+        SMOutputElement countersElement = metricsElement.addElement("counters");
+        for (Counter counter : Counter.values()) {
+            SMOutputElement counterElement = countersElement.addElement("counter");
+            addAttribute(counterElement, "name", counter.getKey());
+            addAttribute(counterElement, "value", metrics.getCount(counter));
+        }
+
+        SMOutputElement cachesElement = metricsElement.addElement("caches");
+        for (Cache cache : Cache.values()) {
+            SMOutputElement cacheElement = cachesElement.addElement("cache");
+            addAttribute(cacheElement, "name", cache.getKey());
+            addAttribute(cacheElement, "requests", metrics.getCacheRequests(cache));
+            addAttribute(cacheElement, "hits", metrics.getCacheHits(cache));
+        }
+
+        SMOutputElement slowestElementsElement = metricsElement.addElement("slowestElements");
+        for (ElementMetrics elementMetrics : metrics.getSlowestElements()) {
+            SMOutputElement slowestElementElement = slowestElementsElement.addElement("slowestElement");
+            addAttribute(slowestElementElement, "time", elementMetrics.getMillis());
+            addAttribute(slowestElementElement, "entries", elementMetrics.getEntries());
+            addElement(slowestElementElement, elementMetrics.getElement().isDirectory() ? "directory" : "file", elementMetrics.getElement().getPath());
+        }
+
+        final PatternProfiler patternProfiler = metrics.getPatternProfiler();
+        if (patternProfiler.isEnabled()) {
+            SMOutputElement patternsElement = metricsElement.addElement("patterns");
+            for (PatternStatistics statistics : patternProfiler.getStatistics()) {
+                SMOutputElement patternElement = patternsElement.addElement("pattern");
+                addAttribute(patternElement, "list", statistics.getList());
+                addAttribute(patternElement, "evaluations", statistics.getEvaluations());
+                addAttribute(patternElement, "matches", statistics.getMatches());
+                addAttribute(patternElement, "timeMicros", statistics.getMicros());
+                patternElement.addCharacters(statistics.getPattern());
+            }
+        }
+    }
 }
@@ -22,19 +22,25 @@ import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.getTestOu
 import static org.basepom.mojo.duplicatefinder.artifact.ArtifactHelper.isTestArtifact;
 
 import org.basepom.mojo.duplicatefinder.ClasspathElement;
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArchive;
 import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArtifact;
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathBootClasspathElement;
 import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathLocalFolder;
+import org.basepom.mojo.duplicatefinder.classpath.JdkModules;
+import org.basepom.mojo.duplicatefinder.classpath.NestedArchives;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.ImmutableSet;
@@ -72,11 +78,25 @@ public class ArtifactFileResolver {
             .hashKeys()
             .hashSetValues()
             .build();
+    // Repository files by file name, to find the artifacts of nested archives.
+    private final Map<String, File> repoFileNames = new HashMap<>();
     private final boolean preferLocal;
 
+    // Most conflicts are between the same few classpath elements. Elements are resolved once per file, and conflicts between the same files share
+    // the same element set.
+    private final ConcurrentMap<File, ImmutableList<ClasspathElement>> classpathElementCache = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Set<File>, ImmutableSortedSet<ClasspathElement>> classpathElementSetCache = new ConcurrentHashMap<>();
+
     public ArtifactFileResolver(final MavenProject project,
             final boolean preferLocal) throws DependencyResolutionRequiredException, IOException {
+        this(project, preferLocal, new ArtifactFileResolverService());
+    }
+
+    ArtifactFileResolver(final MavenProject project,
+            final boolean preferLocal,
+            final ArtifactFileResolverService resolverService) throws DependencyResolutionRequiredException, IOException {
         checkNotNull(project, "project is null");
+        checkNotNull(resolverService, "resolverService is null");
         this.preferLocal = preferLocal;
 
         // This needs to be a multimap, because it is possible by jiggling with classifiers that a local project
@@ -87,19 +107,26 @@ public class ArtifactFileResolver {
         // This can not be an immutable map builder, because the map is used for looking up while it is built up.
         this.repoArtifactCache = new HashMap<>(project.getArtifacts().size());
 
+        // Repository artifacts by groupId:artifactId:baseVersion, to find the artifacts of referenced projects.
+        final Multimap<String, Artifact> repoArtifactIndex = MultimapBuilder.hashKeys(project.getArtifacts().size()).arrayListValues(1).build();
+
         for (final Artifact artifact : project.getArtifacts()) {
-            final File repoPath = artifact.getFile().getCanonicalFile();
+            final File repoPath = resolverService.getCanonicalFile(artifact.getFile());
             final Artifact canonicalizedArtifact = ArtifactFileResolver.canonicalizeArtifact(artifact);
 
             checkState(repoPath.exists(), "Repository Path '%s' does not exist.", repoPath);
             final File oldFile = repoArtifactCache.put(canonicalizedArtifact, repoPath);
             checkState(oldFile == null || oldFile.equals(repoPath), "Already encountered a file for %s: %s", canonicalizedArtifact, oldFile);
             repoFileCache.put(repoPath, canonicalizedArtifact);
+            repoFileNames.putIfAbsent(repoPath.getName(), repoPath);
+            if (oldFile == null) {
+                repoArtifactIndex.put(getIndexKey(canonicalizedArtifact), canonicalizedArtifact);
+            }
         }
 
         for (final MavenProject referencedProject : project.getProjectReferences().values()) {
             // referenced projects only have GAV coordinates but no scope.
-            final Set<Artifact> repoArtifacts = findRepoArtifacts(referencedProject, repoArtifactCache);
+            final Collection<Artifact> repoArtifacts = repoArtifactIndex.get(getIndexKey(referencedProject.getArtifact()));
 
             // This can happen if another sub-project in the reactor is e.g. used as a compiler plugin dependency.
             // In that case, the dependency will show up as a referenced project but not in the artifacts list from the project.
@@ -150,39 +177,63 @@ public class ArtifactFileResolver {
     }
 
     public ImmutableSortedSet<ClasspathElement> getClasspathElementsForElements(final Collection<File> elements) {
+        return classpathElementSetCache.computeIfAbsent(ImmutableSet.copyOf(elements), this::resolveClasspathElements);
+    }
+
+    private ImmutableSortedSet<ClasspathElement> resolveClasspathElements(final Set<File> elements) {
         final ImmutableSortedSet.Builder<ClasspathElement> builder = ImmutableSortedSet.naturalOrder();
 
         for (final File element : elements) {
-            resolveClasspathElementsForFile(element, builder);
+            builder.addAll(classpathElementCache.computeIfAbsent(element, this::resolveClasspathElementsForFile));
         }
         return builder.build();
     }
 
-    private void resolveClasspathElementsForFile(final File file, ImmutableSet.Builder<ClasspathElement> builder) {
+    private ImmutableList<ClasspathElement> resolveClasspathElementsForFile(final File file) {
         checkNotNull(file, "file is null");
 
+        final ImmutableList.Builder<ClasspathElement> builder = ImmutableList.builder();
+
+        if (JdkModules.isJdkElement(file)) {
+            return builder.add(new ClasspathBootClasspathElement(file)).build();
+        }
+
+        if (NestedArchives.isNested(file)) {
+            // e.g. WEB-INF/lib/guava.jar in a WAR. Packaging plugins use the file name of the dependency.
+            final File repoFile = repoFileNames.get(file.getName());
+            if (repoFile != null) {
+                for (Artifact artifact : repoFileCache.get(repoFile)) {
+                    builder.add(new ClasspathArtifact(artifact));
+                }
+            } else {
+                builder.add(new ClasspathArchive(file));
+            }
+            return builder.build();
+        }
+
         if (preferLocal && localFileArtifactCache.containsKey(file)) {
             for (Artifact artifact : localFileArtifactCache.get(file)) {
                 builder.add(new ClasspathArtifact(artifact));
             }
-            return;
+            return builder.build();
         }
 
         if (repoFileCache.containsKey(file)) {
             for (Artifact artifact : repoFileCache.get(file)) {
                 builder.add(new ClasspathArtifact(artifact));
             }
-            return;
+            return builder.build();
         }
 
         if (localFileArtifactCache.containsKey(file)) {
             for (Artifact artifact : localFileArtifactCache.get(file)) {
                 builder.add(new ClasspathArtifact(artifact));
             }
-            return;
+            return builder.build();
         }
 
         builder.add(new ClasspathLocalFolder(file));
+        return builder.build();
     }
 
     private File resolveFileForArtifact(final Artifact artifact) {
@@ -225,16 +276,7 @@ public class ArtifactFileResolver {
         return ImmutableSet.<Artifact>builder().addAll(localArtifactFileCache.keySet()).addAll(repoArtifactCache.keySet()).build();
     }
 
-    private static Set<Artifact> findRepoArtifacts(final MavenProject project, final Map<Artifact, File> repoArtifactCache) {
-        final ImmutableSet.Builder<Artifact> builder = ImmutableSet.builder();
-
-        for (final Artifact artifact : repoArtifactCache.keySet()) {
-            if (Objects.equals(project.getArtifact().getGroupId(), artifact.getGroupId())
-                    && Objects.equals(project.getArtifact().getArtifactId(), artifact.getArtifactId())
-                    && Objects.equals(project.getArtifact().getBaseVersion(), artifact.getBaseVersion())) {
-                builder.add(artifact);
-            }
-        }
-        return builder.build();
+    private static String getIndexKey(final Artifact artifact) {
+        return artifact.getGroupId() + ':' + artifact.getArtifactId() + ':' + artifact.getBaseVersion();
     }
 }
@@ -0,0 +1,65 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.artifact;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.collect.MapMaker;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * Creates the artifact resolvers for all modules of a build. Most modules of a large build share most of their dependencies, so the canonical file of every
+ * artifact is only determined once per build.
+ */
+public final class ArtifactFileResolverService {
+
+    // Modules that are built in parallel get a copy of the session, but all of them share the execution request.
+    private static final ConcurrentMap<Object, ArtifactFileResolverService> SERVICES = new MapMaker().weakKeys().makeMap();
+
+    private final ConcurrentMap<File, File> canonicalFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the service that is shared by all plugin executions of a build session. Without a session, returns a new service.
+     */
+    public static ArtifactFileResolverService forSession(final MavenSession session) {
+        if (session == null || session.getRequest() == null) {
+            return new ArtifactFileResolverService();
+        }
+        return SERVICES.computeIfAbsent(session.getRequest(), k -> new ArtifactFileResolverService());
+    }
+
+    public ArtifactFileResolver createResolver(final MavenProject project, final boolean preferLocal)
+            throws DependencyResolutionRequiredException, IOException {
+        return new ArtifactFileResolver(project, preferLocal, this);
+    }
+
+    File getCanonicalFile(final File file) throws IOException {
+        checkNotNull(file, "file is null");
+
+        File canonicalFile = canonicalFiles.get(file);
+        if (canonicalFile == null) {
+            canonicalFile = file.getCanonicalFile();
+            canonicalFiles.put(file, canonicalFile);
+        }
+        return canonicalFile;
+    }
+}
@@ -12,13 +12,11 @@
  * limitations under the License.
  */
 
-package org.basepom.mojo.duplicatefinder.classpath;
+package org.basepom.mojo.duplicatefinder.artifact;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 
-import org.basepom.mojo.duplicatefinder.artifact.MavenCoordinates;
-
 import java.util.Collection;
 import java.util.List;
 
@@ -35,7 +33,7 @@ public class MatchArtifactPredicate implements Predicate<Artifact> {
 
     private final List<MavenCoordinates> mavenCoordinates;
 
-    MatchArtifactPredicate(final Collection<MavenCoordinates> dependencies) {
+    public MatchArtifactPredicate(final Collection<MavenCoordinates> dependencies) {
         this.mavenCoordinates = ImmutableList.copyOf(checkNotNull(dependencies, "dependencies is null"));
     }
 
@@ -14,49 +14,116 @@
 
 package org.basepom.mojo.duplicatefinder.classpath;
 
+import org.basepom.mojo.duplicatefinder.ConflictType;
+
 import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Multimap;
 
 final class ClasspathCacheElement {
 
     private final File element;
     private final ImmutableSet<String> classes;
     private final ImmutableSet<String> resources;
+    // Size and modification time of an archive when it was listed. -1 for a folder.
+    private final long length;
+    private final long lastModified;
 
     public static Builder builder(final File element) {
         return new Builder(element);
     }
 
-    private ClasspathCacheElement(final File element, final ImmutableSet<String> classes, final ImmutableSet<String> resources) {
+    private ClasspathCacheElement(final File element, final ImmutableSet<String> classes, final ImmutableSet<String> resources, final long length,
+            final long lastModified) {
         this.element = element;
         this.classes = classes;
         this.resources = resources;
+        this.length = length;
+        this.lastModified = lastModified;
     }
 
-    void putClasses(final Multimap<String, File> classMap, final Predicate<String> excludePredicate) {
-        for (final String className : classes.stream().filter(excludePredicate.negate()).collect(Collectors.toList())) {
-            classMap.put(className, element);
-        }
+    File getElement() {
+        return element;
+    }
+
+    /**
+     * Returns true if the element is an archive that has not changed since it was listed. Folders are never current, their content can change without
+     * changing the folder itself.
+     */
+    boolean isCurrent() {
+        final File archive = NestedArchives.getArchiveFile(element);
+        return length >= 0 && archive.isFile() && archive.length() == length && archive.lastModified() == lastModified;
+    }
+
+    ImmutableSet<String> getClasses() {
+        return classes;
+    }
+
+    ImmutableSet<String> getResources() {
+        return resources;
     }
 
-    void putResources(final Multimap<String, File> resourceMap, final Predicate<String> excludePredicate) {
-        for (final String resource : resources.stream().filter(excludePredicate.negate()).collect(Collectors.toList())) {
-            resourceMap.put(resource, element);
+    /**
+     * Returns the classes that do not match the exclude predicate.
+     */
+    List<String> getClasses(final Predicate<String> excludePredicate) {
+        return classes.stream().filter(excludePredicate.negate()).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the resources that do not match the exclude predicate.
+     */
+    List<String> getResources(final Predicate<String> excludePredicate) {
+        return resources.stream().filter(excludePredicate.negate()).collect(Collectors.toList());
+    }
+
+    /**
+     * Returns a copy of this element without its classes and resources, e.g. for an index that does not keep the listings on the heap.
+     */
+    ClasspathCacheElement withoutListing() {
+        return new ClasspathCacheElement(element, ImmutableSet.of(), ImmutableSet.of(), length, lastModified);
+    }
+
+    /**
+     * Adds classes or resources of this element to an index and reports every name that is already in the index for another element.
+     */
+    void put(final ClasspathIndex index, final ConflictType type, final Collection<String> names, final DuplicateListener duplicateListener)
+            throws IOException {
+        for (final String name : names) {
+            final Collection<File> elements = index.put(name, element);
+            if (elements.size() > 1) {
+                duplicateListener.duplicateFound(type, name, Collections.unmodifiableCollection(elements));
+            }
         }
     }
 
+    /**
+     * Removes classes or resources of this element from an index.
+     */
+    void remove(final ClasspathIndex index, final Collection<String> names) {
+        index.remove(element, names);
+    }
+
     static final class Builder {
 
         private final File element;
         private final ImmutableSet.Builder<String> classBuilder = ImmutableSet.builder();
         private final ImmutableSet.Builder<String> resourcesBuilder = ImmutableSet.builder();
+        private final long length;
+        private final long lastModified;
 
         private Builder(final File element) {
             this.element = element;
+            // Taken before the element is read, so that a change while it is read is detected later.
+            final File archive = NestedArchives.getArchiveFile(element);
+            this.length = archive.isFile() ? archive.length() : -1;
+            this.lastModified = archive.lastModified();
         }
 
         void addClass(final String className) {
@@ -68,7 +135,7 @@ final class ClasspathCacheElement {
         }
 
         ClasspathCacheElement build() {
-            return new ClasspathCacheElement(element, classBuilder.build(), resourcesBuilder.build());
+            return new ClasspathCacheElement(element, classBuilder.build(), resourcesBuilder.build(), length, lastModified);
         }
     }
 }
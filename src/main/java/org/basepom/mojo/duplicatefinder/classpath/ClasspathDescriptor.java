@@ -19,18 +19,35 @@ import static com.google.common.base.Preconditions.checkState;
 import static java.lang.String.format;
 
 import org.basepom.mojo.duplicatefinder.ConflictType;
-import org.basepom.mojo.duplicatefinder.artifact.MavenCoordinates;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase;
+import org.basepom.mojo.duplicatefinder.FlightRecorderEvents.ArchiveScanEvent;
+import org.basepom.mojo.duplicatefinder.PatternProfiler;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -39,22 +56,26 @@ import java.util.zip.ZipInputStream;
 import javax.lang.model.SourceVersion;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.MoreObjects;
 import com.google.common.base.Splitter;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ForwardingMap;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableList.Builder;
-import com.google.common.collect.ImmutableMap;
-import com.google.common.collect.ImmutableMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.io.Files;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
-import org.apache.maven.artifact.Artifact;
-import org.apache.maven.plugin.MojoExecutionException;
-import org.apache.maven.project.MavenProject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Index of the classes and resources of a classpath. Elements can be added, removed and refreshed after the index has been created, so the index can be
+ * kept in memory by a long-running process and updated when the classpath changes. This class does not use any Maven types.
+ * <p>
+ * The index is kept on the heap until its estimated size exceeds the {@link IndexBudget}, then it is moved to memory-mapped files.
+ * <p>
+ * This class is not thread safe. Elements are scanned concurrently on the executor, but all methods must be called from one thread at a time.
+ */
 @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
 public final class ClasspathDescriptor {
 
@@ -91,12 +112,24 @@ public final class ClasspathDescriptor {
             "^.bzr$"));
 
     /**
-     * This is a global, static cache which can be reused through multiple runs of the plugin in the same VM, e.g. for a multi-module build.
+     * This is a global, static cache which can be reused through multiple runs of the plugin in the same VM, e.g. for a multi-module build. It is
+     * safe to use from multiple threads; every element is scanned at most once, even if it is requested concurrently.
+     */
+    private static final ConcurrentMap<File, Future<ClasspathCacheElement>> CACHED_BY_FILE = new ConcurrentHashMap<>();
+
+    /**
+     * Maximum number of classpath elements that are scanned ahead of the index.
      */
-    private static final ConcurrentMap<File, ClasspathCacheElement> CACHED_BY_FILE = new ConcurrentHashMap<>();
+    private static final int SCAN_QUEUE_SIZE = 32;
 
-    private final Multimap<String, File> classesWithElements = MultimapBuilder.treeKeys().hashSetValues().build();
-    private final Multimap<String, File> resourcesWithElements = MultimapBuilder.treeKeys().hashSetValues().build();
+    /**
+     * Rough heap size of a name in the heap index and in the listing of its element, without the characters of the name.
+     */
+    private static final long HEAP_BYTES_PER_NAME = 160;
+
+    // Replaced by memory-mapped indexes if the heap budget is exceeded.
+    private ClasspathIndex classesWithElements = new HeapClasspathIndex();
+    private ClasspathIndex resourcesWithElements = new HeapClasspathIndex();
 
     private final Predicate<String> resourcesPredicate;
     private final Predicate<String> classPredicate;
@@ -104,70 +137,49 @@ public final class ClasspathDescriptor {
     private final ImmutableList<Pattern> ignoredResourcePatterns;
     private final ImmutableList<Pattern> ignoredClassPatterns;
 
-    public static ClasspathDescriptor createClasspathDescriptor(final MavenProject project,
-            final Multimap<File, Artifact> fileToArtifactMap,
+    private final ClasspathListingStore listingStore;
+    private final IndexBudget indexBudget;
+    private final ExecutorService executorService;
+    private final DuplicateListener duplicateListener;
+    private final ExecutionMetrics metrics;
+
+    // The listings of all elements in the index, in classpath order.
+    private final Map<File, ClasspathCacheElement> indexedElements = new LinkedHashMap<>();
+    // Estimated heap size of the index that is reserved from the budget, -1 once the index has been moved to memory-mapped files.
+    private long reservedHeapBytes = 0;
+
+    /**
+     * Scans classpath elements and builds the index of their classes and resources. Elements are added in the given order, elements that do not exist
+     * are skipped. This method does not need any Maven classes, it is used by the plugin and the command line runner.
+     *
+     * @param elements    Archives and folders, in classpath order.
+     * @param indexBudget Heap budget of the index. If the estimated size of the index exceeds the budget, the index is moved to memory-mapped files.
+     * @throws IllegalArgumentException If an ignore pattern can not be compiled.
+     * @throws IOException              If an element can not be read.
+     */
+    public static ClasspathDescriptor createClasspathDescriptor(final Collection<File> elements,
             final Collection<String> ignoredResourcePatterns,
             final Collection<String> ignoredClassPatterns,
-            final Collection<MavenCoordinates> ignoredDependencies,
             final boolean useDefaultResourceIgnoreList,
             final boolean useDefaultClassIgnoreList,
-            final File... projectFolders) throws MojoExecutionException {
-        checkNotNull(project, "project is null");
-        checkNotNull(fileToArtifactMap, "fileToArtifactMap is null");
+            final ClasspathListingStore listingStore,
+            final IndexBudget indexBudget,
+            final ExecutorService executorService,
+            final DuplicateListener duplicateListener,
+            final ExecutionMetrics metrics) throws IOException {
+        checkNotNull(elements, "elements is null");
         checkNotNull(ignoredResourcePatterns, "ignoredResourcePatterns is null");
         checkNotNull(ignoredClassPatterns, "ignoredClassPatterns is null");
-        checkNotNull(ignoredDependencies, "ignoredDependencies is null");
-        checkNotNull(projectFolders, "projectFolders is null");
+        checkNotNull(listingStore, "listingStore is null");
+        checkNotNull(indexBudget, "indexBudget is null");
+        checkNotNull(executorService, "executorService is null");
+        checkNotNull(duplicateListener, "duplicateListener is null");
+        checkNotNull(metrics, "metrics is null");
 
         final ClasspathDescriptor classpathDescriptor = new ClasspathDescriptor(useDefaultResourceIgnoreList, ignoredResourcePatterns,
-                useDefaultClassIgnoreList, ignoredClassPatterns);
-
-        File file = null;
+                useDefaultClassIgnoreList, ignoredClassPatterns, listingStore, indexBudget, executorService, duplicateListener, metrics);
 
-        final MatchArtifactPredicate matchArtifactPredicate = new MatchArtifactPredicate(ignoredDependencies);
-
-        Artifact artifact = null;
-
-        try {
-            // any entry is either a jar in the repo or a folder in the target folder of a referenced
-            // project. Add the elements that are not ignored by the ignoredDependencies predicate to
-            // the classpath descriptor.
-            for (final Entry<File, Artifact> entry : fileToArtifactMap.entries()) {
-                artifact = entry.getValue();
-                file = entry.getKey();
-
-                if (file.exists()) {
-                    // Add to the classpath if the artifact predicate does not apply (then it is not in the ignoredDependencies list).
-                    if (!matchArtifactPredicate.apply(artifact)) {
-                        classpathDescriptor.addClasspathElement(file);
-                    }
-                } else {
-                    // e.g. when running the goal explicitly on a cleaned multi-module project, referenced
-                    // projects will try to use the output folders of a referenced project but these do not
-                    // exist. Obviously, in this case the plugin might return incorrect results (unfortunately
-                    // false negatives, but there is not much it can do here (besides fail the build here with a
-                    // cryptic error message. Maybe add a flag?).
-                    LOG.debug(format("Classpath element '%s' does not exist.", file.getAbsolutePath()));
-                }
-            }
-        } catch (final IOException ex) {
-            throw new MojoExecutionException(format("Error trying to access file '%s' for artifact '%s'", file, artifact), ex);
-        }
-
-        try {
-            // Add project folders unconditionally.
-            for (final File projectFile : projectFolders) {
-                file = projectFile;
-                if (projectFile.exists()) {
-                    classpathDescriptor.addClasspathElement(file);
-                } else {
-                    // See above. This may happen in the project has been cleaned before running the goal directly.
-                    LOG.debug(format("Project folder '%s' does not exist.", file.getAbsolutePath()));
-                }
-            }
-        } catch (final IOException ex) {
-            throw new MojoExecutionException(format("Error trying to access project folder '%s'", file), ex);
-        }
+        classpathDescriptor.addClasspathElements(elements);
 
         return classpathDescriptor;
     }
@@ -175,8 +187,19 @@ public final class ClasspathDescriptor {
     private ClasspathDescriptor(final boolean useDefaultResourceIgnoreList,
             final Collection<String> ignoredResourcePatterns,
             final boolean useDefaultClassIgnoreList,
-            final Collection<String> ignoredClassPatterns)
-            throws MojoExecutionException {
+            final Collection<String> ignoredClassPatterns,
+            final ClasspathListingStore listingStore,
+            final IndexBudget indexBudget,
+            final ExecutorService executorService,
+            final DuplicateListener duplicateListener,
+            final ExecutionMetrics metrics) {
+        this.listingStore = listingStore;
+        this.indexBudget = indexBudget;
+        this.executorService = executorService;
+        this.duplicateListener = duplicateListener;
+        this.metrics = metrics;
+
+        final PatternProfiler patternProfiler = metrics.getPatternProfiler();
         final Builder<Pattern> ignoredResourcePatternsBuilder = ImmutableList.builder();
 
         // build resource predicate...
@@ -184,7 +207,7 @@ public final class ClasspathDescriptor {
 
         // predicate matching the default ignores
         if (useDefaultResourceIgnoreList) {
-            resourcesPredicate = resourcesPredicate.or(DEFAULT_IGNORED_RESOURCES_PREDICATE);
+            resourcesPredicate = resourcesPredicate.or(DEFAULT_IGNORED_RESOURCES_PREDICATE.profiled(PatternProfiler.DEFAULT_RESOURCES, patternProfiler));
             ignoredResourcePatternsBuilder.addAll(DEFAULT_IGNORED_RESOURCES_PREDICATE.getPatterns());
         }
 
@@ -192,10 +215,10 @@ public final class ClasspathDescriptor {
             try {
                 // predicate matching the user ignores
                 MatchPatternPredicate ignoredResourcesPredicate = new MatchPatternPredicate(ignoredResourcePatterns);
-                resourcesPredicate = resourcesPredicate.or(ignoredResourcesPredicate);
+                resourcesPredicate = resourcesPredicate.or(ignoredResourcesPredicate.profiled(PatternProfiler.RESOURCES, patternProfiler));
                 ignoredResourcePatternsBuilder.addAll(ignoredResourcesPredicate.getPatterns());
             } catch (final PatternSyntaxException pse) {
-                throw new MojoExecutionException("Error compiling resourceIgnore pattern: " + pse.getMessage());
+                throw new IllegalArgumentException("Error compiling resourceIgnore pattern: " + pse.getMessage(), pse);
             }
         }
 
@@ -209,7 +232,7 @@ public final class ClasspathDescriptor {
 
         // predicate matching the default ignores
         if (useDefaultClassIgnoreList) {
-            classPredicate = classPredicate.or(DEFAULT_IGNORED_CLASS_PREDICATE);
+            classPredicate = classPredicate.or(DEFAULT_IGNORED_CLASS_PREDICATE.profiled(PatternProfiler.DEFAULT_CLASSES, patternProfiler));
             ignoredClassPatternsBuilder.addAll(DEFAULT_IGNORED_CLASS_PREDICATE.getPatterns());
         }
 
@@ -217,10 +240,10 @@ public final class ClasspathDescriptor {
             try {
                 // predicate matching the user ignores
                 MatchPatternPredicate ignoredPackagePredicate = new MatchPatternPredicate(ignoredClassPatterns);
-                classPredicate = classPredicate.or(ignoredPackagePredicate);
+                classPredicate = classPredicate.or(ignoredPackagePredicate.profiled(PatternProfiler.CLASSES, patternProfiler));
                 ignoredClassPatternsBuilder.addAll(ignoredPackagePredicate.getPatterns());
             } catch (final PatternSyntaxException pse) {
-                throw new MojoExecutionException("Error compiling classIgnore pattern: " + pse.getMessage());
+                throw new IllegalArgumentException("Error compiling classIgnore pattern: " + pse.getMessage(), pse);
             }
         }
 
@@ -228,18 +251,148 @@ public final class ClasspathDescriptor {
         this.ignoredClassPatterns = ignoredClassPatternsBuilder.build();
     }
 
-    public ImmutableMap<String, Collection<File>> getClasspathElementLocations(final ConflictType type) {
+    /**
+     * Adds classpath elements at the end of the classpath. Elements that are already in the index are skipped, as are elements that do not exist. The
+     * duplicate listener is notified about all duplicates that the new elements add.
+     *
+     * @throws IOException If an element can not be read. The elements that were added before the failing element stay in the index.
+     */
+    public void addClasspathElements(final Collection<File> elements) throws IOException {
+        checkNotNull(elements, "elements is null");
+
+        final Set<File> newElements = new LinkedHashSet<>();
+        for (final File element : elements) {
+            if (indexedElements.containsKey(element)) {
+                continue;
+            }
+
+            if (NestedArchives.getArchiveFile(element).exists()) {
+                newElements.add(element);
+            } else {
+                // e.g. when running the goal explicitly on a cleaned multi-module project, referenced
+                // projects will try to use the output folders of a referenced project but these do not
+                // exist. Obviously, in this case the plugin might return incorrect results (unfortunately
+                // false negatives, but there is not much it can do here (besides fail the build here with a
+                // cryptic error message. Maybe add a flag?).
+                LOG.debug(format("Classpath element '%s' does not exist.", element.getAbsolutePath()));
+            }
+        }
+
+        scanClasspathElements(newElements);
+    }
+
+    /**
+     * Removes classpath elements and all their classes and resources from the index. The duplicate listener is notified about every removed element.
+     *
+     * @return The elements that were removed. Elements that were not in the index are ignored.
+     */
+    public Set<File> removeClasspathElements(final Collection<File> elements) {
+        checkNotNull(elements, "elements is null");
+
+        final ImmutableSet.Builder<File> removed = ImmutableSet.builder();
+        for (final File element : elements) {
+            final ClasspathCacheElement cached = indexedElements.remove(element);
+            if (cached != null) {
+                final List<String> resources = cached.getResources(resourcesPredicate);
+                final List<String> classes = cached.getClasses(classPredicate);
+                cached.remove(resourcesWithElements, resources);
+                cached.remove(classesWithElements, classes);
+                releaseHeap(resources, classes);
+                duplicateListener.elementRemoved(element);
+                removed.add(element);
+            }
+        }
+        return removed.build();
+    }
+
+    /**
+     * Scans all elements again that have changed since they were added to the index, and removes the elements that no longer exist. Archives have changed if
+     * their size or modification time differs, folders are always scanned again. The order of the elements on the classpath does not change.
+     *
+     * @return The elements that have changed or were removed.
+     * @throws IOException If an element can not be read.
+     */
+    public Set<File> refreshClasspathElements() throws IOException {
+        final ImmutableSet.Builder<File> changedBuilder = ImmutableSet.builder();
+        for (final ClasspathCacheElement cached : indexedElements.values()) {
+            if (!cached.isCurrent()) {
+                changedBuilder.add(cached.getElement());
+            }
+        }
+
+        final Set<File> changed = changedBuilder.build();
+        if (changed.isEmpty()) {
+            return changed;
+        }
+
+        final List<File> order = ImmutableList.copyOf(indexedElements.keySet());
+
+        removeClasspathElements(changed);
+        for (final File element : changed) {
+            // Only finished scans are evicted, a running scan belongs to another descriptor that has just requested the element.
+            final Future<ClasspathCacheElement> stale = CACHED_BY_FILE.get(element);
+            if (stale != null && stale.isDone()) {
+                CACHED_BY_FILE.remove(element, stale);
+            }
+        }
+        addClasspathElements(changed);
+
+        // Changed elements were added at the end, restore the classpath order.
+        final Map<File, ClasspathCacheElement> reindexed = new LinkedHashMap<>(indexedElements);
+        indexedElements.clear();
+        for (final File element : order) {
+            final ClasspathCacheElement cached = reindexed.get(element);
+            if (cached != null) {
+                indexedElements.put(element, cached);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Returns the elements in the index, in classpath order.
+     */
+    public Set<File> getClasspathElements() {
+        return Collections.unmodifiableSet(indexedElements.keySet());
+    }
+
+    /**
+     * Returns an unmodifiable, sorted view of the classes or resources that are in more than one classpath element. The view is backed by the index, it
+     * reflects elements that are added or removed later.
+     */
+    public Map<String, Collection<File>> getConflicts(final ConflictType type) {
+        return Maps.filterValues(getClasspathElementLocations(type), elements -> elements.size() > 1);
+    }
+
+    /**
+     * Returns an unmodifiable, sorted view of all classes or resources and the classpath elements that contain them. The view is backed by the index, it
+     * does not copy any data. If the index has been moved to memory-mapped files, the view reads the files on every access.
+     */
+    public Map<String, Collection<File>> getClasspathElementLocations(final ConflictType type) {
         checkNotNull(type, "type is null");
         switch (type) {
             case CLASS:
-                return ImmutableMultimap.copyOf(classesWithElements).asMap();
             case RESOURCE:
-                return ImmutableMultimap.copyOf(resourcesWithElements).asMap();
+                // follows the index if it is moved to memory-mapped files later.
+                return new ForwardingMap<String, Collection<File>>() {
+                    @Override
+                    protected Map<String, Collection<File>> delegate() {
+                        return type == ConflictType.CLASS ? classesWithElements.asMap() : resourcesWithElements.asMap();
+                    }
+                };
             default:
                 throw new IllegalStateException("Type '" + type + "' unknown!");
         }
     }
 
+    /**
+     * Returns true if the index has been moved to memory-mapped files because it did not fit into the heap budget.
+     */
+    public boolean isIndexMapped() {
+        return reservedHeapBytes < 0;
+    }
+
     public ImmutableList<Pattern> getIgnoredResourcePatterns() {
         return ignoredResourcePatterns;
     }
@@ -253,31 +406,185 @@ public final class ClasspathDescriptor {
     }
 
 
-    private void addClasspathElement(final File element) throws IOException {
-        checkState(element.exists(), "Path '%s' does not exist!", element.getAbsolutePath());
+    /**
+     * Scans all elements on the executor and adds them to the index. Scanning runs at most {@link #SCAN_QUEUE_SIZE} elements ahead of the index, so that
+     * duplicates are reported to the listener while the rest of the classpath is still being scanned.
+     */
+    private void scanClasspathElements(final Collection<File> elements) throws IOException {
+
+        final Iterator<File> files = elements.iterator();
+        final Deque<Entry<File, Future<ClasspathCacheElement>>> scanQueue = new ArrayDeque<>(SCAN_QUEUE_SIZE);
+
+        while (files.hasNext() || !scanQueue.isEmpty()) {
+            while (files.hasNext() && scanQueue.size() < SCAN_QUEUE_SIZE) {
+                final File file = files.next();
+                final boolean cacheListing = !isIndexMapped();
+                scanQueue.add(new SimpleImmutableEntry<>(file,
+                        executorService.submit(() -> scanClasspathElement(file, listingStore, metrics, cacheListing))));
+            }
+
+            final Entry<File, Future<ClasspathCacheElement>> scan = scanQueue.remove();
+            final File file = scan.getKey();
+            try {
+                final ClasspathCacheElement cached = scan.getValue().get();
+
+                long startNanos = System.nanoTime();
+                final List<String> resources = cached.getResources(resourcesPredicate);
+                final List<String> classes = cached.getClasses(classPredicate);
+                metrics.addTime(Phase.FILTER, startNanos);
+
+                startNanos = System.nanoTime();
+                reserveHeap(resources, classes);
+                cached.put(resourcesWithElements, ConflictType.RESOURCE, resources, duplicateListener);
+                cached.put(classesWithElements, ConflictType.CLASS, classes, duplicateListener);
+                indexedElements.put(file, isIndexMapped() ? cached.withoutListing() : cached);
+                metrics.addTime(Phase.DETECT, startNanos);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                scanQueue.forEach(pending -> pending.getValue().cancel(true));
+                final InterruptedIOException interrupted = new InterruptedIOException(format("Interrupted while scanning '%s'", file));
+                interrupted.initCause(e);
+                throw interrupted;
+            } catch (final ExecutionException e) {
+                scanQueue.forEach(pending -> pending.getValue().cancel(true));
+                Throwables.throwIfUnchecked(e.getCause());
+
+                throw new IOException(format("Error trying to access %s '%s'", file.isDirectory() ? "folder" : "file", file), e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Reserves the estimated heap size of the names of an element. If they do not fit into the budget, the index is moved to memory-mapped files.
+     */
+    private void reserveHeap(final List<String> resources, final List<String> classes) throws IOException {
+        if (isIndexMapped()) {
+            return;
+        }
+
+        final long heapBytes = estimateHeapBytes(resources) + estimateHeapBytes(classes);
+        if (indexBudget.reserve(heapBytes)) {
+            reservedHeapBytes += heapBytes;
+            return;
+        }
+
+        final File spillDirectory = indexBudget.getSpillDirectory();
+        LOG.info(format("Classpath index exceeds the heap budget of %d MB, moving it to '%s'", indexBudget.getMaxHeapBytes() / (1024 * 1024), spillDirectory));
+
+        resourcesWithElements = MappedClasspathIndex.copyOf(resourcesWithElements, indexedElements.keySet(), spillDirectory);
+        classesWithElements = MappedClasspathIndex.copyOf(classesWithElements, indexedElements.keySet(), spillDirectory);
+        // The mapped index does not need the listings to remove an element.
+        indexedElements.replaceAll((file, cached) -> cached.withoutListing());
+
+        indexBudget.release(reservedHeapBytes);
+        reservedHeapBytes = -1;
+    }
+
+    private void releaseHeap(final List<String> resources, final List<String> classes) {
+        if (!isIndexMapped()) {
+            final long heapBytes = estimateHeapBytes(resources) + estimateHeapBytes(classes);
+            indexBudget.release(heapBytes);
+            reservedHeapBytes -= heapBytes;
+        }
+    }
+
+    private static long estimateHeapBytes(final List<String> names) {
+        long heapBytes = 0;
+        for (final String name : names) {
+            heapBytes += HEAP_BYTES_PER_NAME + name.length();
+        }
+        return heapBytes;
+    }
+
+    /**
+     * @param cacheListing If false, the listing of an element that is not in the cache yet is not added to the cache, e.g. for an index that does not fit
+     *                     into the heap budget.
+     */
+    private static ClasspathCacheElement scanClasspathElement(final File element, final ClasspathListingStore listingStore, final ExecutionMetrics metrics,
+            final boolean cacheListing) throws IOException, InterruptedException {
+        checkState(NestedArchives.getArchiveFile(element).exists(), "Path '%s' does not exist!", element.getAbsolutePath());
 
-        ClasspathCacheElement cached = CACHED_BY_FILE.get(element);
+        metrics.cacheRequest(ExecutionMetrics.Cache.SCAN);
+        // In verify mode, every element is scanned and compared with its stored listing, even if it was scanned before in the same build (e.g. for another
+        // scope or module).
+        final boolean verify = listingStore.isVerify();
+        Future<ClasspathCacheElement> cached = verify ? null : CACHED_BY_FILE.get(element);
 
         if (cached == null) {
-            final ClasspathCacheElement.Builder cacheBuilder = ClasspathCacheElement.builder(element);
-            if (element.isDirectory()) {
-                addDirectory(cacheBuilder, element, new PackageNameHolder());
-            } else {
-                addArchive(cacheBuilder, element);
+            final FutureTask<ClasspathCacheElement> scanTask = new FutureTask<>(() -> {
+                final long startNanos = System.nanoTime();
+                try {
+                    return listingStore.loadOrScan(element, file -> scan(file, metrics));
+                } finally {
+                    metrics.addTime(Phase.SCAN, startNanos);
+                }
+            });
+
+            cached = cacheListing && !verify ? CACHED_BY_FILE.putIfAbsent(element, scanTask) : null;
+            if (cached == null) {
+                // Scan in the current thread. Any other thread that needs the same element (e.g. while checking another
+                // classpath scope at the same time) waits for this scan instead of scanning the element again.
+                cached = scanTask;
+                scanTask.run();
             }
-            final ClasspathCacheElement newCached = cacheBuilder.build();
-            final ClasspathCacheElement oldCached = CACHED_BY_FILE.putIfAbsent(element, newCached);
-            cached = MoreObjects.firstNonNull(oldCached, newCached);
         } else {
             LOG.debug(format("Cache hit for '%s'", element.getAbsolutePath()));
         }
 
-        cached.putResources(resourcesWithElements, resourcesPredicate);
-        cached.putClasses(classesWithElements, classPredicate);
+        try {
+            final ClasspathCacheElement cacheElement = cached.get();
+            // the element may have been scanned for another module, which keeps its listings somewhere else.
+            listingStore.storeIfMissing(cacheElement);
+            return cacheElement;
+        } catch (final ExecutionException e) {
+            // Do not cache failures, a later attempt may succeed.
+            CACHED_BY_FILE.remove(element, cached);
+            Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IOException(e.getCause());
+        }
+    }
 
+    /**
+     * Scans an element and records its scan time and size. Only called if the listing of the element is not cached.
+     */
+    static ClasspathCacheElement scan(final File element, final ExecutionMetrics metrics) throws IOException {
+        metrics.cacheMiss(ExecutionMetrics.Cache.SCAN);
+
+        final ArchiveScanEvent event = new ArchiveScanEvent();
+        event.begin();
+
+        final long startNanos = System.nanoTime();
+        final ClasspathCacheElement cacheElement = scan(element);
+        final int entries = cacheElement.getClasses().size() + cacheElement.getResources().size();
+        metrics.elementScanned(element, startNanos, entries);
+
+        if (event.shouldCommit()) {
+            event.file = element.getPath();
+            event.directory = element.isDirectory();
+            event.entries = entries;
+            event.bytes = event.directory ? 0 : element.length();
+            event.commit();
+        }
+        return cacheElement;
+    }
+
+    @VisibleForTesting
+    static ClasspathCacheElement scan(final File element) throws IOException {
+        final ClasspathCacheElement.Builder cacheBuilder = ClasspathCacheElement.builder(element);
+        if (element.isDirectory()) {
+            addDirectory(cacheBuilder, element, new PackageNameHolder());
+        } else if (JdkModules.isJdkElement(element)) {
+            JdkModules.listEntries(element, name -> addArchiveEntry(cacheBuilder, name));
+        } else if (NestedArchives.isNested(element)) {
+            NestedArchives.listEntries(element, name -> addArchiveEntry(cacheBuilder, name));
+        } else {
+            addArchive(cacheBuilder, element);
+        }
+        return cacheBuilder.build();
     }
 
-    private void addDirectory(final ClasspathCacheElement.Builder cacheBuilder, final File workDir, final PackageNameHolder packageName) {
+    private static void addDirectory(final ClasspathCacheElement.Builder cacheBuilder, final File workDir, final PackageNameHolder packageName) {
         final File[] files = workDir.listFiles();
 
         if (files != null) {
@@ -304,7 +611,7 @@ public final class ClasspathDescriptor {
         }
     }
 
-    private void addArchive(final ClasspathCacheElement.Builder cacheBuilder, final File element) throws IOException {
+    private static void addArchive(final ClasspathCacheElement.Builder cacheBuilder, final File element) throws IOException {
 
         try (
                 InputStream input = element.toURI().toURL().openStream();
@@ -314,22 +621,25 @@ public final class ClasspathDescriptor {
 
             while ((entry = zipInput.getNextEntry()) != null) {
                 if (!entry.isDirectory()) {
-                    final String name = entry.getName();
-                    Optional<List<String>> validatedElements = validateClassName(name);
-                    if (validatedElements.isPresent()) {
-                        List<String> nameElements = validatedElements.get();
-                        final PackageNameHolder packageName = new PackageNameHolder(nameElements.subList(0, nameElements.size() - 1));
-                        final String className = packageName.getQualifiedName(Files.getNameWithoutExtension(name));
-                        cacheBuilder.addClass(className);
-                    } else {
-                        final String resourcePath = name.replace('\\', File.separatorChar);
-                        cacheBuilder.addResource(resourcePath);
-                    }
+                    addArchiveEntry(cacheBuilder, entry.getName());
                 }
             }
         }
     }
 
+    private static void addArchiveEntry(final ClasspathCacheElement.Builder cacheBuilder, final String name) {
+        Optional<List<String>> validatedElements = validateClassName(name);
+        if (validatedElements.isPresent()) {
+            List<String> nameElements = validatedElements.get();
+            final PackageNameHolder packageName = new PackageNameHolder(nameElements.subList(0, nameElements.size() - 1));
+            final String className = packageName.getQualifiedName(Files.getNameWithoutExtension(name));
+            cacheBuilder.addClass(className);
+        } else {
+            final String resourcePath = name.replace('\\', File.separatorChar);
+            cacheBuilder.addResource(resourcePath);
+        }
+    }
+
     @VisibleForTesting
     static Optional<List<String>> validateClassName(String fullClassPath) {
         if (fullClassPath == null) {
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Index of the classpath elements that contain a class or resource name. The index is either kept on the heap ({@link HeapClasspathIndex}) or in
+ * memory-mapped files ({@link MappedClasspathIndex}), the {@link ClasspathDescriptor} selects the implementation based on the {@link IndexBudget}.
+ */
+interface ClasspathIndex {
+
+    /**
+     * Adds a name of a classpath element.
+     *
+     * @return All elements that contain the name, including the new element. Empty if the element was already in the index for the name. The collection must
+     * not be retained.
+     */
+    Collection<File> put(String name, File element) throws IOException;
+
+    /**
+     * Removes a classpath element from the index.
+     *
+     * @param names The names that were added for the element.
+     */
+    void remove(File element, Collection<String> names);
+
+    /**
+     * Returns an unmodifiable view of all names, sorted by name, and the classpath elements that contain them.
+     */
+    Map<String, Collection<File>> asMap();
+}
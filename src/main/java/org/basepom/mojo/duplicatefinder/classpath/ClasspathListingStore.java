@@ -0,0 +1,413 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.String.format;
+
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics.Phase;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hashing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the listings (classes and resources) of classpath archives from the last run on disk. An archive whose size and modification time have not changed
+ * does not need to be scanned again. Folders are always scanned.
+ * <p>
+ * In verify mode, every archive is scanned and the result is compared with the stored listing.
+ * <p>
+ * The listing of a JDK module image is stored by the JDK build instead, it is shared by all installations of the same build.
+ */
+public final class ClasspathListingStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ClasspathListingStore.class);
+
+    private static final ClasspathListingStore DISABLED = new ClasspathListingStore(null, false, null);
+
+    private static final String CLASS_PREFIX = "C\t";
+    private static final String RESOURCE_PREFIX = "R\t";
+
+    private final File directory;
+    private final boolean verify;
+    // keeps the listings of JDK module images, null if they are kept with all other listings.
+    private final ClasspathListingStore jdkStore;
+
+    // elements whose listing on disk is known to be current in this run.
+    private final Set<File> currentElements = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger reused = new AtomicInteger();
+    private final AtomicInteger scanned = new AtomicInteger();
+    private final List<String> mismatches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns a store that never has a listing and does not store anything.
+     */
+    public static ClasspathListingStore disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @param directory The folder that contains the listings.
+     * @param verify    If true, scan all archives and compare them with the stored listings.
+     */
+    public ClasspathListingStore(final File directory, final boolean verify) {
+        this(directory, verify, null);
+    }
+
+    private ClasspathListingStore(final File directory, final boolean verify, final ClasspathListingStore jdkStore) {
+        this.directory = directory;
+        this.verify = verify;
+        this.jdkStore = jdkStore;
+    }
+
+    /**
+     * Returns a new store with the same folder that keeps the listings of JDK module images (see {@link JdkModules}) in a separate folder, even if this store
+     * is disabled. A JDK listing only changes with the JDK build, so the folder can be shared by all projects and builds. It is never pruned.
+     */
+    public ClasspathListingStore withJdkDirectory(final File jdkDirectory) {
+        checkArgument(jdkDirectory != null, "jdkDirectory is null");
+
+        return new ClasspathListingStore(directory, verify, new ClasspathListingStore(jdkDirectory, false, null));
+    }
+
+    /**
+     * Returns true if all archives are scanned and compared with their stored listings.
+     */
+    boolean isVerify() {
+        return verify;
+    }
+
+    /**
+     * Number of archives whose stored listing was used.
+     */
+    public int getReusedCount() {
+        return reused.get();
+    }
+
+    /**
+     * Number of archives that were new or had changed since the last run.
+     */
+    public int getScannedCount() {
+        return scanned.get();
+    }
+
+    /**
+     * Returns the archives whose stored listing differs from the actual content. Only populated in verify mode.
+     */
+    public List<String> getMismatches() {
+        return ImmutableList.copyOf(mismatches);
+    }
+
+    /**
+     * Removes the listings of all archives that were not part of this run, e.g. because a dependency was removed or its version changed. Must not be
+     * called on a store that is shared with other projects.
+     *
+     * @return The number of removed listings.
+     */
+    public int prune() throws IOException {
+        if (directory == null || !directory.isDirectory()) {
+            return 0;
+        }
+
+        final Set<String> currentFileNames = new HashSet<>();
+        for (final File element : currentElements) {
+            currentFileNames.add(getListingFile(element).getName());
+        }
+
+        int removed = 0;
+        try (Stream<Path> paths = Files.list(directory.toPath())) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                if (!currentFileNames.contains(path.getFileName().toString())) {
+                    Files.deleteIfExists(path);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the listings of all archives in a folder that were not part of this run, e.g. because they were removed from a local repository. The listings
+     * of all other elements (e.g. archives in other folders or archives inside other archives) are kept, so the store can be shared with other projects.
+     *
+     * @param root The folder, as a canonical path.
+     * @return The number of removed listings.
+     */
+    public int prune(final File root) throws IOException {
+        checkArgument(root != null, "root is null");
+
+        if (directory == null || !directory.isDirectory()) {
+            return 0;
+        }
+
+        final Set<String> currentFileNames = new HashSet<>();
+        for (final File element : currentElements) {
+            currentFileNames.add(getListingFile(element).getName());
+        }
+
+        final String rootPrefix = root.getPath() + File.separator;
+        int removed = 0;
+        try (Stream<Path> paths = Files.list(directory.toPath())) {
+            for (final Path path : (Iterable<Path>) paths::iterator) {
+                if (currentFileNames.contains(path.getFileName().toString()) || !Files.isRegularFile(path)) {
+                    continue;
+                }
+
+                final Optional<File> element = getListedElement(path.toFile());
+                if (element.isPresent() && element.get().getPath().startsWith(rootPrefix) && !NestedArchives.isNested(element.get())) {
+                    Files.deleteIfExists(path);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Returns true if the store has a listing of an archive that matches its current size and modification time.
+     */
+    public boolean isCurrent(final File element) {
+        return directory != null && element.isFile() && hasListing(element, getElementKey(element));
+    }
+
+    /**
+     * Scans an archive and stores its listing, e.g. to fill the store ahead of a check.
+     *
+     * @param element The archive.
+     * @param force   If false, archives with a current listing are not scanned again.
+     * @param metrics Records the scan.
+     * @return True if the archive was scanned, false if its listing was current.
+     */
+    public boolean index(final File element, final boolean force, final ExecutionMetrics metrics) throws IOException {
+        checkState(directory != null, "listing store is disabled");
+        checkArgument(element.isFile(), "'%s' is not an archive", element);
+
+        final String elementKey = getElementKey(element);
+        if (!force && hasListing(element, elementKey)) {
+            reused.incrementAndGet();
+            currentElements.add(element);
+            return false;
+        }
+
+        final long startNanos = System.nanoTime();
+        try {
+            store(element, elementKey, ClasspathDescriptor.scan(element, metrics));
+        } finally {
+            metrics.addTime(Phase.SCAN, startNanos);
+        }
+        scanned.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Loads the listing of an element or scans it if there is no current listing.
+     */
+    ClasspathCacheElement loadOrScan(final File element, final ElementScanner scanner) throws IOException {
+        if (jdkStore != null && JdkModules.isJdkElement(element)) {
+            return jdkStore.loadOrScan(element, scanner);
+        }
+
+        if (directory == null || element.isDirectory()) {
+            return scanner.scan(element);
+        }
+
+        final String elementKey = getElementKey(element);
+        final Optional<ClasspathCacheElement> stored = load(element, elementKey);
+
+        if (stored.isPresent() && !verify) {
+            reused.incrementAndGet();
+            currentElements.add(element);
+            return stored.get();
+        }
+
+        final ClasspathCacheElement cacheElement = scanner.scan(element);
+
+        if (stored.isPresent()) {
+            reused.incrementAndGet();
+            if (!stored.get().getClasses().equals(cacheElement.getClasses()) || !stored.get().getResources().equals(cacheElement.getResources())) {
+                mismatches.add(element.getAbsolutePath());
+            }
+        } else {
+            scanned.incrementAndGet();
+        }
+
+        store(element, elementKey, cacheElement);
+        return cacheElement;
+    }
+
+    /**
+     * Makes sure that a listing exists for an element that was scanned before (e.g. by another module in the same build).
+     */
+    void storeIfMissing(final ClasspathCacheElement cacheElement) throws IOException {
+        final File element = cacheElement.getElement();
+        if (jdkStore != null && JdkModules.isJdkElement(element)) {
+            jdkStore.storeIfMissing(cacheElement);
+            return;
+        }
+
+        if (directory == null || element.isDirectory() || currentElements.contains(element)) {
+            return;
+        }
+
+        final String elementKey = getElementKey(element);
+        if (hasListing(element, elementKey)) {
+            currentElements.add(element);
+        } else {
+            store(element, elementKey, cacheElement);
+        }
+    }
+
+    private boolean hasListing(final File element, final String elementKey) {
+        final File listingFile = getListingFile(element);
+        if (!listingFile.isFile()) {
+            return false;
+        }
+
+        try (BufferedReader reader = new BufferedReader(newReader(listingFile))) {
+            return elementKey.equals(reader.readLine());
+        } catch (IOException e) {
+            LOG.debug(format("Could not read listing %s", listingFile), e);
+            return false;
+        }
+    }
+
+    /**
+     * Returns the element of a listing, nothing for a JDK listing or a file that is not a listing.
+     */
+    private static Optional<File> getListedElement(final File listingFile) {
+        try (BufferedReader reader = new BufferedReader(newReader(listingFile))) {
+            final String elementKey = reader.readLine();
+            if (elementKey == null || elementKey.startsWith("jdk\t")) {
+                return Optional.empty();
+            }
+            final int index = elementKey.indexOf('\t');
+            return Optional.of(new File(index < 0 ? elementKey : elementKey.substring(0, index)));
+        } catch (IOException e) {
+            LOG.debug(format("Could not read listing %s", listingFile), e);
+            return Optional.empty();
+        }
+    }
+
+    private Optional<ClasspathCacheElement> load(final File element, final String elementKey) {
+        final File listingFile = getListingFile(element);
+        if (!listingFile.isFile()) {
+            return Optional.empty();
+        }
+
+        try (BufferedReader reader = new BufferedReader(newReader(listingFile))) {
+            if (!elementKey.equals(reader.readLine())) {
+                return Optional.empty();
+            }
+
+            final ClasspathCacheElement.Builder builder = ClasspathCacheElement.builder(element);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(CLASS_PREFIX)) {
+                    builder.addClass(line.substring(CLASS_PREFIX.length()));
+                } else if (line.startsWith(RESOURCE_PREFIX)) {
+                    builder.addResource(line.substring(RESOURCE_PREFIX.length()));
+                }
+            }
+            return Optional.of(builder.build());
+        } catch (IOException e) {
+            LOG.debug(format("Could not read listing %s", listingFile), e);
+            return Optional.empty();
+        }
+    }
+
+    private void store(final File element, final String elementKey, final ClasspathCacheElement cacheElement) throws IOException {
+        final File listingFile = getListingFile(element);
+        Files.createDirectories(directory.toPath());
+
+        // write to a temporary file first, so that a concurrent reader never sees a partial listing.
+        final Path tempFile = Files.createTempFile(directory.toPath(), listingFile.getName(), ".tmp");
+        try {
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8))) {
+                writer.write(elementKey);
+                writer.write('\n');
+                for (final String className : cacheElement.getClasses()) {
+                    writer.write(CLASS_PREFIX);
+                    writer.write(className);
+                    writer.write('\n');
+                }
+                for (final String resource : cacheElement.getResources()) {
+                    writer.write(RESOURCE_PREFIX);
+                    writer.write(resource);
+                    writer.write('\n');
+                }
+            }
+            Files.move(tempFile, listingFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+        currentElements.add(element);
+    }
+
+    private File getListingFile(final File element) {
+        final String elementName = JdkModules.isJdkElement(element) ? getElementKey(element) : element.getAbsolutePath();
+        final String name = Hashing.sha256().hashString(elementName, StandardCharsets.UTF_8).toString();
+        return new File(directory, name.substring(0, 32) + ".gz");
+    }
+
+    private static String getElementKey(final File element) {
+        if (JdkModules.isJdkElement(element)) {
+            // a JDK build has the same listing wherever it is installed.
+            return format("jdk\t%s", JdkModules.getJdkKey(element));
+        }
+
+        // a nested archive changes with the archive that contains it.
+        final File archive = NestedArchives.getArchiveFile(element);
+        return format("%s\t%d\t%d", element.getAbsolutePath(), archive.length(), archive.lastModified());
+    }
+
+    private static Reader newReader(final File file) throws IOException {
+        return new InputStreamReader(new GZIPInputStream(Files.newInputStream(file.toPath())), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Scans a classpath element from disk.
+     */
+    @FunctionalInterface
+    interface ElementScanner {
+
+        ClasspathCacheElement scan(File element) throws IOException;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import org.basepom.mojo.duplicatefinder.ConflictType;
+
+import java.io.File;
+import java.util.Collection;
+
+/**
+ * Notified by the {@link ClasspathDescriptor} while the classpath is scanned, every time a class or resource is found in more than one classpath element.
+ * This allows later stages (e.g. content hashing) to start before the whole classpath has been scanned. The listener is also told when an element leaves
+ * the index, so that it can drop its state for the element.
+ */
+@FunctionalInterface
+public interface DuplicateListener {
+
+    DuplicateListener NONE = (type, name, elements) -> {};
+
+    /**
+     * Called when a class or resource has been found in an additional classpath element.
+     *
+     * @param type     The type of the duplicate.
+     * @param name     The class or resource name.
+     * @param elements All classpath elements that contain the class or resource so far. The collection must not be retained.
+     */
+    void duplicateFound(ConflictType type, String name, Collection<File> elements);
+
+    /**
+     * Called when a classpath element has been removed from the index, or before it is scanned again because it has changed.
+     *
+     * @param element The classpath element.
+     */
+    default void elementRemoved(final File element) {
+    }
+}
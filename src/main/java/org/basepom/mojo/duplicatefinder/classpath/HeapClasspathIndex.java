@@ -0,0 +1,57 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+import com.google.common.collect.Multimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.Multimaps;
+
+/**
+ * Keeps the index in a sorted multimap on the heap.
+ */
+final class HeapClasspathIndex implements ClasspathIndex {
+
+    private final Multimap<String, File> namesWithElements = MultimapBuilder.treeKeys().hashSetValues().build();
+
+    @Override
+    public Collection<File> put(final String name, final File element) {
+        return namesWithElements.put(name, element) ? namesWithElements.get(name) : Collections.emptySet();
+    }
+
+    @Override
+    public void remove(final File element, final Collection<String> names) {
+        for (final String name : names) {
+            namesWithElements.remove(name, element);
+        }
+    }
+
+    @Override
+    public Map<String, Collection<File>> asMap() {
+        return Multimaps.unmodifiableMultimap(namesWithElements).asMap();
+    }
+
+    /**
+     * Removes all names from the index.
+     */
+    void clear() {
+        namesWithElements.clear();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap budget of the classpath indexes. All indexes that are built with the same budget share it, e.g. the indexes of the classpath scopes that are checked
+ * at the same time. An index whose estimated size does not fit into the budget any more is moved to memory-mapped files in the spill directory and does
+ * not count against the budget from then on.
+ * <p>
+ * This class is thread safe.
+ */
+public final class IndexBudget {
+
+    private static final IndexBudget UNLIMITED = new IndexBudget(Long.MAX_VALUE, null);
+
+    private final long maxHeapBytes;
+    private final File spillDirectory;
+    private final AtomicLong usedHeapBytes = new AtomicLong();
+
+    /**
+     * Returns a budget that keeps all indexes on the heap.
+     */
+    public static IndexBudget unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * Returns a budget that uses a quarter of the maximum heap size.
+     */
+    public static IndexBudget defaultBudget(final File spillDirectory) {
+        return new IndexBudget(Runtime.getRuntime().maxMemory() / 4, spillDirectory);
+    }
+
+    /**
+     * @param maxHeapBytes   Estimated heap size of all indexes that use this budget.
+     * @param spillDirectory Folder for the memory-mapped index files. It is created if it does not exist.
+     */
+    public IndexBudget(final long maxHeapBytes, final File spillDirectory) {
+        checkArgument(maxHeapBytes > 0, "maxHeapBytes must be positive, not %s", maxHeapBytes);
+        checkArgument(spillDirectory != null || maxHeapBytes == Long.MAX_VALUE, "spillDirectory is null");
+
+        this.maxHeapBytes = maxHeapBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public long getMaxHeapBytes() {
+        return maxHeapBytes;
+    }
+
+    public File getSpillDirectory() {
+        return checkNotNull(spillDirectory, "an unlimited budget has no spill directory");
+    }
+
+    /**
+     * Returns the estimated heap size of the indexes that use this budget.
+     */
+    public long getUsedHeapBytes() {
+        return usedHeapBytes.get();
+    }
+
+    /**
+     * Reserves heap for an index. Nothing is reserved if the budget is exceeded.
+     *
+     * @return True if the heap was reserved, false if the index should be moved off the heap.
+     */
+    boolean reserve(final long bytes) {
+        if (maxHeapBytes == Long.MAX_VALUE) {
+            return true;
+        }
+
+        long used;
+        do {
+            used = usedHeapBytes.get();
+            if (used + bytes > maxHeapBytes) {
+                return false;
+            }
+        } while (!usedHeapBytes.compareAndSet(used, used + bytes));
+        return true;
+    }
+
+    /**
+     * Returns heap that was reserved by an index.
+     */
+    void release(final long bytes) {
+        if (maxHeapBytes != Long.MAX_VALUE) {
+            usedHeapBytes.addAndGet(-bytes);
+        }
+    }
+}
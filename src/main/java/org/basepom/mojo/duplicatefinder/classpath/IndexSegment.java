@@ -0,0 +1,258 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.Ints;
+
+/**
+ * An immutable run of names, sorted by name, and the ids of the classpath elements that contain them. The run is kept in a memory-mapped file, only the
+ * restart points and a bloom filter of the names are on the heap.
+ * <p>
+ * Names are stored in UTF-8 without the prefix that they share with the previous name, element ids are stored as deltas. Every {@link #RESTART_INTERVAL}
+ * names, a name is stored in full. A lookup searches these restart points and then scans at most {@link #RESTART_INTERVAL} names.
+ */
+final class IndexSegment {
+
+    static final int RESTART_INTERVAL = 16;
+
+    private static final double BLOOM_FILTER_FPP = 0.01;
+
+    private final ByteBuffer data;
+    private final int[] restarts;
+    private final int size;
+    private final BloomFilter<CharSequence> names;
+
+    /**
+     * Writes a segment to a new file in a folder and maps it into memory. The file is deleted once it has been mapped, the segment stays readable until it
+     * is no longer referenced.
+     *
+     * @param entries      Names in ascending order, each with the ascending ids of its elements.
+     * @param expectedSize The expected number of names, used to size the bloom filter.
+     */
+    static IndexSegment write(final File directory, final Iterator<Entry<String, int[]>> entries, final int expectedSize) throws IOException {
+        Files.createDirectories(directory.toPath());
+        final Path path = Files.createTempFile(directory.toPath(), "index-", ".segment");
+
+        final BloomFilter<CharSequence> names = BloomFilter.create(Funnels.unencodedCharsFunnel(), Math.max(expectedSize, 1), BLOOM_FILTER_FPP);
+        final List<Integer> restarts = new ArrayList<>();
+        int size = 0;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+            // not closed, this would close the channel before it is mapped.
+            final CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+            String previousName = null;
+            byte[] previousKey = new byte[0];
+            while (entries.hasNext()) {
+                final Entry<String, int[]> entry = entries.next();
+                final String name = entry.getKey();
+                checkArgument(previousName == null || previousName.compareTo(name) < 0, "names are not sorted: '%s' after '%s'", name, previousName);
+
+                final byte[] key = name.getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                if (size % RESTART_INTERVAL == 0) {
+                    checkState(out.getCount() <= Integer.MAX_VALUE, "index segment is larger than 2 GB");
+                    restarts.add((int) out.getCount());
+                } else {
+                    shared = Arrays.mismatch(previousKey, key);
+                    shared = shared < 0 ? key.length : shared;
+                }
+
+                writeVarInt(out, shared);
+                writeVarInt(out, key.length - shared);
+                out.write(key, shared, key.length - shared);
+
+                final int[] ids = entry.getValue();
+                writeVarInt(out, ids.length);
+                int previousId = 0;
+                for (final int id : ids) {
+                    checkArgument(id >= previousId, "element ids of '%s' are not sorted", name);
+                    writeVarInt(out, id - previousId);
+                    previousId = id;
+                }
+
+                names.put(name);
+                previousName = name;
+                previousKey = key;
+                size++;
+            }
+            out.flush();
+
+            checkState(channel.size() <= Integer.MAX_VALUE, "index segment is larger than 2 GB");
+            return new IndexSegment(channel.map(MapMode.READ_ONLY, 0, channel.size()), Ints.toArray(restarts), size, names);
+        }
+    }
+
+    private IndexSegment(final ByteBuffer data, final int[] restarts, final int size, final BloomFilter<CharSequence> names) {
+        this.data = data;
+        this.restarts = restarts;
+        this.size = size;
+        this.names = names;
+    }
+
+    /**
+     * Returns the number of names in the segment.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element ids of a name, or null if the segment does not contain the name.
+     */
+    int[] find(final String name) {
+        if (!names.mightContain(name)) {
+            return null;
+        }
+
+        // find the last restart point that is not after the name.
+        int low = 0;
+        int high = restarts.length - 1;
+        int restart = -1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final Cursor cursor = new Cursor(restarts[middle]);
+            cursor.next();
+            final int compare = cursor.getName().compareTo(name);
+            if (compare == 0) {
+                return cursor.getIds();
+            } else if (compare < 0) {
+                restart = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+
+        if (restart >= 0) {
+            final Cursor cursor = new Cursor(restarts[restart]);
+            for (int i = 0; i < RESTART_INTERVAL && cursor.next(); i++) {
+                final int compare = cursor.getName().compareTo(name);
+                if (compare == 0) {
+                    return cursor.getIds();
+                } else if (compare > 0) {
+                    break;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns all names of the segment in ascending order, each with the ascending ids of its elements.
+     */
+    Iterator<Entry<String, int[]>> iterator() {
+        final Cursor cursor = new Cursor(0);
+        return new AbstractIterator<>() {
+            @Override
+            protected Entry<String, int[]> computeNext() {
+                return cursor.next() ? new SimpleImmutableEntry<>(cursor.getName(), cursor.getIds()) : endOfData();
+            }
+        };
+    }
+
+    private static void writeVarInt(final OutputStream out, final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7F) != 0) {
+            out.write((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+        out.write(remaining);
+    }
+
+    /**
+     * Reads the segment from a restart point. Every cursor has its own view of the mapped file, so that cursors can be used at the same time.
+     */
+    private final class Cursor {
+
+        private final ByteBuffer buffer;
+        private byte[] key = new byte[64];
+        private int keyLength = 0;
+        private int[] ids = null;
+
+        private Cursor(final int position) {
+            this.buffer = data.duplicate();
+            buffer.position(position);
+        }
+
+        private boolean next() {
+            if (!buffer.hasRemaining()) {
+                return false;
+            }
+
+            final int shared = readVarInt();
+            final int suffix = readVarInt();
+            if (shared + suffix > key.length) {
+                key = Arrays.copyOf(key, Math.max(shared + suffix, key.length * 2));
+            }
+            buffer.get(key, shared, suffix);
+            keyLength = shared + suffix;
+
+            ids = new int[readVarInt()];
+            int id = 0;
+            for (int i = 0; i < ids.length; i++) {
+                id += readVarInt();
+                ids[i] = id;
+            }
+            return true;
+        }
+
+        private String getName() {
+            return new String(key, 0, keyLength, StandardCharsets.UTF_8);
+        }
+
+        private int[] getIds() {
+            return ids;
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                final byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.google.common.hash.Hashing;
+
+/**
+ * The classes of the modules of a JDK (Java 9 and later), read through the <code>jrt:/</code> file system of the JDK. A JDK is represented on the classpath
+ * by its module image <code>lib/modules</code>, so that it is scanned, cached and reported like any other classpath element.
+ * <p>
+ * Only classes are listed, the resources of the JDK modules are internal to the JDK. The listing of a JDK only changes with the JDK build, which is
+ * identified by its version and the content of its <code>release</code> file (see {@link #getJdkKey(File)}).
+ */
+public final class JdkModules {
+
+    private static final URI JRT_URI = URI.create("jrt:/");
+
+    private static final String LIB_FOLDER = "lib";
+    private static final String MODULES_FILE = "modules";
+    private static final String RELEASE_FILE = "release";
+
+    // jrt file systems of other JDKs. They are kept open for the lifetime of the VM, like the file system of the running JDK.
+    private static final ConcurrentMap<File, FileSystem> FILE_SYSTEMS = new ConcurrentHashMap<>();
+
+    private JdkModules() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    /**
+     * Returns the classpath element of the JDK in a java home folder.
+     *
+     * @throws IllegalArgumentException If the folder does not contain a JDK 9 or later.
+     */
+    public static File getJdkElement(final File javaHome) {
+        checkNotNull(javaHome, "javaHome is null");
+
+        final File element = new File(new File(javaHome.getAbsoluteFile(), LIB_FOLDER), MODULES_FILE);
+        checkArgument(isJdkElement(element), "'%s' is not a JDK 9 or later (no %s and %s)", javaHome, element, RELEASE_FILE);
+        return element;
+    }
+
+    /**
+     * Returns the classpath element of the JDK that runs this code.
+     */
+    public static File getRunningJdkElement() {
+        return getJdkElement(getRunningJavaHome());
+    }
+
+    /**
+     * Returns true if a classpath element is the module image of a JDK.
+     */
+    public static boolean isJdkElement(final File element) {
+        if (!MODULES_FILE.equals(element.getName())) {
+            return false;
+        }
+
+        final File libFolder = element.getAbsoluteFile().getParentFile();
+        return libFolder != null && LIB_FOLDER.equals(libFolder.getName()) && element.isFile() && new File(libFolder.getParentFile(), RELEASE_FILE).isFile();
+    }
+
+    /**
+     * Returns the version of the JDK, as reported by its <code>release</code> file.
+     */
+    public static String getJavaVersion(final File element) {
+        final Properties release = new Properties();
+        try (InputStream in = new ByteArrayInputStream(readRelease(element))) {
+            release.load(in);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Optional.ofNullable(release.getProperty("JAVA_VERSION")).map(version -> version.replace("\"", "")).orElse("unknown");
+    }
+
+    /**
+     * Returns the key of the JDK build: its version and a hash of its <code>release</code> file, which changes with every JDK build. A listing of the JDK
+     * classes with the same key is current.
+     */
+    public static String getJdkKey(final File element) {
+        return format("%s\t%s", getJavaVersion(element), Hashing.sha256().hashBytes(readRelease(element)));
+    }
+
+    /**
+     * Reports the names of all classes in all modules of the JDK.
+     */
+    static void listEntries(final File element, final Consumer<String> consumer) throws IOException {
+        final Path modules = getFileSystem(element).getPath("/modules");
+
+        try (DirectoryStream<Path> moduleFolders = Files.newDirectoryStream(modules)) {
+            for (final Path moduleFolder : moduleFolders) {
+                try (Stream<Path> paths = Files.walk(moduleFolder)) {
+                    paths.filter(path -> path.getFileName() != null && path.getFileName().toString().endsWith(".class"))
+                            .filter(Files::isRegularFile)
+                            .forEach(path -> consumer.accept(moduleFolder.relativize(path).toString()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Opens a class of the JDK. The module that contains the class is found through the package index of the module image.
+     *
+     * @throws NoSuchFileException If the JDK does not contain the class.
+     */
+    public static InputStream openEntry(final File element, final String resourcePath) throws IOException {
+        checkNotNull(element, "element is null");
+        checkNotNull(resourcePath, "resourcePath is null");
+
+        final Optional<Path> path = findEntry(getFileSystem(element), resourcePath);
+        if (!path.isPresent()) {
+            throw new NoSuchFileException(format("Could not find %s in %s", resourcePath, element));
+        }
+        return Files.newInputStream(path.get());
+    }
+
+    /**
+     * Returns the sizes of the classes of the JDK. Classes that the JDK does not contain are not returned.
+     */
+    public static Map<String, Long> getEntrySizes(final File element, final Collection<String> resourcePaths) throws IOException {
+        checkNotNull(element, "element is null");
+        checkNotNull(resourcePaths, "resourcePaths is null");
+
+        final FileSystem fileSystem = getFileSystem(element);
+        final Map<String, Long> sizes = new HashMap<>();
+        for (final String resourcePath : resourcePaths) {
+            final Optional<Path> path = findEntry(fileSystem, resourcePath);
+            if (path.isPresent()) {
+                sizes.put(resourcePath, Files.size(path.get()));
+            }
+        }
+        return sizes;
+    }
+
+    private static Optional<Path> findEntry(final FileSystem fileSystem, final String resourcePath) throws IOException {
+        final int packageEnd = resourcePath.lastIndexOf('/');
+        if (packageEnd < 0) {
+            // JDK modules have no classes in the default package.
+            return Optional.empty();
+        }
+
+        // Every package is a folder in /packages that links to the modules that contain it.
+        final Path packageFolder = fileSystem.getPath("/packages", resourcePath.substring(0, packageEnd).replace('/', '.'));
+        if (!Files.isDirectory(packageFolder)) {
+            return Optional.empty();
+        }
+
+        try (DirectoryStream<Path> modules = Files.newDirectoryStream(packageFolder)) {
+            for (final Path module : modules) {
+                final Path path = fileSystem.getPath("/modules", module.getFileName().toString(), resourcePath);
+                if (Files.isRegularFile(path)) {
+                    return Optional.of(path);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static FileSystem getFileSystem(final File element) throws IOException {
+        checkArgument(isJdkElement(element), "'%s' is not a JDK module image", element);
+
+        final File javaHome = getJavaHome(element);
+        if (javaHome.equals(getRunningJavaHome())) {
+            return FileSystems.getFileSystem(JRT_URI);
+        }
+
+        try {
+            // Another JDK is read with the jrt file system implementation of that JDK.
+            return FILE_SYSTEMS.computeIfAbsent(javaHome, home -> {
+                try {
+                    return FileSystems.newFileSystem(JRT_URI, Collections.singletonMap("java.home", home.getPath()));
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw new IOException(format("Could not open the modules of %s", javaHome), e.getCause());
+        }
+    }
+
+    private static byte[] readRelease(final File element) {
+        try {
+            return Files.readAllBytes(new File(getJavaHome(element), RELEASE_FILE).toPath());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(format("Could not read the release file of %s", getJavaHome(element)), e);
+        }
+    }
+
+    /**
+     * Returns the java home folder of a JDK element.
+     */
+    public static File getJavaHome(final File element) {
+        checkNotNull(element, "element is null");
+
+        return canonical(element.getAbsoluteFile().getParentFile().getParentFile());
+    }
+
+    private static File getRunningJavaHome() {
+        return canonical(new File(System.getProperty("java.home")));
+    }
+
+    private static File canonical(final File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (final IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.MultimapBuilder;
+import com.google.common.collect.PeekingIterator;
+
+/**
+ * Keeps the index in memory-mapped files. New names are collected in a small buffer on the heap, which is written to an {@link IndexSegment} when it is
+ * full. Segments are merged when there are too many of them. Removed elements are only marked as removed, their ids are dropped when segments are merged.
+ * <p>
+ * All queries merge the segments and the buffer, so this index is slower than the {@link HeapClasspathIndex} but its heap size does not grow with the
+ * number of names.
+ */
+final class MappedClasspathIndex implements ClasspathIndex {
+
+    /**
+     * Number of names in the buffer before it is written to a segment.
+     */
+    static final int BUFFER_SIZE = 65_536;
+
+    /**
+     * Maximum number of segments before they are merged into one.
+     */
+    static final int MAX_SEGMENTS = 8;
+
+    private final File spillDirectory;
+    private final int bufferSize;
+
+    // Elements by id. Ids are never reused, an element that is added again after it has been removed gets a new id.
+    private final List<File> elements = new ArrayList<>();
+    private final Map<File, Integer> elementIds = new HashMap<>();
+    private final BitSet removedIds = new BitSet();
+
+    private final ListMultimap<String, Integer> buffer = MultimapBuilder.treeKeys().arrayListValues(2).build();
+    private final List<IndexSegment> segments = new ArrayList<>();
+
+    /**
+     * Copies another index into a new index. The names of the other index are written to a single segment.
+     *
+     * @param elements The elements of the other index, in classpath order.
+     */
+    static MappedClasspathIndex copyOf(final ClasspathIndex index, final Collection<File> elements, final File spillDirectory) throws IOException {
+        final MappedClasspathIndex mappedIndex = new MappedClasspathIndex(spillDirectory, BUFFER_SIZE);
+        elements.forEach(mappedIndex::getElementId);
+
+        final Map<String, Collection<File>> names = index.asMap();
+        mappedIndex.segments.add(IndexSegment.write(spillDirectory,
+                Iterators.transform(names.entrySet().iterator(),
+                        entry -> new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().stream().mapToInt(mappedIndex::getElementId).sorted().toArray())),
+                names.size()));
+        return mappedIndex;
+    }
+
+    MappedClasspathIndex(final File spillDirectory, final int bufferSize) {
+        checkArgument(bufferSize > 0, "bufferSize must be positive, not %s", bufferSize);
+
+        this.spillDirectory = checkNotNull(spillDirectory, "spillDirectory is null");
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public Collection<File> put(final String name, final File element) throws IOException {
+        final int id = getElementId(element);
+        final BitSet ids = findIds(name);
+        if (ids.get(id)) {
+            return Collections.emptySet();
+        }
+
+        buffer.put(name, id);
+        ids.set(id);
+        final Collection<File> result = getElements(ids.stream().toArray());
+
+        if (buffer.keySet().size() >= bufferSize) {
+            flush();
+        }
+        return result;
+    }
+
+    @Override
+    public void remove(final File element, final Collection<String> names) {
+        final Integer id = elementIds.remove(element);
+        if (id != null) {
+            removedIds.set(id);
+        }
+    }
+
+    @Override
+    public Map<String, Collection<File>> asMap() {
+        return new AbstractMap<String, Collection<File>>() {
+            @Override
+            public Set<Entry<String, Collection<File>>> entrySet() {
+                return new AbstractSet<Entry<String, Collection<File>>>() {
+                    @Override
+                    public Iterator<Entry<String, Collection<File>>> iterator() {
+                        return Iterators.transform(mergeSegments(true), entry -> new SimpleImmutableEntry<>(entry.getKey(), getElements(entry.getValue())));
+                    }
+
+                    @Override
+                    public int size() {
+                        return Iterators.size(mergeSegments(true));
+                    }
+                };
+            }
+
+            @Override
+            public Collection<File> get(final Object key) {
+                if (!(key instanceof String)) {
+                    return null;
+                }
+                final BitSet ids = findIds((String) key);
+                return ids.isEmpty() ? null : getElements(ids.stream().toArray());
+            }
+
+            @Override
+            public boolean containsKey(final Object key) {
+                return get(key) != null;
+            }
+        };
+    }
+
+    /**
+     * Returns the number of segments.
+     */
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    private int getElementId(final File element) {
+        return elementIds.computeIfAbsent(element, e -> {
+            elements.add(e);
+            return elements.size() - 1;
+        });
+    }
+
+    private Collection<File> getElements(final int[] ids) {
+        final ImmutableList.Builder<File> builder = ImmutableList.builderWithExpectedSize(ids.length);
+        for (final int id : ids) {
+            builder.add(elements.get(id));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the ids of all elements that contain a name and have not been removed.
+     */
+    private BitSet findIds(final String name) {
+        final BitSet ids = new BitSet();
+        for (final IndexSegment segment : segments) {
+            final int[] found = segment.find(name);
+            if (found != null) {
+                for (final int id : found) {
+                    ids.set(id);
+                }
+            }
+        }
+        for (final int id : buffer.get(name)) {
+            ids.set(id);
+        }
+        ids.andNot(removedIds);
+        return ids;
+    }
+
+    /**
+     * Writes the buffer to a new segment, and merges all segments if there are too many.
+     */
+    private void flush() throws IOException {
+        segments.add(IndexSegment.write(spillDirectory, Iterators.transform(buffer.asMap().entrySet().iterator(),
+                entry -> new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).sorted().toArray())),
+                buffer.keySet().size()));
+        buffer.clear();
+
+        if (segments.size() > MAX_SEGMENTS) {
+            int expectedSize = 0;
+            for (final IndexSegment segment : segments) {
+                expectedSize += segment.size();
+            }
+            final IndexSegment merged = IndexSegment.write(spillDirectory, mergeSegments(false), expectedSize);
+            segments.clear();
+            segments.add(merged);
+        }
+    }
+
+    /**
+     * Merges the names of all segments and optionally the buffer. Every name is returned once, with the ascending ids of all elements that contain it and
+     * have not been removed. Names without such elements are skipped.
+     */
+    private Iterator<Entry<String, int[]>> mergeSegments(final boolean includeBuffer) {
+        final List<Iterator<Entry<String, int[]>>> sources = new ArrayList<>(segments.size() + 1);
+        for (final IndexSegment segment : segments) {
+            sources.add(segment.iterator());
+        }
+        if (includeBuffer) {
+            sources.add(Iterators.transform(buffer.asMap().entrySet().iterator(),
+                    entry -> new SimpleImmutableEntry<>(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray())));
+        }
+
+        final PeekingIterator<Entry<String, int[]>> entries = Iterators.peekingIterator(Iterators.mergeSorted(sources, Entry.comparingByKey()));
+        return new AbstractIterator<>() {
+            @Override
+            protected Entry<String, int[]> computeNext() {
+                while (entries.hasNext()) {
+                    final Entry<String, int[]> entry = entries.next();
+                    final BitSet ids = new BitSet();
+                    addIds(ids, entry.getValue());
+                    while (entries.hasNext() && entries.peek().getKey().equals(entry.getKey())) {
+                        addIds(ids, entries.next().getValue());
+                    }
+
+                    ids.andNot(removedIds);
+                    if (!ids.isEmpty()) {
+                        return new SimpleImmutableEntry<>(entry.getKey(), ids.stream().toArray());
+                    }
+                }
+                return endOfData();
+            }
+        };
+    }
+
+    private static void addIds(final BitSet ids, final int[] values) {
+        for (final int id : values) {
+            ids.set(id);
+        }
+    }
+}
@@ -17,7 +17,11 @@ package org.basepom.mojo.duplicatefinder.classpath;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.String.format;
 
+import org.basepom.mojo.duplicatefinder.PatternProfiler;
+import org.basepom.mojo.duplicatefinder.PatternProfiler.PatternStatistics;
+
 import java.util.Collection;
+import java.util.List;
 import java.util.regex.Pattern;
 
 import com.google.common.base.Predicate;
@@ -46,16 +50,57 @@ class MatchPatternPredicate implements Predicate<String> {
         return patterns;
     }
 
+    /**
+     * Returns a predicate that records the evaluations, matches and match time of every pattern in the profiler, or this predicate if the profiler is
+     * disabled.
+     *
+     * @param list     The name of the pattern list in the profiler.
+     * @param profiler The pattern profiler.
+     */
+    Predicate<String> profiled(final String list, final PatternProfiler profiler) {
+        checkNotNull(list, "list is null");
+        checkNotNull(profiler, "profiler is null");
+
+        if (!profiler.isEnabled()) {
+            return this;
+        }
+
+        final ImmutableList.Builder<PatternStatistics> builder = ImmutableList.builder();
+        for (final Pattern pattern : patterns) {
+            builder.add(profiler.getStatistics(list, pattern));
+        }
+        final List<PatternStatistics> statistics = builder.build();
+
+        return input -> {
+            if (input != null) {
+                for (final PatternStatistics patternStatistics : statistics) {
+                    if (patternStatistics.matches(input)) {
+                        logMatch(input, patternStatistics.getPattern());
+                        return true;
+                    }
+                }
+            }
+            return false;
+        };
+    }
+
     @Override
     public boolean apply(final String input) {
         if (input != null) {
             for (final Pattern pattern : patterns) {
                 if (pattern.matcher(input).matches()) {
-                    LOG.debug(format("Ignoring '%s' (matches %s)", input, pattern.pattern()));
+                    logMatch(input, pattern.pattern());
                     return true;
                 }
             }
         }
         return false;
     }
+
+    private static void logMatch(final String input, final String pattern) {
+        // Called for every ignored class and resource, do not format the message unless it is logged.
+        if (LOG.isDebugEnabled()) {
+            LOG.debug(format("Ignoring '%s' (matches %s)", input, pattern));
+        }
+    }
 }
@@ -0,0 +1,405 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Classpath elements inside another archive, e.g. the jars in <code>WEB-INF/lib</code> of a WAR or in <code>BOOT-INF/lib</code> of a Spring Boot jar.
+ * <p>
+ * A nested element is a {@link File} whose path is the path of the outer archive, followed by <code>!/</code> and the name of the entry, e.g.
+ * <code>app.war!/WEB-INF/lib/guava.jar</code>. Entries whose name ends with <code>.jar</code> are nested archives, all other entries are folders in the outer
+ * archive, e.g. <code>app.war!/WEB-INF/classes</code>. Only one level of nesting is supported.
+ * <p>
+ * Nested archives are never extracted. An archive that is stored uncompressed (which Spring Boot requires) is read in place with positioned reads on the
+ * outer archive, a compressed archive is streamed.
+ */
+public final class NestedArchives {
+
+    private static final Logger LOG = LoggerFactory.getLogger(NestedArchives.class);
+
+    private static final String SEPARATOR = "!" + File.separator;
+
+    private static final List<String> CLASS_FOLDERS = ImmutableList.of("BOOT-INF/classes/", "WEB-INF/classes/");
+    private static final List<String> LIB_FOLDERS = ImmutableList.of("BOOT-INF/lib/", "WEB-INF/lib/", "WEB-INF/lib-provided/");
+    private static final List<String> EAR_LIB_FOLDERS = ImmutableList.of("", "lib/");
+
+    // Directories of stored nested archives. Scanning and hashing read the same nested archive many times. A compressed nested archive has no directory
+    // that can be read in place, this is cached as well.
+    private static final Cache<String, Optional<ZipDirectory>> DIRECTORIES = CacheBuilder.newBuilder().maximumSize(1024).build();
+
+    // Sizes and CRCs of the entries of compressed nested archives, by entry name. They are only known after the archive was streamed.
+    private static final Cache<String, Map<String, ZipEntry>> STREAMED_ENTRIES = CacheBuilder.newBuilder()
+            .maximumWeight(250_000)
+            .<String, Map<String, ZipEntry>>weigher((key, entries) -> entries.size())
+            .build();
+
+    private NestedArchives() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    /**
+     * Returns the classpath elements of an archive: its class folder and nested archives, or the archive itself if it does not contain any.
+     * <p>
+     * Nested archives are the jars in <code>BOOT-INF/lib</code>, <code>WEB-INF/lib</code> and <code>WEB-INF/lib-provided</code>, and for an EAR the jars
+     * in the root folder and in <code>lib</code>. Class folders are <code>BOOT-INF/classes</code> and <code>WEB-INF/classes</code>.
+     */
+    public static List<File> expand(final File archive) throws IOException {
+        checkNotNull(archive, "archive is null");
+
+        if (!archive.isFile()) {
+            return ImmutableList.of(archive);
+        }
+
+        final List<String> libFolders = archive.getName().endsWith(".ear") ? EAR_LIB_FOLDERS : LIB_FOLDERS;
+        final Set<String> classFolders = new LinkedHashSet<>();
+        final Set<String> nestedArchives = new LinkedHashSet<>();
+
+        try (ZipFile zip = new ZipFile(archive)) {
+            final Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                if (entry.isDirectory()) {
+                    continue;
+                }
+
+                final String name = entry.getName();
+                for (final String classFolder : CLASS_FOLDERS) {
+                    if (name.startsWith(classFolder)) {
+                        classFolders.add(classFolder.substring(0, classFolder.length() - 1));
+                    }
+                }
+
+                final int folderEnd = name.lastIndexOf('/') + 1;
+                if (isArchiveName(name) && libFolders.contains(name.substring(0, folderEnd))) {
+                    nestedArchives.add(name);
+                }
+            }
+        }
+
+        if (classFolders.isEmpty() && nestedArchives.isEmpty()) {
+            return ImmutableList.of(archive);
+        }
+
+        final ImmutableList.Builder<File> builder = ImmutableList.builder();
+        for (final String name : classFolders) {
+            builder.add(getNestedElement(archive, name));
+        }
+        for (final String name : nestedArchives) {
+            builder.add(getNestedElement(archive, name));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the classpath element for an entry of an archive.
+     */
+    public static File getNestedElement(final File archive, final String entryName) {
+        checkNotNull(archive, "archive is null");
+        checkNotNull(entryName, "entryName is null");
+
+        return new File(archive.getPath() + SEPARATOR + entryName.replace('/', File.separatorChar));
+    }
+
+    /**
+     * Returns true if a classpath element is inside another archive.
+     */
+    public static boolean isNested(final File element) {
+        return element.getPath().contains(SEPARATOR) && !element.exists();
+    }
+
+    /**
+     * Returns the file that contains a classpath element: the outer archive for a nested element, otherwise the element itself.
+     */
+    public static File getArchiveFile(final File element) {
+        final int index = element.getPath().indexOf(SEPARATOR);
+        if (index < 0 || element.exists()) {
+            return element;
+        }
+        return new File(element.getPath().substring(0, index));
+    }
+
+    /**
+     * Lists the names of the classes and resources of a nested element, relative to the element.
+     */
+    static void listEntries(final File element, final Consumer<String> entryNames) throws IOException {
+        final File archive = getArchiveFile(element);
+        final String entryName = getEntryName(element);
+
+        if (!isArchiveName(entryName)) {
+            final String prefix = entryName + '/';
+            try (ZipFile zip = new ZipFile(archive)) {
+                final Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    final ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().startsWith(prefix)) {
+                        entryNames.accept(entry.getName().substring(prefix.length()));
+                    }
+                }
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            final Optional<ZipDirectory> directory = getStoredDirectory(element, channel);
+            if (directory.isPresent()) {
+                for (final ZipDirectory.Entry entry : directory.get().getEntries()) {
+                    if (!entry.isDirectory()) {
+                        entryNames.accept(entry.getName());
+                    }
+                }
+                return;
+            }
+        }
+
+        getStreamedEntries(element).keySet().forEach(entryNames);
+    }
+
+    /**
+     * Returns the size and CRC of classes and resources of a nested element, as far as they are known without reading the content. Entries that do not
+     * exist are not returned.
+     */
+    public static Map<String, ZipEntry> getEntries(final File element, final Collection<String> resourcePaths) throws IOException {
+        checkNotNull(element, "element is null");
+        checkNotNull(resourcePaths, "resourcePaths is null");
+
+        final File archive = getArchiveFile(element);
+        final String entryName = getEntryName(element);
+        final Map<String, ZipEntry> entries = new HashMap<>();
+
+        if (!isArchiveName(entryName)) {
+            try (ZipFile zip = new ZipFile(archive)) {
+                for (final String resourcePath : resourcePaths) {
+                    final ZipEntry entry = zip.getEntry(entryName + '/' + resourcePath);
+                    if (entry != null) {
+                        entries.put(resourcePath, entry);
+                    }
+                }
+            }
+            return entries;
+        }
+
+        try (FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ)) {
+            final Optional<ZipDirectory> directory = getStoredDirectory(element, channel);
+            if (directory.isPresent()) {
+                for (final String resourcePath : resourcePaths) {
+                    final ZipDirectory.Entry entry = directory.get().getEntry(resourcePath);
+                    if (entry != null) {
+                        final ZipEntry zipEntry = new ZipEntry(resourcePath);
+                        zipEntry.setSize(entry.getSize());
+                        zipEntry.setCrc(entry.getCrc());
+                        entries.put(resourcePath, zipEntry);
+                    }
+                }
+                return entries;
+            }
+        }
+
+        // The directory of a compressed nested archive is at its end, sizes and CRCs are only known once all of it was inflated.
+        final Map<String, ZipEntry> streamedEntries = getStreamedEntries(element);
+        for (final String resourcePath : resourcePaths) {
+            final ZipEntry entry = streamedEntries.get(resourcePath);
+            if (entry != null && entry.getSize() >= 0 && entry.getCrc() >= 0) {
+                entries.put(resourcePath, entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Opens a class or resource of a nested element.
+     */
+    public static InputStream openEntry(final File element, final String resourcePath) throws IOException {
+        checkNotNull(element, "element is null");
+        checkNotNull(resourcePath, "resourcePath is null");
+
+        final File archive = getArchiveFile(element);
+        final String entryName = getEntryName(element);
+
+        if (!isArchiveName(entryName)) {
+            final ZipFile zip = new ZipFile(archive);
+            final ZipEntry entry = zip.getEntry(entryName + '/' + resourcePath);
+            if (entry == null) {
+                zip.close();
+                throw new IOException(format("Could not find %s in %s", resourcePath, element));
+            }
+            return closing(zip.getInputStream(entry), zip);
+        }
+
+        final FileChannel channel = FileChannel.open(archive.toPath(), StandardOpenOption.READ);
+        try {
+            final Optional<ZipDirectory> directory = getStoredDirectory(element, channel);
+            if (directory.isPresent()) {
+                final ZipDirectory.Entry entry = directory.get().getEntry(resourcePath);
+                if (entry == null) {
+                    throw new IOException(format("Could not find %s in %s", resourcePath, element));
+                }
+                return closing(directory.get().getInputStream(channel, entry), channel);
+            }
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channel.close();
+
+        final ZipFile zip = new ZipFile(archive);
+        try {
+            final ZipInputStream in = new ZipInputStream(zip.getInputStream(getOuterEntry(zip, element)));
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                if (entry.getName().equals(resourcePath)) {
+                    return closing(in, zip);
+                }
+            }
+            throw new IOException(format("Could not find %s in %s", resourcePath, element));
+        } catch (final IOException | RuntimeException e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the directory of a nested archive that is stored uncompressed, or nothing if it is compressed or can not be read in place.
+     */
+    private static Optional<ZipDirectory> getStoredDirectory(final File element, final FileChannel channel) throws IOException {
+        try {
+            return DIRECTORIES.get(getCacheKey(element), () -> readStoredDirectory(element, channel));
+        } catch (final ExecutionException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static Optional<ZipDirectory> readStoredDirectory(final File element, final FileChannel channel) throws IOException {
+        final ZipDirectory outer = ZipDirectory.read(channel, 0, channel.size());
+        final String entryName = getEntryName(element);
+        final ZipDirectory.Entry entry = outer.getEntry(entryName);
+
+        if (entry == null) {
+            throw new IOException(format("Could not find %s in %s", entryName, getArchiveFile(element)));
+        }
+
+        // a compressed or zip64 archive is streamed instead.
+        if (entry.getMethod() != ZipEntry.STORED) {
+            LOG.debug(format("Can not read %s in place: it is compressed", element));
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(ZipDirectory.read(channel, outer.getContentPosition(channel, entry), entry.getSize()));
+        } catch (final ZipException e) {
+            LOG.debug(format("Can not read %s in place: %s", element, e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the entries of a nested archive that can not be read in place, by name. The archive is streamed once, sizes and CRCs are known afterwards.
+     */
+    private static Map<String, ZipEntry> getStreamedEntries(final File element) throws IOException {
+        try {
+            return STREAMED_ENTRIES.get(getCacheKey(element), () -> readStreamedEntries(element));
+        } catch (final ExecutionException e) {
+            throw propagate(e);
+        }
+    }
+
+    private static Map<String, ZipEntry> readStreamedEntries(final File element) throws IOException {
+        final Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(getArchiveFile(element));
+                ZipInputStream in = new ZipInputStream(zip.getInputStream(getOuterEntry(zip, element)))) {
+            ZipEntry entry;
+            // moving to the next entry reads the current one to its end, which sets its size and CRC.
+            while ((entry = in.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    entries.putIfAbsent(entry.getName(), entry);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(entries);
+    }
+
+    private static String getCacheKey(final File element) {
+        final File archive = getArchiveFile(element);
+        return format("%s\t%d\t%d", element.getAbsolutePath(), archive.length(), archive.lastModified());
+    }
+
+    private static IOException propagate(final ExecutionException e) throws IOException {
+        Throwables.throwIfInstanceOf(e.getCause(), IOException.class);
+        Throwables.throwIfUnchecked(e.getCause());
+        return new IOException(e.getCause());
+    }
+
+    private static ZipEntry getOuterEntry(final ZipFile zip, final File element) throws IOException {
+        final ZipEntry entry = zip.getEntry(getEntryName(element));
+        if (entry == null) {
+            throw new IOException(format("Could not find %s in %s", getEntryName(element), zip.getName()));
+        }
+        return entry;
+    }
+
+    private static String getEntryName(final File element) {
+        final String path = element.getPath();
+        return path.substring(path.indexOf(SEPARATOR) + SEPARATOR.length()).replace(File.separatorChar, '/');
+    }
+
+    private static boolean isArchiveName(final String name) {
+        return name.endsWith(".jar");
+    }
+
+    private static InputStream closing(final InputStream in, final Closeable resource) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    resource.close();
+                }
+            }
+        };
+    }
+}
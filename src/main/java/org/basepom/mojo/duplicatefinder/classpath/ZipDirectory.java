@@ -0,0 +1,329 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.String.format;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * The central directory of a zip archive that starts at an offset of a file, e.g. a jar that is stored uncompressed inside a WAR or a fat jar. The directory
+ * and single entries are read with positioned reads on the channel of the file, the archive is never copied or extracted.
+ * <p>
+ * Zip64 archives are not supported. Archives with a prefix (e.g. a launch script in front of an executable jar) are supported. Instances are immutable and
+ * can be shared between threads, every read needs an open channel of the file.
+ */
+final class ZipDirectory {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE = 0x02014b50;
+    private static final int LOC_SIGNATURE = 0x04034b50;
+
+    private static final int EOCD_SIZE = 22;
+    private static final int CEN_SIZE = 46;
+    private static final int LOC_SIZE = 30;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int ZIP64_MAGIC_COUNT = 0xFFFF;
+    private static final long ZIP64_MAGIC_VALUE = 0xFFFFFFFFL;
+
+    private final long start;
+    private final Map<String, Entry> entries;
+
+    private ZipDirectory(final long start, final Map<String, Entry> entries) {
+        this.start = start;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads the central directory of the archive at <code>[start, start + length)</code> of a file.
+     *
+     * @throws ZipException If the region does not contain a zip archive or the archive uses features that are not supported.
+     */
+    static ZipDirectory read(final FileChannel channel, final long start, final long length) throws IOException {
+        checkNotNull(channel, "channel is null");
+        checkArgument(start >= 0 && length >= 0, "invalid region %s, %s", start, length);
+
+        final int tailSize = (int) Math.min(length, EOCD_SIZE + MAX_COMMENT_SIZE);
+        if (tailSize < EOCD_SIZE) {
+            throw new ZipException("archive is too small");
+        }
+
+        final long tailStart = length - tailSize;
+        final ByteBuffer tail = readFully(channel, start + tailStart, tailSize);
+
+        int eocd = -1;
+        for (int i = tailSize - EOCD_SIZE; i >= 0; i--) {
+            if (tail.getInt(i) == EOCD_SIGNATURE && getUnsignedShort(tail, i + 20) == tailSize - i - EOCD_SIZE) {
+                eocd = i;
+                break;
+            }
+        }
+        if (eocd < 0) {
+            throw new ZipException("no end of central directory record found");
+        }
+
+        final int entryCount = getUnsignedShort(tail, eocd + 10);
+        final long directorySize = getUnsignedInt(tail, eocd + 12);
+        final long directoryOffset = getUnsignedInt(tail, eocd + 16);
+        if (entryCount == ZIP64_MAGIC_COUNT || directorySize == ZIP64_MAGIC_VALUE || directoryOffset == ZIP64_MAGIC_VALUE) {
+            throw new ZipException("zip64 archives are not supported");
+        }
+
+        // The directory ends where the end record starts. Any difference to the stored offset is a prefix in front of the archive.
+        final long directoryStart = tailStart + eocd - directorySize;
+        final long prefix = directoryStart - directoryOffset;
+        if (directoryStart < 0 || prefix < 0 || directorySize > Integer.MAX_VALUE) {
+            throw new ZipException("invalid central directory");
+        }
+
+        final ByteBuffer directory = readFully(channel, start + directoryStart, (int) directorySize);
+        final Map<String, Entry> entries = new LinkedHashMap<>(entryCount * 2);
+
+        int position = 0;
+        for (int i = 0; i < entryCount; i++) {
+            if (position + CEN_SIZE > directory.limit() || directory.getInt(position) != CEN_SIGNATURE) {
+                throw new ZipException(format("invalid central directory entry %d", i));
+            }
+
+            final int nameLength = getUnsignedShort(directory, position + 28);
+            final int extraLength = getUnsignedShort(directory, position + 30);
+            final int commentLength = getUnsignedShort(directory, position + 32);
+            if (position + CEN_SIZE + nameLength > directory.limit()) {
+                throw new ZipException(format("invalid central directory entry %d", i));
+            }
+
+            final byte[] nameBytes = new byte[nameLength];
+            directory.position(position + CEN_SIZE);
+            directory.get(nameBytes);
+
+            final Entry entry = new Entry(new String(nameBytes, StandardCharsets.UTF_8),
+                    getUnsignedShort(directory, position + 10),
+                    getUnsignedInt(directory, position + 16),
+                    getUnsignedInt(directory, position + 20),
+                    getUnsignedInt(directory, position + 24),
+                    prefix + getUnsignedInt(directory, position + 42));
+            entries.putIfAbsent(entry.getName(), entry);
+
+            position += CEN_SIZE + nameLength + extraLength + commentLength;
+        }
+
+        return new ZipDirectory(start, entries);
+    }
+
+    Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Returns an entry or null if the archive does not contain it.
+     */
+    Entry getEntry(final String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Returns the position of the content of an entry in the file.
+     */
+    long getContentPosition(final FileChannel channel, final Entry entry) throws IOException {
+        final long headerPosition = start + entry.localHeaderOffset;
+        final ByteBuffer header = readFully(channel, headerPosition, LOC_SIZE);
+        if (header.getInt(0) != LOC_SIGNATURE) {
+            throw new ZipException(format("invalid local header for %s", entry.getName()));
+        }
+        return headerPosition + LOC_SIZE + getUnsignedShort(header, 26) + getUnsignedShort(header, 28);
+    }
+
+    /**
+     * Returns the uncompressed content of an entry. The stream reads from the channel, which must stay open until the stream is closed.
+     */
+    InputStream getInputStream(final FileChannel channel, final Entry entry) throws IOException {
+        final InputStream content = new ChannelInputStream(channel, getContentPosition(channel, entry), entry.getCompressedSize());
+
+        switch (entry.getMethod()) {
+            case ZipEntry.STORED:
+                return content;
+            case ZipEntry.DEFLATED:
+                return new RawInflaterInputStream(content);
+            default:
+                throw new ZipException(format("unsupported compression method %d for %s", entry.getMethod(), entry.getName()));
+        }
+    }
+
+    private static ByteBuffer readFully(final FileChannel channel, final long position, final int size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException(format("unexpected end of file at %d", position + buffer.position()));
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static int getUnsignedShort(final ByteBuffer buffer, final int index) {
+        return buffer.getShort(index) & 0xFFFF;
+    }
+
+    private static long getUnsignedInt(final ByteBuffer buffer, final int index) {
+        return buffer.getInt(index) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * An entry of the central directory.
+     */
+    static final class Entry {
+
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        private Entry(final String name, final int method, final long crc, final long compressedSize, final long size, final long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        String getName() {
+            return name;
+        }
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        int getMethod() {
+            return method;
+        }
+
+        long getCrc() {
+            return crc;
+        }
+
+        long getCompressedSize() {
+            return compressedSize;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * Inflates the content of a deflated entry. Raw deflate data needs an extra byte after its end, see {@link Inflater#Inflater(boolean)}.
+     */
+    private static final class RawInflaterInputStream extends InflaterInputStream {
+
+        private boolean eof;
+
+        private RawInflaterInputStream(final InputStream in) {
+            super(in, new Inflater(true));
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (eof) {
+                throw new EOFException("unexpected end of deflated content");
+            }
+            len = in.read(buf, 0, buf.length);
+            if (len == -1) {
+                buf[0] = 0;
+                len = 1;
+                eof = true;
+            }
+            inf.setInput(buf, 0, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            inf.end();
+        }
+    }
+
+    /**
+     * Reads a region of a file with positioned reads, so that many streams can read from the same channel at the same time.
+     */
+    private static final class ChannelInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private long position;
+        private long remaining;
+
+        private ChannelInputStream(final FileChannel channel, final long position, final long length) {
+            this.channel = channel;
+            this.position = position;
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            final int count = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, remaining)), position);
+            if (count < 0) {
+                throw new EOFException(format("unexpected end of file at %d", position));
+            }
+            position += count;
+            remaining -= count;
+            return count;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long skipped = Math.max(0, Math.min(n, remaining));
+            position += skipped;
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(remaining, Integer.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.basepom.mojo.duplicatefinder.groovy
+
+import java.util.zip.Deflater
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+
+/**
+ * Helper tool for the scale tests. Do not use outside the scale tests. Generates synthetic local repositories and reactor projects from the
+ * 'scale.properties' file of a scenario, and checks the measurements of a scenario against the budgets in the same file.
+ *
+ * Scenario settings (all optional):
+ *
+ * <ul>
+ * <li>scale.jars - number of jars in the local repository, all of them are dependencies of the scenario</li>
+ * <li>scale.classesPerJar, scale.resourcesPerJar - entries in each jar</li>
+ * <li>scale.overlapRate - fraction of the classes and resources of a jar that are also contained in the next jar</li>
+ * <li>scale.equalContentRatio - fraction of the overlapping entries that have the same content in both jars</li>
+ * <li>scale.shadedJars - number of additional jars that bundle the classes of scale.shadedJarSize other jars</li>
+ * <li>scale.relocatedRatio - fraction of the shaded jars that relocate the bundled classes into their own package</li>
+ * <li>scale.modules - number of reactor modules, each depends on the previous module and scale.jarsPerModule jars</li>
+ * <li>scale.classesPerModule - classes in the output folder of each module, scale.overlapRate of them duplicate classes from a jar</li>
+ * </ul>
+ *
+ * Budgets (a missing budget is not checked, all budgets are multiplied with the 'scale.budgetFactor' system property):
+ *
+ * <ul>
+ * <li>budget.wallTimeSeconds - lifetime of the Maven JVM</li>
+ * <li>budget.peakHeapMb - largest heap use before a garbage collection or at exit</li>
+ * <li>budget.allocationMb - total allocation, estimated from the heap use before and after each garbage collection</li>
+ * </ul>
+ */
+public final class ScaleTools
+{
+  def static final SCALE_PROPERTIES = "scale.properties"
+  def static final GC_LOG = "scale-gc.log"
+  def static final RESULT_PROPERTIES = "scale-results.properties"
+
+  def static final VERSION = "1.0"
+  def static final CONTENT_SIZE = 256
+  def static final MB = 1024.0d * 1024.0d
+
+  /**
+   * Generates the jars of a scenario in the local repository, a pom artifact that depends on all of them and, if the scenario has modules,
+   * the reactor modules in the 'modules' folder of the scenario.
+   */
+  def static generate(File basedir, File localRepository) {
+    def settings = loadProperties(basedir)
+    def groupId = "scale." + basedir.name
+
+    def jars = intSetting(settings, "scale.jars", 0)
+    def classes = intSetting(settings, "scale.classesPerJar", 100)
+    def resources = intSetting(settings, "scale.resourcesPerJar", 0)
+    def overlapRate = doubleSetting(settings, "scale.overlapRate", 0.0d)
+    def equalContentRatio = doubleSetting(settings, "scale.equalContentRatio", 0.5d)
+
+    println("*** SCALE: generating ${jars} jars with ${classes} classes and ${resources} resources each in ${groupId}...")
+
+    def artifactIds = []
+    for (int i = 0; i < jars; i++) {
+      def entries = [:]
+      jarEntries(i, classes, resources).each { entries[it] = content(it, 0) }
+
+      // the first entries of the previous jar, some of them with different content
+      if (i > 0) {
+        def previous = jarEntries(i - 1, classes, resources)
+        def overlap = (int) (previous.size() * overlapRate)
+        for (int j = 0; j < overlap; j++) {
+          entries[previous[j]] = content(previous[j], (j % 100) < equalContentRatio * 100 ? 0 : i)
+        }
+      }
+      artifactIds << installJar(localRepository, groupId, format("jar-%04d", i), entries)
+    }
+
+    def shadedJars = intSetting(settings, "scale.shadedJars", 0)
+    def shadedJarSize = intSetting(settings, "scale.shadedJarSize", 10)
+    def relocatedRatio = doubleSetting(settings, "scale.relocatedRatio", 0.0d)
+
+    for (int i = 0; i < shadedJars; i++) {
+      def relocated = (i % 100) < relocatedRatio * 100
+      def entries = [:]
+      for (int j = 0; j < shadedJarSize; j++) {
+        def bundled = (i * shadedJarSize + j) % Math.max(jars, 1)
+        jarEntries(bundled, classes, 0).each {
+          entries[relocated ? format("shaded/s%d/%s", i, it) : it] = content(it, 0)
+        }
+      }
+      artifactIds << installJar(localRepository, groupId, format("shaded-%04d", i), entries)
+    }
+
+    installPom(localRepository, groupId, "scale-dependencies", "pom", dependencies(groupId, artifactIds))
+
+    def modules = intSetting(settings, "scale.modules", 0)
+    if (modules > 0) {
+      generateModules(basedir, groupId, artifactIds, settings, modules, jars, overlapRate)
+    }
+
+    println("*** SCALE: generated ${artifactIds.size()} jars and ${modules} modules")
+  }
+
+  /**
+   * Reads the garbage collection log of the Maven JVM, writes the measurements to the result file of the scenario and returns them.
+   */
+  def static measure(File basedir) {
+    def gcLog = new File(basedir, GC_LOG)
+    assert gcLog.exists()
+
+    def pattern = ~/(\d+(?:\.\d+)?)([KMG])->(\d+(?:\.\d+)?)([KMG])\(/
+    def exitPattern = ~/heap\s+total \d+K, used (\d+)K/
+    def uptimePattern = ~/^\[(\d+(?:\.\d+)?)s\]/
+
+    def wallTime = 0.0d
+    def peakHeap = 0.0d
+    def allocation = 0.0d
+    def lastAfter = 0.0d
+    def exitHeap = null
+
+    gcLog.eachLine { line ->
+      def uptime = uptimePattern.matcher(line)
+      if (uptime.find()) {
+        wallTime = Math.max(wallTime, Double.parseDouble(uptime.group(1)))
+      }
+
+      def gc = pattern.matcher(line)
+      if (gc.find()) {
+        def before = bytes(gc.group(1), gc.group(2))
+        def after = bytes(gc.group(3), gc.group(4))
+        allocation += Math.max(0.0d, before - lastAfter)
+        peakHeap = Math.max(peakHeap, before)
+        lastAfter = after
+      }
+
+      def exit = exitPattern.matcher(line)
+      if (exit.find() && exitHeap == null) {
+        exitHeap = bytes(exit.group(1), "K")
+      }
+    }
+
+    // The exit line is missing if the Maven JVM did not shut down normally.
+    assert exitHeap != null
+
+    allocation += Math.max(0.0d, exitHeap - lastAfter)
+    peakHeap = Math.max(peakHeap, exitHeap)
+
+    def result = [wallTimeSeconds: wallTime, peakHeapMb: peakHeap / MB, allocationMb: allocation / MB]
+
+    def resultProperties = new Properties()
+    result.each { key, value -> resultProperties.setProperty(key, format("%.1f", value)) }
+    new File(basedir, RESULT_PROPERTIES).withOutputStream { resultProperties.store(it, "scale test results for " + basedir.name) }
+
+    println(format("*** SCALE: %s: wall time %.1f s, peak heap %.1f MB, allocation %.1f MB", basedir.name, wallTime, result.peakHeapMb, result.allocationMb))
+    return result
+  }
+
+  /**
+   * Fails if any measurement exceeds its budget.
+   */
+  def static checkBudgets(File basedir, result) {
+    def settings = loadProperties(basedir)
+    def factor = Double.parseDouble(System.getProperty("scale.budgetFactor", "1.0"))
+
+    result.each { key, value ->
+      def budget = settings.getProperty("budget." + key)
+      if (budget != null) {
+        def limit = Double.parseDouble(budget) * factor
+        println(format("*** SCALE: checkBudget(%s: %.1f, budget: %.1f)...", key, value, limit))
+        assert value <= limit
+        println(format("*** SCALE: checkBudget(%s: %.1f, budget: %.1f) --> OK", key, value, limit))
+      }
+    }
+  }
+
+  /**
+   * Ensures that the plugin reported duplicates, so that a scenario cannot pass by not checking anything.
+   */
+  def static checkDuplicatesReported(File basedir) {
+    def buildLog = new File(basedir, "build.log")
+    assert buildLog.exists()
+    assert buildLog.text =~ /Found (\d+ )?duplicate/
+  }
+
+  private static generateModules(File basedir, String groupId, List artifactIds, Properties settings, int modules, int jars, double overlapRate) {
+    def jarsPerModule = intSetting(settings, "scale.jarsPerModule", 10)
+    def classesPerModule = intSetting(settings, "scale.classesPerModule", 100)
+    def classesPerJar = intSetting(settings, "scale.classesPerJar", 100)
+
+    def modulesDir = new File(basedir, "modules")
+    def moduleNames = []
+
+    for (int i = 0; i < modules; i++) {
+      def artifactId = format("module-%03d", i)
+      moduleNames << artifactId
+
+      // neighbouring modules share half of their jars
+      def firstJar = i * jarsPerModule.intdiv(2)
+      def moduleJars = []
+      for (int j = 0; j < jarsPerModule && !artifactIds.isEmpty(); j++) {
+        moduleJars << artifactIds[(firstJar + j) % artifactIds.size()]
+      }
+      def moduleDependencies = dependencies(groupId, moduleJars)
+      if (i > 0) {
+        moduleDependencies = dependencies(groupId, [moduleNames[i - 1]]) + "\n" + moduleDependencies
+      }
+
+      def moduleDir = new File(modulesDir, artifactId)
+      moduleDir.mkdirs()
+      new File(moduleDir, "pom.xml").text = """<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <modelVersion>4.0.0</modelVersion>
+    <parent>
+        <groupId>${groupId}</groupId>
+        <artifactId>modules</artifactId>
+        <version>${VERSION}</version>
+    </parent>
+    <artifactId>${artifactId}</artifactId>
+    <dependencies>
+${moduleDependencies}
+    </dependencies>
+</project>
+"""
+
+      // The classes are copied as resources into the output folder, so the modules do not need to be compiled.
+      def resourcesDir = new File(moduleDir, "src/main/resources")
+      def classes = []
+      for (int j = 0; j < classesPerModule; j++) {
+        classes << format("scale/m%d/Class%d.class", i, j)
+      }
+      if (jars > 0) {
+        classes.addAll(jarEntries(firstJar % jars, classesPerJar, 0).take((int) (classesPerModule * overlapRate)))
+      }
+      classes.each {
+        def file = new File(resourcesDir, it)
+        file.parentFile.mkdirs()
+        file.bytes = content(it, 0)
+      }
+    }
+
+    // The scenario pom is the parent of the modules aggregator.
+    new File(modulesDir, "pom.xml").text = """<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <modelVersion>4.0.0</modelVersion>
+    <parent>
+        <groupId>${groupId}</groupId>
+        <artifactId>${basedir.name}</artifactId>
+        <version>${VERSION}</version>
+    </parent>
+    <artifactId>modules</artifactId>
+    <packaging>pom</packaging>
+    <modules>
+${moduleNames.collect { "        <module>" + it + "</module>" }.join("\n")}
+    </modules>
+</project>
+"""
+  }
+
+  private static jarEntries(int index, int classes, int resources) {
+    def entries = []
+    for (int i = 0; i < classes; i++) {
+      entries << format("scale/p%d/c%d/Class%d.class", index, i % 10, i)
+    }
+    for (int i = 0; i < resources; i++) {
+      entries << format("scale/p%d/r%d/resource%d.properties", index, i % 10, i)
+    }
+    return entries
+  }
+
+  private static byte[] content(String entry, int variant) {
+    def content = new byte[CONTENT_SIZE]
+    new Random(entry.hashCode() * 31L + variant).nextBytes(content)
+    return content
+  }
+
+  private static installJar(File localRepository, String groupId, String artifactId, Map entries) {
+    def jar = artifactFile(localRepository, groupId, artifactId, "jar")
+    jar.parentFile.mkdirs()
+    new ZipOutputStream(new FileOutputStream(jar)).withCloseable { zip ->
+      // the content is random, compressing it only costs time
+      zip.level = Deflater.NO_COMPRESSION
+      entries.each { name, data ->
+        zip.putNextEntry(new ZipEntry(name))
+        zip.write(data)
+        zip.closeEntry()
+      }
+    }
+    installPom(localRepository, groupId, artifactId, "jar", "")
+    return artifactId
+  }
+
+  private static installPom(File localRepository, String groupId, String artifactId, String packaging, String dependencies) {
+    def pom = artifactFile(localRepository, groupId, artifactId, "pom")
+    pom.parentFile.mkdirs()
+    pom.text = """<project xmlns="http://maven.apache.org/POM/4.0.0">
+    <modelVersion>4.0.0</modelVersion>
+    <groupId>${groupId}</groupId>
+    <artifactId>${artifactId}</artifactId>
+    <version>${VERSION}</version>
+    <packaging>${packaging}</packaging>
+    <dependencies>
+${dependencies}
+    </dependencies>
+</project>
+"""
+  }
+
+  private static artifactFile(File localRepository, String groupId, String artifactId, String extension) {
+    return new File(localRepository, format("%s/%s/%s/%s-%s.%s", groupId.replace('.', '/'), artifactId, VERSION, artifactId, VERSION, extension))
+  }
+
+  private static dependencies(String groupId, List artifactIds) {
+    return artifactIds.collect {
+      """        <dependency>
+            <groupId>${groupId}</groupId>
+            <artifactId>${it}</artifactId>
+            <version>${VERSION}</version>
+        </dependency>"""
+    }.join("\n")
+  }
+
+  private static loadProperties(File basedir) {
+    def properties = new Properties()
+    def file = new File(basedir, SCALE_PROPERTIES)
+    if (file.exists()) {
+      file.withInputStream { properties.load(it) }
+    }
+    return properties
+  }
+
+  private static intSetting(Properties settings, String key, int defaultValue) {
+    return Integer.parseInt(settings.getProperty(key, Integer.toString(defaultValue)))
+  }
+
+  private static doubleSetting(Properties settings, String key, double defaultValue) {
+    return Double.parseDouble(settings.getProperty(key, Double.toString(defaultValue)))
+  }
+
+  private static bytes(String value, String unit) {
+    def factor = ["K": 1024.0d, "M": MB, "G": MB * 1024.0d][unit]
+    return Double.parseDouble(value) * factor
+  }
+
+  private static format(String pattern, Object... args) {
+    return String.format(Locale.ROOT, pattern, args)
+  }
+}
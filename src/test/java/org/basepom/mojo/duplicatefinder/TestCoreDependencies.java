@@ -0,0 +1,99 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.collect.ImmutableList;
+import org.basepom.mojo.duplicatefinder.classpath.ClasspathDescriptor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The core of the plugin (scanning, indexing, conflict evaluation and the command line runner) must not reference any Maven classes, so that it can be used
+ * without Maven. The Maven plugin is an adapter on top of it.
+ */
+public class TestCoreDependencies {
+
+    private static final List<Class<?>> CORE_CLASSES = ImmutableList.of(
+            ClasspathElement.class,
+            ConflictState.class,
+            ConflictType.class,
+            ConflictVerdictStore.class,
+            ContentEvaluator.class,
+            DuplicateFinderCli.class,
+            ElementKeys.class,
+            ExecutionMetrics.class,
+            FlightRecorderEvents.class,
+            IoExecutors.class,
+            LogResultSink.class,
+            PatternProfiler.class,
+            ResultCollector.class,
+            SessionConflictCache.class);
+
+    // Nested classes of core classes that belong to the Maven adapter.
+    private static final List<String> ADAPTER_CLASS_FILES = ImmutableList.of("ClasspathElement$ClasspathArtifact.class");
+
+    @Test
+    public void testCoreHasNoMavenReferences() throws IOException, URISyntaxException {
+        final List<String> offenders = new ArrayList<>();
+
+        for (final Class<?> coreClass : CORE_CLASSES) {
+            checkClass(coreClass.getSimpleName(), new File(coreClass.getProtectionDomain().getCodeSource().getLocation().toURI()), offenders);
+        }
+
+        // the whole classpath package is part of the core.
+        final File classpathFolder = new File(ClasspathDescriptor.class.getResource("ClasspathDescriptor.class").toURI()).getParentFile();
+        final File[] classFiles = classpathFolder.listFiles((dir, name) -> name.endsWith(".class"));
+        assertNotNull(classFiles);
+        assertTrue(classFiles.length > 5);
+
+        for (final File classFile : classFiles) {
+            checkFile(classFile, offenders);
+        }
+
+        assertEquals("Core classes must not reference Maven", ImmutableList.of(), offenders);
+    }
+
+    private static void checkClass(final String simpleName, final File root, final List<String> offenders) throws IOException {
+        // the class and all of its nested classes.
+        final File packageFolder = new File(root, ClasspathElement.class.getPackage().getName().replace('.', File.separatorChar));
+        final File[] classFiles = packageFolder.listFiles((dir, name) -> (name.equals(simpleName + ".class") || name.startsWith(simpleName + "$"))
+                && !ADAPTER_CLASS_FILES.contains(name));
+        assertNotNull(classFiles);
+        assertTrue("No class file for " + simpleName, classFiles.length > 0);
+
+        for (final File classFile : classFiles) {
+            checkFile(classFile, offenders);
+        }
+    }
+
+    private static void checkFile(final File classFile, final List<String> offenders) throws IOException {
+        // class names in the constant pool are stored in internal form and (modified) UTF-8.
+        final String content = new String(Files.readAllBytes(classFile.toPath()), StandardCharsets.ISO_8859_1);
+        if (content.contains("org/apache/maven/")) {
+            offenders.add(classFile.getName());
+        }
+    }
+}
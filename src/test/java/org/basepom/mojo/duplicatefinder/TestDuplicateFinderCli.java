@@ -0,0 +1,126 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.basepom.mojo.duplicatefinder.DuplicateFinderCli.EXIT_CONFLICTS;
+import static org.basepom.mojo.duplicatefinder.DuplicateFinderCli.EXIT_ERROR;
+import static org.basepom.mojo.duplicatefinder.DuplicateFinderCli.EXIT_OK;
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.createJar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDuplicateFinderCli {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+    @Test
+    public void testNoConflicts() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", ImmutableMap.of("demo/Foo.class", "foo"));
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", ImmutableMap.of("demo/Bar.class", "bar"));
+
+        assertEquals(EXIT_OK, run(first.getPath(), second.getPath()));
+    }
+
+    @Test
+    public void testDifferentContent() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", ImmutableMap.of("demo/Foo.class", "first foo"));
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", ImmutableMap.of("demo/Foo.class", "second foo"));
+        String classpath = first.getPath() + File.pathSeparator + second.getPath();
+
+        assertEquals(EXIT_CONFLICTS, run("-cp", classpath));
+        assertEquals(EXIT_OK, run("--no-fail", "-cp", classpath));
+    }
+
+    @Test
+    public void testEqualContent() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", ImmutableMap.of("demo/Foo.class", "foo"));
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", ImmutableMap.of("demo/Foo.class", "foo"));
+
+        assertEquals(EXIT_OK, run(first.getPath(), second.getPath()));
+        assertEquals(EXIT_CONFLICTS, run("--fail-on-equal", first.getPath(), second.getPath()));
+    }
+
+    @Test
+    public void testFolderWildcard() throws IOException {
+        createJar(temporaryFolder.getRoot(), "first.jar", ImmutableMap.of("demo/Foo.class", "first foo"));
+        createJar(temporaryFolder.getRoot(), "second.jar", ImmutableMap.of("demo/Foo.class", "second foo"));
+
+        assertEquals(EXIT_CONFLICTS, run(temporaryFolder.getRoot().getPath() + File.separator + "*"));
+    }
+
+    @Test
+    public void testIndex() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", ImmutableMap.of("demo/Foo.class", "first foo"));
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", ImmutableMap.of("demo/Foo.class", "second foo"));
+        File index = new File(temporaryFolder.getRoot(), "index");
+
+        assertEquals(EXIT_CONFLICTS, run("--index", index.getPath(), first.getPath(), second.getPath()));
+        assertTrue(new File(index, "verdicts.gz").isFile());
+
+        // the second run uses the stored listings and conflict states.
+        assertEquals(EXIT_CONFLICTS, run("--index", index.getPath(), first.getPath(), second.getPath()));
+    }
+
+    @Test
+    public void testHelp() {
+        assertEquals(EXIT_OK, run("--help"));
+        assertTrue(getErr().contains("Usage"));
+    }
+
+    @Test
+    public void testUnknownOption() {
+        assertEquals(EXIT_ERROR, run("--unknown"));
+        assertTrue(getErr().contains("Unknown option '--unknown'!"));
+    }
+
+    @Test
+    public void testMissingValue() {
+        assertEquals(EXIT_ERROR, run("--threads"));
+        assertTrue(getErr().contains("Option '--threads' needs a value!"));
+    }
+
+    @Test
+    public void testNoElements() {
+        assertEquals(EXIT_ERROR, run("--no-fail"));
+        assertTrue(getErr().contains("No classpath elements given!"));
+    }
+
+    private int run(String... args) {
+        try (PrintStream printStream = new PrintStream(err, true, "UTF-8")) {
+            return DuplicateFinderCli.run(printStream, args);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String getErr() {
+        return new String(err.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}
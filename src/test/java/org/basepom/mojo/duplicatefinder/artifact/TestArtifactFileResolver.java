@@ -13,16 +13,30 @@
  */
 package org.basepom.mojo.duplicatefinder.artifact;
 
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathArtifact;
+import org.basepom.mojo.duplicatefinder.ClasspathElement.ClasspathLocalFolder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
 import org.apache.maven.artifact.handler.ArtifactHandler;
 import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.project.MavenProject;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import static org.junit.Assert.assertEquals;
 
 public class TestArtifactFileResolver {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     private final ArtifactHandler handler = new DefaultArtifactHandler();
 
     @Test
@@ -44,4 +58,44 @@ public class TestArtifactFileResolver {
         final Artifact testClassifiedJarArtifact = new DefaultArtifact("foo.group", "foo-id", "1.0", "compile", "test-jar", "special", handler);
         assertEquals(testClassifiedJarArtifact, ArtifactFileResolver.canonicalizeArtifact(testClassifiedJarArtifact));
     }
+
+    @Test
+    public void testReferencedProjects() throws Exception {
+        final Artifact libraryArtifact = createArtifact("foo.group", "library", temporaryFolder.newFile("library-1.0.jar"));
+        final Artifact moduleArtifact = createArtifact("foo.group", "module", temporaryFolder.newFile("module-1.0.jar"));
+
+        final MavenProject referencedProject = new MavenProject();
+        referencedProject.setArtifact(new DefaultArtifact("foo.group", "module", "1.0", null, "jar", null, handler));
+        referencedProject.getBuild().setOutputDirectory(temporaryFolder.newFolder("module", "classes").getAbsolutePath());
+
+        final MavenProject project = new MavenProject();
+        project.setArtifacts(ImmutableSet.of(libraryArtifact, moduleArtifact));
+        project.addProjectReference(referencedProject);
+
+        final ArtifactFileResolverService resolverService = new ArtifactFileResolverService();
+        final File outputDirectory = new File(referencedProject.getBuild().getOutputDirectory());
+
+        // The referenced project resolves to its output folder if local folders are preferred, otherwise to its jar.
+        final ArtifactFileResolver localResolver = resolverService.createResolver(project, true);
+        assertEquals(ImmutableMultimap.of(libraryArtifact.getFile().getCanonicalFile(), libraryArtifact, outputDirectory, moduleArtifact),
+                localResolver.resolveArtifactsForScopes(ImmutableSet.of()));
+        assertEquals(ImmutableSet.of(new ClasspathArtifact(moduleArtifact)),
+                localResolver.getClasspathElementsForElements(Arrays.asList(outputDirectory)));
+
+        final ArtifactFileResolver repoResolver = resolverService.createResolver(project, false);
+        assertEquals(ImmutableMultimap.of(libraryArtifact.getFile().getCanonicalFile(), libraryArtifact, moduleArtifact.getFile().getCanonicalFile(),
+                        moduleArtifact),
+                repoResolver.resolveArtifactsForScopes(ImmutableSet.of()));
+        assertEquals(ImmutableSet.of(new ClasspathLocalFolder(temporaryFolder.getRoot())),
+                repoResolver.getClasspathElementsForElements(Arrays.asList(temporaryFolder.getRoot())));
+    }
+
+    private static Artifact createArtifact(final String groupId, final String artifactId, final File file) {
+        final DefaultArtifactHandler jarHandler = new DefaultArtifactHandler("jar");
+        jarHandler.setAddedToClasspath(true);
+
+        final Artifact artifact = new DefaultArtifact(groupId, artifactId, "1.0", "compile", "jar", null, jarHandler);
+        artifact.setFile(file);
+        return artifact;
+    }
 }
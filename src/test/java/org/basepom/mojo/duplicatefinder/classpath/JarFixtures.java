@@ -0,0 +1,105 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Creates jar files for tests.
+ */
+public final class JarFixtures {
+
+    private JarFixtures() {
+        throw new AssertionError("do not instantiate");
+    }
+
+    /**
+     * Creates a jar with the given entries, each entry contains its own name.
+     */
+    public static File createJar(File folder, String name, String... entries) throws IOException {
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (String entry : entries) {
+            contents.put(entry, entry);
+        }
+        return createJar(folder, name, contents);
+    }
+
+    /**
+     * Creates a jar with the given entry names and contents.
+     */
+    public static File createJar(File folder, String name, Map<String, String> entries) throws IOException {
+        return createJar(folder, name, entries, ZipEntry.DEFLATED);
+    }
+
+    /**
+     * Creates a jar with the given entry names and contents, using the given compression method for all entries.
+     */
+    public static File createJar(File folder, String name, Map<String, String> entries, int method) throws IOException {
+        return writeJar(folder, name, new byte[0], createJarContent(entries, method));
+    }
+
+    /**
+     * Writes the given jar content, preceded by a prefix (e.g. a launch script).
+     */
+    public static File writeJar(File folder, String name, byte[] prefix, byte[] content) throws IOException {
+        File jar = new File(folder, name);
+        try (OutputStream out = new FileOutputStream(jar)) {
+            out.write(prefix);
+            out.write(content);
+        }
+        return jar;
+    }
+
+    /**
+     * Returns the content of a jar with the given entry names and contents, e.g. to nest it in another jar.
+     */
+    public static byte[] createJarContent(Map<String, String> entries, int method) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                putEntry(out, entry.getKey(), entry.getValue().getBytes(StandardCharsets.UTF_8), method);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Adds an entry to a jar. Stored entries get their size and CRC set up front.
+     */
+    public static void putEntry(ZipOutputStream out, String name, byte[] content, int method) throws IOException {
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(method);
+        if (method == ZipEntry.STORED) {
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            entry.setSize(content.length);
+            entry.setCompressedSize(content.length);
+            entry.setCrc(crc.getValue());
+        }
+        out.putNextEntry(entry);
+        out.write(content);
+        out.closeEntry();
+    }
+}
@@ -13,16 +13,34 @@
  */
 package org.basepom.mojo.duplicatefinder.classpath;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.basepom.mojo.duplicatefinder.ConflictType;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.basepom.mojo.duplicatefinder.PatternProfiler;
+import org.basepom.mojo.duplicatefinder.PatternProfiler.PatternStatistics;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.createJar;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class TestClasspathDescriptor {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testValidIdentifierNames() {
         String[] validNames = {
@@ -81,4 +99,91 @@ public class TestClasspathDescriptor {
         }
     }
 
+    @Test
+    public void testProfiledPredicate() {
+        assertSame(ClasspathDescriptor.DEFAULT_IGNORED_CLASS_PREDICATE,
+                ClasspathDescriptor.DEFAULT_IGNORED_CLASS_PREDICATE.profiled(PatternProfiler.DEFAULT_CLASSES, PatternProfiler.disabled()));
+
+        PatternProfiler profiler = new PatternProfiler();
+        Predicate<String> predicate = ClasspathDescriptor.DEFAULT_IGNORED_CLASS_PREDICATE.profiled(PatternProfiler.DEFAULT_CLASSES, profiler);
+
+        assertTrue(predicate.apply("foo$bar"));
+        assertTrue(predicate.apply("demo.package-info"));
+        assertFalse(predicate.apply("demo.Foo"));
+
+        List<PatternStatistics> statistics = profiler.getStatistics();
+        assertEquals(3, statistics.size());
+
+        long evaluations = 0;
+        long matches = 0;
+        for (PatternStatistics patternStatistics : statistics) {
+            assertEquals(PatternProfiler.DEFAULT_CLASSES, patternStatistics.getList());
+            evaluations += patternStatistics.getEvaluations();
+            matches += patternStatistics.getMatches();
+        }
+        // inner class: 1 evaluation, package-info: 2 evaluations, no match: 3 evaluations
+        assertEquals(6, evaluations);
+        assertEquals(2, matches);
+    }
+
+    @Test
+    public void testIncrementalIndex() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", "demo/Foo.class", "demo/Bar.class");
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", "demo/Foo.class");
+        File third = createJar(temporaryFolder.getRoot(), "third.jar", "demo/Baz.class");
+
+        ClasspathDescriptor descriptor = ClasspathDescriptor.createClasspathDescriptor(ImmutableList.of(first, second),
+                ImmutableList.of(), ImmutableList.of(), true, true,
+                ClasspathListingStore.disabled(), IndexBudget.unlimited(),
+                MoreExecutors.newDirectExecutorService(), DuplicateListener.NONE, new ExecutionMetrics());
+
+        assertEquals(ImmutableSet.of("demo.Foo"), descriptor.getConflicts(ConflictType.CLASS).keySet());
+
+        // conflicts are a view, they change with the index.
+        descriptor.addClasspathElements(ImmutableList.of(third, first));
+        assertEquals(ImmutableList.of(first, second, third), ImmutableList.copyOf(descriptor.getClasspathElements()));
+        assertEquals(ImmutableSet.of("demo.Foo"), descriptor.getConflicts(ConflictType.CLASS).keySet());
+
+        assertEquals(ImmutableSet.of(second), descriptor.removeClasspathElements(ImmutableList.of(second, second)));
+        assertTrue(descriptor.getConflicts(ConflictType.CLASS).isEmpty());
+        assertEquals(ImmutableSet.of(first), ImmutableSet.copyOf(descriptor.getClasspathElementLocations(ConflictType.CLASS).get("demo.Foo")));
+
+        // a changed archive is scanned again and keeps its place on the classpath.
+        assertTrue(descriptor.refreshClasspathElements().isEmpty());
+        createJar(temporaryFolder.getRoot(), "third.jar", "demo/Baz.class", "demo/Bar.class");
+        assertTrue(third.setLastModified(third.lastModified() + 2000));
+
+        assertEquals(ImmutableSet.of(third), descriptor.refreshClasspathElements());
+        assertEquals(ImmutableList.of(first, third), ImmutableList.copyOf(descriptor.getClasspathElements()));
+        assertEquals(ImmutableSet.of("demo.Bar"), descriptor.getConflicts(ConflictType.CLASS).keySet());
+    }
+
+    @Test
+    public void testIndexListingStore() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", "demo/Foo.class");
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", "demo/Foo.class");
+        File indexDirectory = temporaryFolder.newFolder("index");
+
+        ClasspathListingStore index = new ClasspathListingStore(indexDirectory, false);
+        assertFalse(index.isCurrent(first));
+        assertTrue(index.index(first, false, new ExecutionMetrics()));
+        assertTrue(index.isCurrent(first));
+        assertFalse(index.index(first, false, new ExecutionMetrics()));
+        assertTrue(index.index(first, true, new ExecutionMetrics()));
+
+        // a check reuses the indexed listing and adds the missing archive to the index.
+        ClasspathListingStore checkStore = new ClasspathListingStore(indexDirectory, false);
+        ClasspathDescriptor descriptor = ClasspathDescriptor.createClasspathDescriptor(ImmutableList.of(first, second),
+                ImmutableList.of(), ImmutableList.of(), true, true,
+                checkStore, IndexBudget.unlimited(), MoreExecutors.newDirectExecutorService(), DuplicateListener.NONE, new ExecutionMetrics());
+
+        assertEquals(ImmutableSet.of("demo.Foo"), descriptor.getConflicts(ConflictType.CLASS).keySet());
+        assertTrue(index.isCurrent(second));
+
+        // a changed archive is stale.
+        createJar(temporaryFolder.getRoot(), "first.jar", "demo/Foo.class", "demo/Bar.class");
+        assertTrue(first.setLastModified(first.lastModified() + 2000));
+        assertFalse(index.isCurrent(first));
+    }
+
 }
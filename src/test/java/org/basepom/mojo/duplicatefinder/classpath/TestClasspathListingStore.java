@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.createJar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestClasspathListingStore {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testPruneFolder() throws IOException {
+        File repository = temporaryFolder.newFolder("repository").getCanonicalFile();
+        File other = temporaryFolder.newFolder("other").getCanonicalFile();
+        File indexDirectory = new File(temporaryFolder.getRoot(), "index");
+
+        File kept = createJar(repository, "kept.jar", ImmutableMap.of("demo/Demo.class", "kept.jar"));
+        File removed = createJar(repository, "removed.jar", ImmutableMap.of("demo/Demo.class", "removed.jar"));
+        File project = createJar(other, "project.jar", ImmutableMap.of("demo/Demo.class", "project.jar"));
+
+        ClasspathListingStore store = new ClasspathListingStore(indexDirectory, false);
+        for (File jar : new File[] {kept, removed, project}) {
+            assertTrue(store.index(jar, false, new ExecutionMetrics()));
+        }
+        assertTrue(removed.delete());
+
+        // the next run only finds the jar that is still in the repository.
+        store = new ClasspathListingStore(indexDirectory, false);
+        assertFalse(store.index(kept, false, new ExecutionMetrics()));
+        assertEquals(1, store.prune(repository));
+
+        // the listing of the jar in the other folder is kept.
+        assertEquals(2, indexDirectory.list().length);
+        assertTrue(store.isCurrent(kept));
+        assertTrue(store.isCurrent(project));
+    }
+
+    @Test
+    public void testVerifyScannedElement() throws IOException {
+        File jar = createJar(temporaryFolder.getRoot(), "verified.jar", ImmutableMap.of("demo/Demo.class", "verified.jar"));
+
+        // the first check keeps the listing of the jar in memory.
+        createDescriptor(jar, ClasspathListingStore.disabled());
+
+        // a verifying check compares the jar with its stored listing anyway.
+        ClasspathListingStore store = new ClasspathListingStore(new File(temporaryFolder.getRoot(), "index"), true);
+        createDescriptor(jar, store);
+        assertEquals(1, store.getScannedCount());
+
+        store = new ClasspathListingStore(new File(temporaryFolder.getRoot(), "index"), true);
+        createDescriptor(jar, store);
+        assertEquals(1, store.getReusedCount());
+        assertEquals(ImmutableList.of(), store.getMismatches());
+    }
+
+    private static void createDescriptor(File jar, ClasspathListingStore store) throws IOException {
+        ClasspathDescriptor.createClasspathDescriptor(ImmutableList.of(jar),
+                ImmutableList.of(), ImmutableList.of(), true, true,
+                store, IndexBudget.unlimited(), MoreExecutors.newDirectExecutorService(), DuplicateListener.NONE, new ExecutionMetrics());
+    }
+
+}
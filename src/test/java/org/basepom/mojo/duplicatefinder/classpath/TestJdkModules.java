@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.basepom.mojo.duplicatefinder.ConflictType;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestJdkModules {
+
+    private static final String XML_CLASS = "javax.xml.parsers.DocumentBuilderFactory";
+    private static final String XML_CLASS_PATH = "javax/xml/parsers/DocumentBuilderFactory.class";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testJdkElement() throws IOException {
+        final File element = JdkModules.getRunningJdkElement();
+        assertTrue(JdkModules.isJdkElement(element));
+        assertTrue(JdkModules.getJavaVersion(element).startsWith(Integer.toString(Runtime.version().feature())));
+        assertTrue(JdkModules.getJdkKey(element).startsWith(JdkModules.getJavaVersion(element) + "\t"));
+
+        assertFalse(JdkModules.isJdkElement(temporaryFolder.getRoot()));
+        assertFalse(JdkModules.isJdkElement(temporaryFolder.newFile("modules")));
+
+        try {
+            JdkModules.getJdkElement(temporaryFolder.getRoot());
+            fail("not a JDK");
+        } catch (final IllegalArgumentException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testScan() throws IOException {
+        final ClasspathCacheElement cacheElement = ClasspathDescriptor.scan(JdkModules.getRunningJdkElement());
+
+        assertTrue(cacheElement.getClasses().contains("java.lang.String"));
+        assertTrue(cacheElement.getClasses().contains(XML_CLASS));
+        assertTrue(cacheElement.getResources().isEmpty());
+    }
+
+    @Test
+    public void testOpenEntry() throws IOException {
+        final File element = JdkModules.getRunningJdkElement();
+
+        try (InputStream in = JdkModules.openEntry(element, XML_CLASS_PATH)) {
+            final byte[] content = ByteStreams.toByteArray(in);
+            assertEquals(0xCAFEBABE, ((content[0] & 0xFF) << 24) | ((content[1] & 0xFF) << 16) | ((content[2] & 0xFF) << 8) | (content[3] & 0xFF));
+
+            final Map<String, Long> sizes = JdkModules.getEntrySizes(element, ImmutableList.of(XML_CLASS_PATH, "demo/Missing.class", "Missing.class"));
+            assertEquals(ImmutableSet.of(XML_CLASS_PATH), sizes.keySet());
+            assertEquals(content.length, sizes.get(XML_CLASS_PATH).longValue());
+        }
+
+        try {
+            JdkModules.openEntry(element, "javax/xml/parsers/Missing.class").close();
+            fail("class does not exist");
+        } catch (final NoSuchFileException e) {
+            // ok
+        }
+    }
+
+    @Test
+    public void testConflictWithJdk() throws IOException {
+        final File jar = temporaryFolder.newFile("xml-apis.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(XML_CLASS_PATH));
+            out.write(new byte[] {1, 2, 3});
+            out.closeEntry();
+        }
+
+        final File element = JdkModules.getRunningJdkElement();
+        final ClasspathDescriptor descriptor = ClasspathDescriptor.createClasspathDescriptor(ImmutableList.of(element, jar),
+                ImmutableList.of(), ImmutableList.of(), true, true,
+                ClasspathListingStore.disabled(), IndexBudget.unlimited(),
+                MoreExecutors.newDirectExecutorService(), DuplicateListener.NONE, new ExecutionMetrics());
+
+        final Map<String, Collection<File>> conflicts = descriptor.getConflicts(ConflictType.CLASS);
+        assertEquals(ImmutableSet.of(XML_CLASS), conflicts.keySet());
+        assertEquals(ImmutableSet.of(element, jar), ImmutableSet.copyOf(conflicts.get(XML_CLASS)));
+    }
+
+    @Test
+    public void testJdkListingIsStoredOnce() throws IOException {
+        final File element = JdkModules.getRunningJdkElement();
+        final File jdkDirectory = temporaryFolder.newFolder("jdk");
+        final AtomicInteger scans = new AtomicInteger();
+        final ClasspathListingStore.ElementScanner scanner = file -> {
+            scans.incrementAndGet();
+            return ClasspathDescriptor.scan(file);
+        };
+
+        // the JDK listing is kept even if all other listings are not.
+        final ClasspathCacheElement scanned = ClasspathListingStore.disabled().withJdkDirectory(jdkDirectory).loadOrScan(element, scanner);
+        final ClasspathCacheElement loaded = ClasspathListingStore.disabled().withJdkDirectory(jdkDirectory).loadOrScan(element, scanner);
+
+        assertEquals(1, scans.get());
+        assertEquals(scanned.getClasses(), loaded.getClasses());
+        assertEquals(1, jdkDirectory.list().length);
+    }
+}
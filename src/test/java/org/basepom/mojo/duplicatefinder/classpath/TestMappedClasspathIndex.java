@@ -0,0 +1,161 @@
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.basepom.mojo.duplicatefinder.ConflictType;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.createJar;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestMappedClasspathIndex {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSegment() throws IOException {
+        List<Entry<String, int[]>> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(new SimpleImmutableEntry<>(String.format("org.example.pkg%02d.Cl\u00e4ss", i), new int[] {i, i + 3, i + 1000}));
+        }
+
+        File spillDirectory = new File(temporaryFolder.getRoot(), "spill");
+        IndexSegment segment = IndexSegment.write(spillDirectory, entries.iterator(), entries.size());
+
+        // the file is deleted once it is mapped.
+        assertEquals(0, spillDirectory.list().length);
+        assertEquals(100, segment.size());
+
+        for (Entry<String, int[]> entry : entries) {
+            assertArrayEquals(entry.getKey(), entry.getValue(), segment.find(entry.getKey()));
+        }
+        assertNull(segment.find("org.example.pkg00"));
+        assertNull(segment.find("org.example.pkg50.Class"));
+        assertNull(segment.find("org.example.pkg99.Cl\u00e4ss$Inner"));
+        assertNull(segment.find("a"));
+
+        List<Entry<String, int[]>> read = ImmutableList.copyOf(segment.iterator());
+        assertEquals(entries.size(), read.size());
+        for (int i = 0; i < entries.size(); i++) {
+            assertEquals(entries.get(i).getKey(), read.get(i).getKey());
+            assertArrayEquals(entries.get(i).getValue(), read.get(i).getValue());
+        }
+    }
+
+    @Test
+    public void testSameResultsAsHeapIndex() throws IOException {
+        List<File> elements = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            elements.add(new File("element" + i + ".jar"));
+        }
+
+        HeapClasspathIndex heapIndex = new HeapClasspathIndex();
+        // a tiny buffer writes many segments, which are merged.
+        MappedClasspathIndex mappedIndex = new MappedClasspathIndex(temporaryFolder.getRoot(), 10);
+
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            String name = "demo.Class" + random.nextInt(500);
+            File element = elements.get(random.nextInt(elements.size()));
+            assertEquals(name, ImmutableSet.copyOf(heapIndex.put(name, element)), ImmutableSet.copyOf(mappedIndex.put(name, element)));
+        }
+        assertTrue(mappedIndex.getSegmentCount() <= MappedClasspathIndex.MAX_SEGMENTS);
+        assertSameContent(heapIndex, mappedIndex);
+
+        // removed elements are dropped, an element that is added again is found again.
+        for (File element : elements.subList(0, 5)) {
+            List<String> names = ImmutableList.copyOf(Maps.filterValues(heapIndex.asMap(), files -> files.contains(element)).keySet());
+            heapIndex.remove(element, names);
+            mappedIndex.remove(element, names);
+        }
+        assertSameContent(heapIndex, mappedIndex);
+
+        heapIndex.put("demo.Class1", elements.get(0));
+        mappedIndex.put("demo.Class1", elements.get(0));
+        assertSameContent(heapIndex, mappedIndex);
+
+        MappedClasspathIndex copy = MappedClasspathIndex.copyOf(heapIndex, elements, temporaryFolder.getRoot());
+        assertEquals(1, copy.getSegmentCount());
+        assertSameContent(heapIndex, copy);
+    }
+
+    @Test
+    public void testDescriptorMovesIndex() throws IOException {
+        File first = createJar(temporaryFolder.getRoot(), "first.jar", "demo/Foo.class", "demo/Bar.class", "demo.properties");
+        File second = createJar(temporaryFolder.getRoot(), "second.jar", "demo/Foo.class", "demo.properties");
+        File third = createJar(temporaryFolder.getRoot(), "third.jar", "demo/Bar.class", "demo/Baz.class");
+
+        ClasspathDescriptor heapDescriptor = createDescriptor(ImmutableList.of(first, second, third), IndexBudget.unlimited());
+        assertFalse(heapDescriptor.isIndexMapped());
+
+        // the budget is exceeded by the first element.
+        IndexBudget budget = new IndexBudget(1, temporaryFolder.newFolder("spill"));
+        ClasspathDescriptor mappedDescriptor = createDescriptor(ImmutableList.of(first, second), budget);
+        Map<String, Collection<File>> conflicts = mappedDescriptor.getConflicts(ConflictType.CLASS);
+        mappedDescriptor.addClasspathElements(ImmutableList.of(third));
+
+        assertTrue(mappedDescriptor.isIndexMapped());
+        assertEquals(0, budget.getUsedHeapBytes());
+        for (ConflictType type : ConflictType.values()) {
+            assertEquals(toSets(heapDescriptor.getClasspathElementLocations(type)), toSets(mappedDescriptor.getClasspathElementLocations(type)));
+        }
+        assertEquals(ImmutableSet.of("demo.Foo", "demo.Bar"), conflicts.keySet());
+
+        assertEquals(ImmutableSet.of(first), mappedDescriptor.removeClasspathElements(ImmutableList.of(first)));
+        assertTrue(conflicts.isEmpty());
+        assertEquals(ImmutableSet.of(third), ImmutableSet.copyOf(mappedDescriptor.getClasspathElementLocations(ConflictType.CLASS).get("demo.Bar")));
+
+        // a budget that is large enough keeps the index on the heap, removed elements return their heap.
+        IndexBudget largeBudget = new IndexBudget(1024 * 1024, temporaryFolder.getRoot());
+        ClasspathDescriptor descriptor = createDescriptor(ImmutableList.of(first, second), largeBudget);
+        assertFalse(descriptor.isIndexMapped());
+        assertTrue(largeBudget.getUsedHeapBytes() > 0);
+
+        descriptor.removeClasspathElements(ImmutableList.of(first, second));
+        assertEquals(0, largeBudget.getUsedHeapBytes());
+    }
+
+    private static void assertSameContent(ClasspathIndex expected, ClasspathIndex actual) {
+        assertEquals(ImmutableList.copyOf(expected.asMap().keySet()), ImmutableList.copyOf(actual.asMap().keySet()));
+        assertEquals(toSets(expected.asMap()), toSets(actual.asMap()));
+        for (String name : expected.asMap().keySet()) {
+            assertEquals(ImmutableSet.copyOf(expected.asMap().get(name)), ImmutableSet.copyOf(actual.asMap().get(name)));
+        }
+        assertNull(actual.asMap().get("demo.Missing"));
+        assertEquals(expected.asMap().size(), Iterators.size(actual.asMap().entrySet().iterator()));
+    }
+
+    private static Map<String, ImmutableSet<File>> toSets(Map<String, Collection<File>> map) {
+        return ImmutableMap.copyOf(Maps.transformValues(map, ImmutableSet::copyOf));
+    }
+
+    private static ClasspathDescriptor createDescriptor(List<File> elements, IndexBudget indexBudget) throws IOException {
+        return ClasspathDescriptor.createClasspathDescriptor(elements,
+                ImmutableList.of(), ImmutableList.of(), true, true,
+                ClasspathListingStore.disabled(), indexBudget, MoreExecutors.newDirectExecutorService(), DuplicateListener.NONE, new ExecutionMetrics());
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.basepom.mojo.duplicatefinder.classpath;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.basepom.mojo.duplicatefinder.ConflictType;
+import org.basepom.mojo.duplicatefinder.ExecutionMetrics;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.createJar;
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.createJarContent;
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.putEntry;
+import static org.basepom.mojo.duplicatefinder.classpath.JarFixtures.writeJar;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestNestedArchives {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testExpand() throws IOException {
+        File app = createBootJar("app.jar", new byte[0]);
+
+        List<File> elements = NestedArchives.expand(app);
+        assertEquals(ImmutableList.of(
+                NestedArchives.getNestedElement(app, "BOOT-INF/classes"),
+                NestedArchives.getNestedElement(app, "BOOT-INF/lib/stored.jar"),
+                NestedArchives.getNestedElement(app, "BOOT-INF/lib/deflated.jar")), elements);
+
+        for (File element : elements) {
+            assertTrue(NestedArchives.isNested(element));
+            assertEquals(app, NestedArchives.getArchiveFile(element));
+        }
+
+        // an archive without nested jars is its own classpath.
+        File plain = createJar(temporaryFolder.getRoot(), "plain.jar", ImmutableMap.of("demo/Foo.class", "foo"), ZipEntry.DEFLATED);
+        assertEquals(ImmutableList.of(plain), NestedArchives.expand(plain));
+        assertFalse(NestedArchives.isNested(plain));
+    }
+
+    @Test
+    public void testNestedClasspath() throws IOException {
+        checkNestedClasspath(createBootJar("app.jar", new byte[0]));
+    }
+
+    @Test
+    public void testArchiveWithPrefix() throws IOException {
+        // e.g. a fully executable Spring Boot jar, which starts with a launch script.
+        checkNestedClasspath(createBootJar("app.jar", "#!/bin/bash\nexec java -jar \"$0\" \"$@\"\n".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void checkNestedClasspath(File app) throws IOException {
+        ClasspathDescriptor descriptor = ClasspathDescriptor.createClasspathDescriptor(NestedArchives.expand(app),
+                ImmutableList.of(), ImmutableList.of(), true, true,
+                ClasspathListingStore.disabled(), IndexBudget.unlimited(),
+                MoreExecutors.newDirectExecutorService(), DuplicateListener.NONE, new ExecutionMetrics());
+
+        File classes = NestedArchives.getNestedElement(app, "BOOT-INF/classes");
+        File stored = NestedArchives.getNestedElement(app, "BOOT-INF/lib/stored.jar");
+        File deflated = NestedArchives.getNestedElement(app, "BOOT-INF/lib/deflated.jar");
+
+        Map<String, Collection<File>> classConflicts = descriptor.getConflicts(ConflictType.CLASS);
+        assertEquals(ImmutableSet.of("demo.Foo", "demo.Bar"), classConflicts.keySet());
+        assertEquals(ImmutableSet.of(classes, stored), ImmutableSet.copyOf(classConflicts.get("demo.Foo")));
+        assertEquals(ImmutableSet.of(stored, deflated), ImmutableSet.copyOf(classConflicts.get("demo.Bar")));
+        assertEquals(ImmutableSet.of("application.properties"), descriptor.getConflicts(ConflictType.RESOURCE).keySet());
+
+        assertEquals("stored foo", read(stored, "demo/Foo.class"));
+        assertEquals("stored bar", read(stored, "demo/Bar.class"));
+        assertEquals("deflated bar", read(deflated, "demo/Bar.class"));
+        assertEquals("app foo", read(classes, "demo/Foo.class"));
+
+        // size and CRC are known without reading the content of a stored archive.
+        Map<String, ZipEntry> entries = NestedArchives.getEntries(stored, ImmutableList.of("demo/Bar.class", "demo/Missing.class"));
+        assertEquals(ImmutableSet.of("demo/Bar.class"), entries.keySet());
+        assertEquals(crc("stored bar"), entries.get("demo/Bar.class").getCrc());
+        assertEquals("stored bar".length(), entries.get("demo/Bar.class").getSize());
+
+        // a compressed archive is streamed once, its sizes and CRCs are known afterwards.
+        entries = NestedArchives.getEntries(deflated, ImmutableList.of("demo/Bar.class", "demo/Missing.class"));
+        assertEquals(ImmutableSet.of("demo/Bar.class"), entries.keySet());
+        assertEquals(crc("deflated bar"), entries.get("demo/Bar.class").getCrc());
+        assertEquals("deflated bar".length(), entries.get("demo/Bar.class").getSize());
+    }
+
+    private File createBootJar(String name, byte[] prefix) throws IOException {
+        byte[] stored = createJarContent(ImmutableMap.of(
+                "demo/Foo.class", "stored foo",
+                "demo/Bar.class", "stored bar",
+                "application.properties", "a=1"), ZipEntry.DEFLATED);
+        byte[] deflated = createJarContent(ImmutableMap.of(
+                "demo/Bar.class", "deflated bar",
+                "application.properties", "a=2"), ZipEntry.STORED);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream out = new ZipOutputStream(bytes)) {
+            putEntry(out, "META-INF/MANIFEST.MF", "Manifest-Version: 1.0\n".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            putEntry(out, "org/springframework/boot/loader/Launcher.class", "launcher".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            putEntry(out, "BOOT-INF/classes/demo/Foo.class", "app foo".getBytes(StandardCharsets.UTF_8), ZipEntry.DEFLATED);
+            putEntry(out, "BOOT-INF/lib/stored.jar", stored, ZipEntry.STORED);
+            putEntry(out, "BOOT-INF/lib/deflated.jar", deflated, ZipEntry.DEFLATED);
+        }
+
+        return writeJar(temporaryFolder.getRoot(), name, prefix, bytes.toByteArray());
+    }
+
+
+
+
+    private static String read(File element, String resourcePath) throws IOException {
+        try (InputStream in = NestedArchives.openEntry(element, resourcePath)) {
+            return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static long crc(String content) {
+        CRC32 crc = new CRC32();
+        crc.update(content.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}